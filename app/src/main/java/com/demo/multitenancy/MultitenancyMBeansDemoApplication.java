@@ -2,10 +2,15 @@ package com.demo.multitenancy;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.jdbc.JdbcRepositoriesAutoConfiguration;
 import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
 import org.springframework.context.annotation.EnableMBeanExport;
 
-@SpringBootApplication(exclude = { HibernateJpaAutoConfiguration.class })
+/*
+ * Spring Data JDBC repositories are not used; their configuration would borrow
+ * a connection during startup just to detect the SQL dialect.
+ */
+@SpringBootApplication(exclude = { HibernateJpaAutoConfiguration.class, JdbcRepositoriesAutoConfiguration.class })
 @EnableMBeanExport
 public class MultitenancyMBeansDemoApplication {
 
@@ -0,0 +1,197 @@
+package com.demo.multitenancy.cache;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.demo.multitenancy.config.SchedulerConfig;
+import com.demo.multitenancy.config.db.TenantContextHolder;
+import com.demo.multitenancy.config.db.TenantDataSourceRegistry;
+import com.demo.multitenancy.event.DataSyncedEvent;
+import com.demo.multitenancy.util.Queries;
+
+/*
+ * Student and address counts per lookup key, maintained from committed
+ * inserts and reconciled with a full count(1) in the background. The first
+ * read of a key does the full count synchronously. Inserts committed while a
+ * count runs are added on top of it rather than overwritten by it.
+ */
+@Component
+public class RecordCounters {
+
+	private static final Logger LOG = LoggerFactory.getLogger(RecordCounters.class);
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private TenantDataSourceRegistry tenantDataSourceRegistry;
+
+	@Value("${app.student.count.reconcile-interval-seconds:300}")
+	private long reconcileIntervalSeconds;
+
+	private final Map<String, Counts> counts = new ConcurrentHashMap<>();
+	/* Every insert ever recorded per key, counted or not; never reset */
+	private final Map<String, long[]> inserted = new ConcurrentHashMap<>();
+	private final ScheduledExecutorService scheduler = SchedulerConfig.dedicatedScheduler("record-counters");
+
+	@PostConstruct
+	public void init() {
+		scheduler.scheduleWithFixedDelay(this::reconcileAll, reconcileIntervalSeconds, reconcileIntervalSeconds,
+				TimeUnit.SECONDS);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		scheduler.shutdownNow();
+	}
+
+	public Counts get(String lookupKey) {
+		Counts current = counts.get(lookupKey);
+		return Objects.nonNull(current) ? current : recount(lookupKey);
+	}
+
+	/*
+	 * Counts the insert once the surrounding transaction commits, or right
+	 * away when there is none.
+	 */
+	public void recordInsert(String lookupKey, long students, long addresses) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					increment(lookupKey, students, addresses);
+				}
+			});
+		} else {
+			increment(lookupKey, students, addresses);
+		}
+	}
+
+	public void reset(String lookupKey) {
+		counts.put(lookupKey, new Counts(0, 0, System.currentTimeMillis(), false));
+	}
+
+	/*
+	 * Rows copied in by a data sync are not known one by one, so the target
+	 * gets a full count on its next read.
+	 */
+	@EventListener
+	public void onDataSynced(DataSyncedEvent event) {
+		counts.remove(event.getTargetLookupKey());
+	}
+
+	/*
+	 * The insert totals are updated under the lock of the key's counts entry,
+	 * so a recount sees either both the total and the counts updated or neither.
+	 */
+	private void increment(String lookupKey, long students, long addresses) {
+		counts.compute(lookupKey, (key, current) -> {
+			inserted.merge(key, new long[] { students, addresses },
+					(total, delta) -> new long[] { total[0] + delta[0], total[1] + delta[1] });
+			return Objects.isNull(current) ? null
+					: new Counts(current.students + students, current.addresses + addresses,
+							current.reconciledAtMillis, false);
+		});
+	}
+
+	private long[] inserted(String lookupKey) {
+		return inserted.getOrDefault(lookupKey, new long[2]);
+	}
+
+	/*
+	 * Runs with the tenant bound explicitly so that the queries hit that
+	 * tenant's pool whatever the globally active key is. Inserts recorded since
+	 * the count started are applied on top of it; one committed just before
+	 * the count query may be counted twice until the next reconcile.
+	 */
+	private Counts recount(String lookupKey) {
+		String previous = TenantContextHolder.getTenant();
+		TenantContextHolder.setTenant(lookupKey);
+		try {
+			long[] before = inserted(lookupKey);
+			long students = jdbcTemplate.queryForObject(Queries.COUNT_STUDENT_RECORDS, Long.class);
+			long addresses = jdbcTemplate.queryForObject(Queries.COUNT_ADDRESS_RECORDS, Long.class);
+			return counts.compute(lookupKey, (key, current) -> {
+				long[] since = inserted(key);
+				long studentDelta = since[0] - before[0];
+				long addressDelta = since[1] - before[1];
+				return new Counts(students + studentDelta, addresses + addressDelta, System.currentTimeMillis(),
+						studentDelta == 0 && addressDelta == 0);
+			});
+		} finally {
+			if (Objects.isNull(previous)) {
+				TenantContextHolder.clear();
+			} else {
+				TenantContextHolder.setTenant(previous);
+			}
+		}
+	}
+
+	private void reconcileAll() {
+		for (String lookupKey : counts.keySet()) {
+			if (!tenantDataSourceRegistry.contains(lookupKey)) {
+				counts.remove(lookupKey);
+				inserted.remove(lookupKey);
+				continue;
+			}
+			if (Objects.isNull(tenantDataSourceRegistry.getDataSourceIfOpen(lookupKey))) {
+				continue;
+			}
+			try {
+				recount(lookupKey);
+			} catch (Exception e) {
+				LOG.warn("Could not reconcile record counts of '{}'. Error - {}", lookupKey, e.getMessage());
+			}
+		}
+	}
+
+	public static final class Counts {
+		private final long students;
+		private final long addresses;
+		private final long reconciledAtMillis;
+		private final boolean fullRecount;
+
+		Counts(long students, long addresses, long reconciledAtMillis, boolean fullRecount) {
+			this.students = students;
+			this.addresses = addresses;
+			this.reconciledAtMillis = reconciledAtMillis;
+			this.fullRecount = fullRecount;
+		}
+
+		public long getStudents() {
+			return students;
+		}
+
+		public long getAddresses() {
+			return addresses;
+		}
+
+		public long getStalenessMillis() {
+			return System.currentTimeMillis() - reconciledAtMillis;
+		}
+
+		/*
+		 * True while the numbers are exactly those of the last full count, i.e.
+		 * no insert has been applied on top of it yet.
+		 */
+		public boolean isFullRecount() {
+			return fullRecount;
+		}
+	}
+}
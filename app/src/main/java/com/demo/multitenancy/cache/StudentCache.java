@@ -0,0 +1,122 @@
+package com.demo.multitenancy.cache;
+
+import java.time.Duration;
+import java.util.Objects;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.demo.multitenancy.event.DataSourceMigratedEvent;
+import com.demo.multitenancy.event.DataSyncedEvent;
+import com.demo.multitenancy.model.Student;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/*
+ * Read-through cache in front of FIND_BY_ID. Entries are namespaced by the
+ * lookup key the row was read from, so a migration can never serve a row
+ * from the previous database. On migration the old namespace is either
+ * flushed or kept warm for a migration back, see app.student.cache.on-migration.
+ * Rows served by a read replica are not cached by callers, since the replica
+ * may lag behind the namespace they would be cached under.
+ */
+@Component
+public class StudentCache {
+
+	private static final Logger LOG = LoggerFactory.getLogger(StudentCache.class);
+
+	public enum MigrationPolicy {
+		FLUSH, KEEP;
+	}
+
+	@Value("${app.student.cache.maximum-size:10000}")
+	private long maximumSize;
+
+	@Value("${app.student.cache.ttl-seconds:300}")
+	private long ttlSeconds;
+
+	@Value("${app.student.cache.on-migration:FLUSH}")
+	private MigrationPolicy migrationPolicy;
+
+	private Cache<Key, Student> cache;
+
+	@PostConstruct
+	public void init() {
+		cache = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+				.recordStats().build();
+	}
+
+	public Student getIfPresent(String lookupKey, long id) {
+		return cache.getIfPresent(new Key(lookupKey, id));
+	}
+
+	public void put(String lookupKey, long id, Student student) {
+		cache.put(new Key(lookupKey, id), student);
+	}
+
+	public void invalidate(String lookupKey, long id) {
+		cache.invalidate(new Key(lookupKey, id));
+	}
+
+	public void invalidateNamespace(String lookupKey) {
+		cache.asMap().keySet().removeIf(key -> key.lookupKey.equals(lookupKey));
+	}
+
+	public void invalidateAll() {
+		cache.invalidateAll();
+	}
+
+	@EventListener
+	public void onDataSourceMigrated(DataSourceMigratedEvent event) {
+		if (migrationPolicy == MigrationPolicy.FLUSH) {
+			invalidateNamespace(event.getPreviousLookupKey());
+			LOG.info("Flushed student cache namespace '{}' after migration.", event.getPreviousLookupKey());
+		}
+	}
+
+	@EventListener
+	public void onDataSynced(DataSyncedEvent event) {
+		invalidateNamespace(event.getTargetLookupKey());
+	}
+
+	public CacheStats getStats() {
+		return cache.stats();
+	}
+
+	public long getSize() {
+		return cache.estimatedSize();
+	}
+
+	private static final class Key {
+		private final String lookupKey;
+		private final long id;
+
+		Key(String lookupKey, long id) {
+			this.lookupKey = lookupKey;
+			this.id = id;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return id == other.id && lookupKey.equals(other.lookupKey);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(lookupKey, id);
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package com.demo.multitenancy.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.ApplicationEventMulticaster;
+import org.springframework.context.event.SimpleApplicationEventMulticaster;
+import org.springframework.context.support.AbstractApplicationContext;
+import org.springframework.util.ReflectionUtils;
+
+@Configuration
+public class EventConfig {
+
+	private static final ThreadLocal<List<Throwable>> LISTENER_FAILURES = new ThreadLocal<>();
+
+	/*
+	 * A failing listener still fails the publisher, as with the default
+	 * multicaster, unless the event is published with publishIsolated().
+	 */
+	@Bean(name = AbstractApplicationContext.APPLICATION_EVENT_MULTICASTER_BEAN_NAME)
+	public ApplicationEventMulticaster applicationEventMulticaster(BeanFactory beanFactory) {
+		SimpleApplicationEventMulticaster multicaster = new SimpleApplicationEventMulticaster(beanFactory);
+		multicaster.setErrorHandler(EventConfig::handleListenerFailure);
+		return multicaster;
+	}
+
+	/*
+	 * Delivers the event to every listener even if some of them throw, and
+	 * returns what they threw.
+	 */
+	public static List<Throwable> publishIsolated(ApplicationEventPublisher publisher, Object event) {
+		List<Throwable> failures = new ArrayList<>();
+		List<Throwable> outer = LISTENER_FAILURES.get();
+		LISTENER_FAILURES.set(failures);
+		try {
+			publisher.publishEvent(event);
+		} finally {
+			if (outer != null) {
+				LISTENER_FAILURES.set(outer);
+			} else {
+				LISTENER_FAILURES.remove();
+			}
+		}
+		return failures;
+	}
+
+	private static void handleListenerFailure(Throwable failure) {
+		List<Throwable> failures = LISTENER_FAILURES.get();
+		if (failures == null) {
+			ReflectionUtils.rethrowRuntimeException(failure);
+		}
+		failures.add(failure);
+	}
+}
@@ -0,0 +1,36 @@
+package com.demo.multitenancy.config;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SchedulerConfig {
+
+	/*
+	 * Single daemon scheduler for short, non-blocking timers only (drain
+	 * timeouts, triggers that hand work to another executor). Anything that
+	 * talks to a database or closes a pool runs on a dedicated scheduler, so
+	 * that it cannot delay these timers.
+	 */
+	@Bean(name = "sharedScheduler", destroyMethod = "shutdownNow")
+	public ScheduledExecutorService sharedScheduler() {
+		return dedicatedScheduler("shared-scheduler");
+	}
+
+	/*
+	 * Single daemon thread for one component's blocking periodic work. The
+	 * component owns it and shuts it down when it is destroyed.
+	 */
+	public static ScheduledExecutorService dedicatedScheduler(String threadName) {
+		ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+			Thread thread = new Thread(runnable, threadName);
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.setRemoveOnCancelPolicy(true);
+		return scheduler;
+	}
+}
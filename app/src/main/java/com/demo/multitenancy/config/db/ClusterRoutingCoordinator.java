@@ -0,0 +1,625 @@
+package com.demo.multitenancy.config.db;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import com.demo.multitenancy.config.SchedulerConfig;
+import com.demo.multitenancy.exception.DataSourceRoutingException;
+import com.demo.multitenancy.metrics.LatencyMetrics;
+import com.demo.multitenancy.util.Queries;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+/*
+ * Switches the active datasource of every application node together, through
+ * tables in a database shared by all nodes (not one of the tenants, whose
+ * pools get suspended by migrations).
+ *
+ * A cluster switch takes the routing lease and publishes the next routing
+ * epoch: the lookup key and a switch time a little ahead, so that every node
+ * has polled it by then. Each node polls the latest epoch and heartbeats its
+ * own progress into the node table. At the switch time it runs a local
+ * migration whose cluster barrier holds the switch, behind the closed gate,
+ * until the epoch is decided. The first node to see every live node drained
+ * records a commit, the first whose barrier times out records an abort; the
+ * decision row of an epoch is written once, and every node follows it. So
+ * either all nodes switch or none does, and no node writes to the new
+ * datasource while another still writes to the old one. Nodes whose
+ * heartbeat is older than the node timeout are not waited for, and a node
+ * joining later catches up with the latest committed epoch on its first poll.
+ *
+ * A node that fails its local migration retries the epoch with a growing
+ * delay. Once it has failed the configured number of times it aborts the
+ * epoch, unless it was committed already, in which case it keeps retrying.
+ * Polling, switching and the cluster tables are handled on a thread of the
+ * coordinator's own.
+ *
+ * Times are wall clock milliseconds of the nodes, which are expected to be
+ * kept in sync (NTP). The time from publishing an epoch until the last live
+ * node switched is recorded as the cluster convergence time.
+ */
+@Component
+public class ClusterRoutingCoordinator {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ClusterRoutingCoordinator.class);
+	private static final String LEASE_NAME = "routing";
+
+	public enum NodeState {
+		SWITCHED, OBSERVED, DRAINED, FAILED, ABORTED
+	}
+
+	public enum Decision {
+		COMMIT, ABORT
+	}
+
+	@Value("${app.cluster.enabled:false}")
+	private boolean enabled;
+
+	@Value("${app.cluster.node-id:}")
+	private String nodeId;
+
+	@Value("${app.cluster.datasource.url:}")
+	private String url;
+
+	@Value("${app.cluster.datasource.driver:}")
+	private String driver;
+
+	@Value("${app.cluster.datasource.username:}")
+	private String username;
+
+	@Value("${app.cluster.datasource.password:}")
+	private String password;
+
+	@Value("${app.cluster.poll-interval-millis:1000}")
+	private long pollIntervalMillis;
+
+	@Value("${app.cluster.switch-delay-millis:2500}")
+	private long switchDelayMillis;
+
+	@Value("${app.cluster.node-timeout-millis:5000}")
+	private long nodeTimeoutMillis;
+
+	@Value("${app.cluster.barrier-timeout-millis:3000}")
+	private long barrierTimeoutMillis;
+
+	@Value("${app.cluster.lease-millis:60000}")
+	private long leaseMillis;
+
+	@Value("${app.cluster.max-switch-attempts:3}")
+	private int maxSwitchAttempts;
+
+	@Value("${app.cluster.max-retry-delay-millis:30000}")
+	private long maxRetryDelayMillis;
+
+	@Autowired
+	private DataSourceContextManager dataSourceContextManager;
+
+	@Autowired
+	private TenantDataSourceRegistry tenantDataSourceRegistry;
+
+	@Autowired
+	private MigrationOrchestrator migrationOrchestrator;
+
+	@Autowired
+	private LatencyMetrics latencyMetrics;
+
+	private final ScheduledExecutorService scheduler = SchedulerConfig.dedicatedScheduler("cluster-routing");
+	private HikariDataSource dataSource;
+	private JdbcTemplate jdbcTemplate;
+	private TransactionTemplate transactionTemplate;
+	private ScheduledFuture<?> pendingSwitch;
+	private volatile boolean tablesReady;
+
+	private volatile Epoch appliedEpoch = Epoch.NONE;
+	private volatile Epoch pendingEpoch;
+	private volatile NodeState nodeState = NodeState.SWITCHED;
+	private volatile long observedAtMillis;
+	private volatile long switchedAtMillis;
+	private volatile long leaseEpoch;
+	private long attemptEpoch;
+	private int attempts;
+	private long retryAtMillis;
+	private volatile long abortedEpoch;
+	private volatile long decidedEpoch;
+	private volatile Decision lastDecision;
+
+	private volatile long lastObserveLagMillis;
+	private volatile long lastLocalConvergenceMillis;
+	private volatile long convergedEpoch;
+	private volatile long lastClusterConvergenceMillis;
+	private volatile int convergedNodes;
+	private volatile String lastError;
+
+	@PostConstruct
+	public void init() {
+		if (!enabled) {
+			return;
+		}
+		if (!StringUtils.hasText(url)) {
+			throw new IllegalStateException("app.cluster.datasource.url is required when app.cluster.enabled is on.");
+		}
+		if (!StringUtils.hasText(nodeId)) {
+			nodeId = ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+		}
+		HikariConfig config = new HikariConfig();
+		config.setPoolName("Pool-Cluster");
+		config.setJdbcUrl(url);
+		if (StringUtils.hasText(driver)) {
+			config.setDriverClassName(driver);
+		}
+		config.setUsername(username);
+		config.setPassword(password);
+		config.setMinimumIdle(1);
+		config.setMaximumPoolSize(2);
+		config.setConnectionTimeout(Math.max(250, pollIntervalMillis));
+		config.setInitializationFailTimeout(-1);
+		dataSource = new HikariDataSource(config);
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		scheduler.scheduleWithFixedDelay(this::poll, 0, pollIntervalMillis, TimeUnit.MILLISECONDS);
+		LOG.info("Cluster routing coordination on as node '{}', polling every {} ms.", nodeId, pollIntervalMillis);
+	}
+
+	/*
+	 * Publishes the next routing epoch for the given lookup key and returns
+	 * its number. Only one switch is in flight across the cluster: the lease
+	 * is held until every live node switched, or until it expires.
+	 */
+	public long switchCluster(String lookupKey) {
+		if (!enabled) {
+			throw new DataSourceRoutingException("Cluster routing coordination is not enabled.");
+		}
+		if (!StringUtils.hasText(lookupKey) || !tenantDataSourceRegistry.contains(lookupKey)) {
+			throw new DataSourceRoutingException("Provided lookup key was invalid.");
+		}
+		if (!tablesReady) {
+			throw new DataSourceRoutingException("Cluster tables are not ready yet. Please retry later.");
+		}
+		String key = TenantDataSourceRegistry.normalize(lookupKey);
+		long epoch;
+		try {
+			epoch = transactionTemplate.execute(status -> {
+				long now = System.currentTimeMillis();
+				if (!acquireLease(now)) {
+					throw new DataSourceRoutingException("Another cluster switch is in progress. Please retry later.");
+				}
+				long next = jdbcTemplate.queryForObject(Queries.CLUSTER_MAX_EPOCH, Long.class) + 1;
+				jdbcTemplate.update(Queries.CLUSTER_INSERT_EPOCH, next, key, nodeId, now, now + switchDelayMillis);
+				return next;
+			});
+		} catch (DataAccessException e) {
+			throw new DataSourceRoutingException("Cluster database is not available. Error - " + e.getMessage());
+		}
+		leaseEpoch = epoch;
+		LOG.info("Published cluster routing epoch {}: switch to '{}' in {} ms.", epoch, key, switchDelayMillis);
+		scheduler.execute(this::poll);
+		return epoch;
+	}
+
+	private boolean acquireLease(long now) {
+		if (jdbcTemplate.update(Queries.CLUSTER_ACQUIRE_LEASE, nodeId, now + leaseMillis, LEASE_NAME, now) == 1) {
+			return true;
+		}
+		try {
+			return jdbcTemplate.update(Queries.CLUSTER_INSERT_LEASE, LEASE_NAME, nodeId, now + leaseMillis) == 1;
+		} catch (DuplicateKeyException e) {
+			return false;
+		}
+	}
+
+	/*
+	 * The cluster tables are created by the first poll, so a cluster database
+	 * that is down at startup delays coordination rather than the startup.
+	 */
+	private void createTables() {
+		jdbcTemplate.execute(Queries.CLUSTER_CREATE_EPOCH);
+		jdbcTemplate.execute(Queries.CLUSTER_CREATE_LEASE);
+		jdbcTemplate.execute(Queries.CLUSTER_CREATE_DECISION);
+		jdbcTemplate.execute(Queries.CLUSTER_CREATE_NODE);
+		tablesReady = true;
+	}
+
+	private void poll() {
+		try {
+			if (!tablesReady) {
+				createTables();
+			}
+			long now = System.currentTimeMillis();
+			Epoch latest = jdbcTemplate.query(Queries.CLUSTER_LATEST_EPOCH, (rs, row) -> new Epoch(rs.getLong("epoch"),
+					rs.getString("lookup_key"), rs.getLong("created_at"), rs.getLong("switch_at"),
+					rs.getString("decision") != null ? Decision.valueOf(rs.getString("decision")) : null)).stream()
+					.findFirst().orElse(Epoch.NONE);
+			if (latest.decision != null && latest.number > decidedEpoch) {
+				decidedEpoch = latest.number;
+				lastDecision = latest.decision;
+			}
+			if (latest.decision == Decision.ABORT) {
+				aborted(latest);
+			} else if (latest.number > appliedEpoch.number && !isBackingOff(latest, now)
+					&& (pendingEpoch == null || pendingEpoch.number != latest.number)) {
+				observe(latest, now);
+			}
+			writeNode(now);
+			if (latest.decision == Decision.COMMIT && latest.number > convergedEpoch) {
+				checkConvergence(latest, now);
+			}
+		} catch (RuntimeException e) {
+			lastError = e.getMessage();
+			LOG.warn("Cluster routing poll failed. Error - {}", e.getMessage());
+		}
+	}
+
+	private synchronized void observe(Epoch epoch, long now) {
+		if (pendingSwitch != null) {
+			pendingSwitch.cancel(false);
+		}
+		pendingEpoch = epoch;
+		observedAtMillis = now;
+		lastObserveLagMillis = Math.max(0, now - epoch.createdAtMillis);
+		if (epoch.lookupKey.equalsIgnoreCase(dataSourceContextManager.getCurrentlyActiveLookpKey())) {
+			switched(epoch, now);
+			return;
+		}
+		nodeState = NodeState.OBSERVED;
+		long delay = Math.max(0, epoch.switchAtMillis - now);
+		LOG.info("Observed cluster routing epoch {} to '{}' {} ms after it was published. Switching in {} ms.",
+				epoch.number, epoch.lookupKey, lastObserveLagMillis, delay);
+		pendingSwitch = scheduler.schedule(() -> switchLocally(epoch), delay, TimeUnit.MILLISECONDS);
+	}
+
+	private void switchLocally(Epoch epoch) {
+		if (pendingEpoch != epoch) {
+			return;
+		}
+		MigrationJob job;
+		try {
+			job = migrationOrchestrator.start(epoch.lookupKey, migrationJob -> awaitBarrier(epoch));
+		} catch (DataSourceRoutingException e) {
+			failed(epoch, e.getMessage());
+			return;
+		}
+		job.getCompletion().whenComplete((done, error) -> {
+			if (job.getState() == MigrationJob.State.SUCCEEDED) {
+				switched(epoch, System.currentTimeMillis());
+			} else {
+				failed(epoch, job.getOutcome());
+			}
+		});
+	}
+
+	private synchronized void switched(Epoch epoch, long now) {
+		appliedEpoch = epoch;
+		pendingEpoch = null;
+		nodeState = NodeState.SWITCHED;
+		switchedAtMillis = now;
+		lastLocalConvergenceMillis = Math.max(0, now - epoch.createdAtMillis);
+		latencyMetrics.migrationPhase("clusterLocalSwitch").record(TimeUnit.MILLISECONDS.toNanos(lastLocalConvergenceMillis));
+		LOG.info("Node '{}' is on cluster routing epoch {} ('{}'), {} ms after it was published.", nodeId, epoch.number,
+				epoch.lookupKey, lastLocalConvergenceMillis);
+		writeNodeQuietly(now);
+	}
+
+	/*
+	 * The epoch is taken up again once the retry delay, doubled on every
+	 * failure, has passed. After too many failures the epoch is aborted for
+	 * the whole cluster, unless it is committed already.
+	 */
+	private void failed(Epoch epoch, String reason) {
+		long now = System.currentTimeMillis();
+		int failures;
+		synchronized (this) {
+			if (pendingEpoch == epoch) {
+				pendingEpoch = null;
+			}
+			if (attemptEpoch != epoch.number) {
+				attemptEpoch = epoch.number;
+				attempts = 0;
+			}
+			failures = ++attempts;
+			long delay = Math.min(maxRetryDelayMillis, pollIntervalMillis << Math.min(failures, 16));
+			retryAtMillis = now + delay;
+			nodeState = NodeState.FAILED;
+			lastError = reason;
+			LOG.error("Node '{}' could not switch to cluster routing epoch {} ('{}'), attempt {} of {}. Retrying in {} ms. {}",
+					nodeId, epoch.number, epoch.lookupKey, failures, maxSwitchAttempts, delay, reason);
+		}
+		if (failures >= maxSwitchAttempts) {
+			try {
+				Decision decision = decide(epoch, Decision.ABORT);
+				if (decision == Decision.COMMIT) {
+					LOG.error("Cluster routing epoch {} is committed, node '{}' keeps retrying to switch.", epoch.number,
+							nodeId);
+				}
+			} catch (DataAccessException e) {
+				lastError = e.getMessage();
+			}
+		}
+		writeNodeQuietly(now);
+	}
+
+	private synchronized boolean isBackingOff(Epoch epoch, long now) {
+		return attemptEpoch == epoch.number && now < retryAtMillis;
+	}
+
+	/*
+	 * A switch that is scheduled but not started yet is dropped. One that is
+	 * running fails at its barrier, which reads the same decision.
+	 */
+	private synchronized void aborted(Epoch epoch) {
+		if (pendingEpoch != null && pendingEpoch.number == epoch.number) {
+			if (pendingSwitch == null || !pendingSwitch.cancel(false)) {
+				return;
+			}
+			pendingEpoch = null;
+		}
+		if (abortedEpoch < epoch.number) {
+			abortedEpoch = epoch.number;
+			nodeState = NodeState.ABORTED;
+			LOG.warn("Cluster routing epoch {} ('{}') was aborted. Node '{}' stays on '{}'.", epoch.number,
+					epoch.lookupKey, nodeId, dataSourceContextManager.getCurrentlyActiveLookpKey());
+		}
+		if (leaseEpoch == epoch.number) {
+			jdbcTemplate.update(Queries.CLUSTER_RELEASE_LEASE, LEASE_NAME, nodeId);
+			leaseEpoch = 0;
+		}
+	}
+
+	/*
+	 * Records the decision of the epoch unless another node did so first, and
+	 * returns the one that holds.
+	 */
+	private Decision decide(Epoch epoch, Decision decision) {
+		try {
+			jdbcTemplate.update(Queries.CLUSTER_INSERT_DECISION, epoch.number, decision.name(), nodeId,
+					System.currentTimeMillis());
+			LOG.info("Node '{}' decided {} of cluster routing epoch {} ('{}').", nodeId, decision, epoch.number,
+					epoch.lookupKey);
+			return decision;
+		} catch (DuplicateKeyException e) {
+			return readDecision(epoch);
+		}
+	}
+
+	private Decision readDecision(Epoch epoch) {
+		return jdbcTemplate.query(Queries.CLUSTER_SELECT_DECISION, (rs, row) -> Decision.valueOf(rs.getString("decision")),
+				epoch.number).stream().findFirst().orElse(null);
+	}
+
+	/*
+	 * Runs on the migration thread with the gate closed and the previous pool
+	 * drained. Waits until the epoch is decided: committed once every live
+	 * node has drained for it or is past it, aborted once the barrier timed
+	 * out on any node. Only a commit lets the switch go ahead.
+	 */
+	private void awaitBarrier(Epoch epoch) {
+		nodeState = NodeState.DRAINED;
+		long deadline = System.currentTimeMillis() + barrierTimeoutMillis;
+		try {
+			writeNode(System.currentTimeMillis());
+			while (true) {
+				long now = System.currentTimeMillis();
+				Decision decision = readDecision(epoch);
+				if (decision == null) {
+					List<NodeView> waitingFor = liveNodes(now).stream().filter(node -> !node.hasDrained(epoch.number))
+							.collect(Collectors.toList());
+					if (waitingFor.isEmpty()) {
+						decision = decide(epoch, Decision.COMMIT);
+					} else if (now > deadline) {
+						LOG.warn("Cluster barrier of epoch {} timed out after {} ms waiting for {}.", epoch.number,
+								barrierTimeoutMillis, waitingFor.stream().map(node -> node.nodeId).collect(Collectors.toList()));
+						decision = decide(epoch, Decision.ABORT);
+					}
+				}
+				if (decision == Decision.COMMIT) {
+					return;
+				}
+				if (decision == Decision.ABORT) {
+					throw new DataSourceRoutingException("Cluster routing epoch " + epoch.number + " was aborted.");
+				}
+				Thread.sleep(Math.min(50, pollIntervalMillis));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DataSourceRoutingException("Interrupted while waiting for the cluster barrier.");
+		} catch (DataAccessException e) {
+			throw new DataSourceRoutingException("Cluster barrier failed. Error - " + e.getMessage());
+		}
+	}
+
+	private void checkConvergence(Epoch epoch, long now) {
+		List<NodeView> nodes = liveNodes(now);
+		boolean converged = nodes.stream()
+				.allMatch(node -> node.epoch >= epoch.number && NodeState.SWITCHED.name().equals(node.state));
+		if (!converged || nodes.isEmpty()) {
+			return;
+		}
+		long lastSwitchedAt = nodes.stream().mapToLong(node -> node.switchedAtMillis).max().getAsLong();
+		lastClusterConvergenceMillis = Math.max(0, lastSwitchedAt - epoch.createdAtMillis);
+		convergedNodes = nodes.size();
+		convergedEpoch = epoch.number;
+		latencyMetrics.migrationPhase("clusterConvergence")
+				.record(TimeUnit.MILLISECONDS.toNanos(lastClusterConvergenceMillis));
+		LOG.info("Cluster converged on routing epoch {} ('{}'): {} nodes in {} ms.", epoch.number, epoch.lookupKey,
+				convergedNodes, lastClusterConvergenceMillis);
+		if (leaseEpoch == epoch.number) {
+			jdbcTemplate.update(Queries.CLUSTER_RELEASE_LEASE, LEASE_NAME, nodeId);
+			leaseEpoch = 0;
+		}
+	}
+
+	private List<NodeView> liveNodes(long now) {
+		return jdbcTemplate.query(Queries.CLUSTER_LIVE_NODES,
+				(rs, row) -> new NodeView(rs.getString("node_id"), rs.getString("lookup_key"), rs.getLong("epoch"),
+						rs.getString("state"), rs.getLong("switched_at")),
+				now - nodeTimeoutMillis);
+	}
+
+	private void writeNode(long now) {
+		Epoch epoch = pendingEpoch != null ? pendingEpoch : appliedEpoch;
+		Object[] args = { now, dataSourceContextManager.getCurrentlyActiveLookpKey(), epoch.number, nodeState.name(),
+				observedAtMillis, switchedAtMillis, nodeId };
+		if (jdbcTemplate.update(Queries.CLUSTER_UPDATE_NODE, args) == 0) {
+			jdbcTemplate.update(Queries.CLUSTER_INSERT_NODE, args);
+		}
+	}
+
+	private void writeNodeQuietly(long now) {
+		try {
+			writeNode(now);
+		} catch (RuntimeException e) {
+			lastError = e.getMessage();
+		}
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	public long getAppliedEpoch() {
+		return appliedEpoch.number;
+	}
+
+	public String getAppliedLookupKey() {
+		return appliedEpoch.lookupKey;
+	}
+
+	public long getPendingEpoch() {
+		Epoch epoch = pendingEpoch;
+		return epoch == null ? 0 : epoch.number;
+	}
+
+	public NodeState getNodeState() {
+		return nodeState;
+	}
+
+	public long getLastObserveLagMillis() {
+		return lastObserveLagMillis;
+	}
+
+	public long getLastLocalConvergenceMillis() {
+		return lastLocalConvergenceMillis;
+	}
+
+	public long getConvergedEpoch() {
+		return convergedEpoch;
+	}
+
+	public long getLastClusterConvergenceMillis() {
+		return lastClusterConvergenceMillis;
+	}
+
+	public int getConvergedNodes() {
+		return convergedNodes;
+	}
+
+	public long getDecidedEpoch() {
+		return decidedEpoch;
+	}
+
+	public Decision getLastDecision() {
+		return lastDecision;
+	}
+
+	public String getLastError() {
+		return lastError;
+	}
+
+	/*
+	 * Live nodes with their lookup key, epoch and state, as last heartbeated.
+	 */
+	public Map<String, String> getLiveNodes() {
+		if (!enabled) {
+			return new LinkedHashMap<>();
+		}
+		return liveNodes(System.currentTimeMillis()).stream().collect(Collectors.toMap(node -> node.nodeId,
+				node -> node.lookupKey + " epoch " + node.epoch + " " + node.state, (a, b) -> a, LinkedHashMap::new));
+	}
+
+	@PreDestroy
+	public void destroy() {
+		if (!enabled) {
+			return;
+		}
+		scheduler.shutdownNow();
+		try {
+			jdbcTemplate.update(Queries.CLUSTER_DELETE_NODE, nodeId);
+		} catch (RuntimeException e) {
+			LOG.warn("Could not deregister cluster node '{}'. Error - {}", nodeId, e.getMessage());
+		}
+		dataSource.close();
+	}
+
+	private static final class Epoch {
+
+		static final Epoch NONE = new Epoch(0, null, 0, 0, null);
+
+		final long number;
+		final String lookupKey;
+		final long createdAtMillis;
+		final long switchAtMillis;
+		final Decision decision;
+
+		Epoch(long number, String lookupKey, long createdAtMillis, long switchAtMillis, Decision decision) {
+			this.number = number;
+			this.lookupKey = lookupKey;
+			this.createdAtMillis = createdAtMillis;
+			this.switchAtMillis = switchAtMillis;
+			this.decision = decision;
+		}
+
+		@Override
+		public String toString() {
+			return number + " (" + lookupKey + ", published " + Instant.ofEpochMilli(createdAtMillis) + ")";
+		}
+	}
+
+	private static final class NodeView {
+
+		final String nodeId;
+		final String lookupKey;
+		final long epoch;
+		final String state;
+		final long switchedAtMillis;
+
+		NodeView(String nodeId, String lookupKey, long epoch, String state, long switchedAtMillis) {
+			this.nodeId = nodeId;
+			this.lookupKey = lookupKey;
+			this.epoch = epoch;
+			this.state = state;
+			this.switchedAtMillis = switchedAtMillis;
+		}
+
+		boolean hasDrained(long epochNumber) {
+			return epoch > epochNumber || epoch == epochNumber
+					&& (NodeState.DRAINED.name().equals(state) || NodeState.SWITCHED.name().equals(state));
+		}
+	}
+}
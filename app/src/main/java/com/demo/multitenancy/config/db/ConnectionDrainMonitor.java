@@ -0,0 +1,55 @@
+package com.demo.multitenancy.config.db;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ConnectionDrainMonitor {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ConnectionDrainMonitor.class);
+
+	@Autowired
+	@Qualifier("sharedScheduler")
+	private ScheduledExecutorService scheduler;
+
+	private volatile long lastDrainDurationMillis = -1;
+	private volatile String lastDrainedPool;
+	private volatile boolean lastDrainTimedOut;
+
+	public boolean awaitDrain(LeaseTrackingDataSource dataSource, long timeout, TimeUnit unit) {
+		long start = System.nanoTime();
+		boolean drained = false;
+		try {
+			drained = dataSource.whenDrained(scheduler, timeout, unit).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			LOG.error("Interrupted while waiting for connection pool '{}' to drain.", dataSource.getPoolName());
+		} catch (ExecutionException e) {
+			LOG.error("Error while waiting for connection pool '{}' to drain. Error - {}", dataSource.getPoolName(),
+					e.getMessage());
+		}
+		lastDrainDurationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		lastDrainedPool = dataSource.getPoolName();
+		lastDrainTimedOut = !drained;
+		return drained;
+	}
+
+	public long getLastDrainDurationMillis() {
+		return lastDrainDurationMillis;
+	}
+
+	public String getLastDrainedPool() {
+		return lastDrainedPool;
+	}
+
+	public boolean isLastDrainTimedOut() {
+		return lastDrainTimedOut;
+	}
+}
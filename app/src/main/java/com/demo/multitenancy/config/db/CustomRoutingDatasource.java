@@ -0,0 +1,87 @@
+package com.demo.multitenancy.config.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.demo.multitenancy.metrics.RequestDbTimings;
+
+/*
+ * Targets are owned by the TenantDataSourceRegistry and opened lazily, so the
+ * resolved target comes from the registry or the routing snapshot rather than
+ * from the static targetDataSources map of AbstractRoutingDataSource. A request
+ * scoped tenant wins over the globally active lookup key. Read-only work on the
+ * globally active key goes to a healthy read replica when one is configured;
+ * this relies on being wrapped in a LazyConnectionDataSourceProxy, since the
+ * read-only flag of a transaction is only set after its connection is taken.
+ */
+//@Component
+public class CustomRoutingDatasource extends AbstractRoutingDataSource {
+
+	@Autowired
+	private DataSourceContextManager dBContextHolder;
+
+	@Autowired
+	private MigrationGate migrationGate;
+
+	@Autowired
+	private TenantDataSourceRegistry tenantDataSourceRegistry;
+
+	@Autowired
+	private ReadReplicaRouter readReplicaRouter;
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		awaitMigrationGate();
+		return super.getConnection();
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		awaitMigrationGate();
+		return super.getConnection(username, password);
+	}
+
+	@Override
+	protected Object determineCurrentLookupKey() {
+		String tenant = TenantContextHolder.getTenant();
+		return tenant != null ? tenant : dBContextHolder.getRoutingSnapshot().getLookupKey();
+	}
+
+	@Override
+	protected DataSource determineTargetDataSource() {
+		String tenant = TenantContextHolder.getTenant();
+		if (tenant != null) {
+			RequestDbTimings.routedTo(tenant, false);
+			return tenantDataSourceRegistry.getDataSource(tenant);
+		}
+		RoutingSnapshot snapshot = dBContextHolder.getRoutingSnapshot();
+		if (isReadOnly()) {
+			DataSource replica = readReplicaRouter.getReadDataSource(snapshot.getLookupKey());
+			if (replica != null) {
+				RequestDbTimings.routedTo(snapshot.getLookupKey(), true);
+				ReadOnlyContextHolder.replicaRouted();
+				return replica;
+			}
+		}
+		RequestDbTimings.routedTo(snapshot.getLookupKey(), false);
+		return snapshot.getDataSource();
+	}
+
+	private static boolean isReadOnly() {
+		return ReadOnlyContextHolder.isReadOnly() || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+	}
+
+	/*
+	 * Requests following the globally active key always take part in a
+	 * migration, tenant-routed ones only if their tenant is being migrated.
+	 */
+	private void awaitMigrationGate() {
+		migrationGate.awaitPassage(TenantContextHolder.getTenant());
+	}
+}
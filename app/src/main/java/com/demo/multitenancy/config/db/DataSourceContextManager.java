@@ -0,0 +1,97 @@
+package com.demo.multitenancy.config.db;
+
+import java.util.Objects;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import com.demo.multitenancy.exception.DataSourceRoutingException;
+
+@Component
+public class DataSourceContextManager {
+
+	private static final Logger LOG = LoggerFactory.getLogger(DataSourceContextManager.class);
+	private static final String FALLBACK_LOOKUP_KEY = "primary";
+
+	@Value("${app.datasource.default-lookup-key:primary}")
+	private String defaultLookupKey;
+
+	@Autowired
+	private TenantDataSourceRegistry tenantDataSourceRegistry;
+
+	private volatile RoutingSnapshot routingSnapshot;
+
+	@PostConstruct
+	public void init() {
+		if (StringUtils.hasText(defaultLookupKey)) {
+			if (tenantDataSourceRegistry.contains(defaultLookupKey)) {
+				setDefaultLookupKey(TenantDataSourceRegistry.normalize(defaultLookupKey));
+			} else {
+				setDefaultLookupKey(FALLBACK_LOOKUP_KEY);
+				LOG.warn(
+						"Provided value for app.datasource.default-lookup-key property was incorrect. Falling back to default lookup key which is {}.",
+						getDefaultLookpKey());
+			}
+		} else {
+			setDefaultLookupKey(FALLBACK_LOOKUP_KEY);
+			LOG.warn(
+					"app.datasource.default-lookup-key property not being set. Falling back to default lookup key which is {}.",
+					getDefaultLookpKey());
+		}
+		setActiveDataSource(getDefaultLookpKey());
+		LOG.info("Currently active datasource lookup key: {}", getCurrentlyActiveLookpKey());
+	}
+
+	/*
+	 * Opens the tenant pool if needed and publishes a new routing snapshot
+	 * pointing at it.
+	 */
+	public synchronized void setActiveDataSource(String lookupKey) {
+		String key = TenantDataSourceRegistry.normalize(lookupKey);
+		if(Objects.isNull(key)) {
+			throw new DataSourceRoutingException("DataSource lookup key cannot be empty.");
+		}
+		LeaseTrackingDataSource dataSource = tenantDataSourceRegistry.getDataSource(key);
+		tenantDataSourceRegistry.setActiveLookupKey(key);
+		this.routingSnapshot = new RoutingSnapshot(key, dataSource);
+	}
+
+	public RoutingSnapshot getRoutingSnapshot() {
+		return routingSnapshot;
+	}
+
+	public LeaseTrackingDataSource getActiveDataSource() {
+		return (LeaseTrackingDataSource) routingSnapshot.getDataSource();
+	}
+
+	public String getCurrentlyActiveLookpKey() {
+		return routingSnapshot.getLookupKey();
+	}
+
+	/*
+	 * Lookup key the current thread is routed to: the request tenant if one is
+	 * bound, the globally active key otherwise.
+	 */
+	public String getEffectiveLookupKey() {
+		String tenant = TenantContextHolder.getTenant();
+		return tenant != null ? tenant : getCurrentlyActiveLookpKey();
+	}
+
+	public void setDefaultLookupKey(String defaultLookupKey) {
+		this.defaultLookupKey = defaultLookupKey;
+	}
+
+	public String getDefaultLookpKey() {
+		return defaultLookupKey;
+	}
+
+	public void resetBackToDefaultLookupKey() {
+		setActiveDataSource(this.defaultLookupKey);
+	}
+}
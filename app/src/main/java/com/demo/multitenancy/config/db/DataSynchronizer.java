@@ -0,0 +1,608 @@
+package com.demo.multitenancy.config.db;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import com.demo.multitenancy.event.DataSyncedEvent;
+import com.demo.multitenancy.exception.DataSourceRoutingException;
+import com.demo.multitenancy.model.Address;
+import com.demo.multitenancy.model.Student;
+import com.demo.multitenancy.util.Queries;
+
+/*
+ * Copies student and address rows from one tenant pool into another in
+ * parallel chunks of student ids. A chunk carries its students together with
+ * their addresses and is written in a single transaction on the target,
+ * students first, so the foreign key holds without ordering the chunks. Each
+ * chunk replaces whatever the target has in its id range, which makes copying
+ * it twice harmless, and every full chunk is checkpointed in the target
+ * database so that an interrupted copy resumes where it stopped. Checkpoints
+ * belong to a sync id, e.g. one migration, and are not trusted by any other.
+ *
+ * reconcile finds the chunks that differ by a checksum over all their rows
+ * and is meant to run while the source still serves traffic. catchUp only
+ * compares row counts and id sums per chunk, which is cheap enough to run
+ * with writes held, and picks up the rows inserted or deleted in between.
+ *
+ * The target is expected to be empty or an earlier copy of the source; rows
+ * are copied with their ids and the identity columns are moved past them at
+ * the end of a reconcile pass.
+ */
+@Component
+public class DataSynchronizer {
+
+	private static final Logger LOG = LoggerFactory.getLogger(DataSynchronizer.class);
+
+	@Value("${app.datasource.data-sync.enabled:false}")
+	private volatile boolean enabled;
+
+	@Value("${app.datasource.data-sync.chunk-size:5000}")
+	private int chunkSize;
+
+	@Value("${app.datasource.data-sync.parallelism:2}")
+	private int parallelism;
+
+	@Autowired
+	private TenantDataSourceRegistry tenantDataSourceRegistry;
+
+	@Autowired
+	private DataSourceContextManager dataSourceContextManager;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	private final AtomicBoolean running = new AtomicBoolean();
+	private final AtomicInteger completedChunks = new AtomicInteger();
+	private final AtomicInteger skippedChunks = new AtomicInteger();
+	private final LongAdder copiedStudents = new LongAdder();
+	private final LongAdder copiedAddresses = new LongAdder();
+
+	private volatile String lastPass = "none";
+	private volatile int totalChunks;
+	private volatile long passStartNanos;
+	private volatile long passEndNanos;
+	private volatile String lastError;
+	private volatile boolean cancelled;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/*
+	 * Copies every chunk of the source that has no checkpoint in the target yet.
+	 * Writes committed to the source meanwhile may be missed; reconcile picks
+	 * them up.
+	 */
+	public void copy(String sourceKey, String targetKey, String syncId) {
+		run("copy", sourceKey, targetKey, syncId, this::copyPass);
+	}
+
+	private void copyPass(String sourceKey, String syncId, LeaseTrackingDataSource source,
+			LeaseTrackingDataSource target) {
+		createCheckpointTable(target);
+		long[] range = studentIdRange(source);
+		Set<Long> checkpointed = checkpointedChunks(target, sourceKey, syncId);
+		List<Long> chunks = new ArrayList<>();
+		if (range[1] > 0) {
+			for (long chunk = chunkOf(range[0]); chunk <= chunkOf(range[1]); chunk++) {
+				chunks.add(chunk);
+			}
+		}
+		totalChunks = chunks.size();
+		int before = chunks.size();
+		chunks.removeIf(checkpointed::contains);
+		skippedChunks.set(before - chunks.size());
+		LOG.info("Copying {} chunks of {} student ids from '{}' to pool '{}', {} already checkpointed.",
+				chunks.size(), chunkSize, sourceKey, target.getPoolName(), skippedChunks.get());
+		copyChunks(source, target, sourceKey, syncId, chunks, range[1]);
+	}
+
+	/*
+	 * Compares a checksum over the rows of every chunk on both sides and copies
+	 * the chunks that differ, then moves the identity columns of the target
+	 * past the copied ids. Reads both sides in full, so it runs before writes
+	 * are held; catchUp then covers the writes committed since.
+	 */
+	public void reconcile(String sourceKey, String targetKey, String syncId) {
+		run("reconcile", sourceKey, targetKey, syncId, this::reconcilePass);
+		eventPublisher.publishEvent(new DataSyncedEvent(this, TenantDataSourceRegistry.normalize(sourceKey),
+				TenantDataSourceRegistry.normalize(targetKey)));
+	}
+
+	private void reconcilePass(String sourceKey, String syncId, LeaseTrackingDataSource source,
+			LeaseTrackingDataSource target) {
+		createCheckpointTable(target);
+		long[] range = studentIdRange(source);
+		Set<Long> chunks = new TreeSet<>();
+		collectDifferences(chunkChecksums(source), chunkChecksums(target), chunks);
+		totalChunks = chunks.size();
+		LOG.info("Reconciling {} differing chunks of '{}' into pool '{}'.", chunks.size(), sourceKey,
+				target.getPoolName());
+		copyChunks(source, target, sourceKey, syncId, new ArrayList<>(chunks), range[1]);
+		restartIdentities(target);
+	}
+
+	/*
+	 * Copies the chunks whose row count or id sum differs, i.e. those that got
+	 * rows inserted or deleted since reconcile, and then drops the checkpoints
+	 * of the sync id. Run while no writes reach the source to end up with an
+	 * exact copy.
+	 */
+	public void catchUp(String sourceKey, String targetKey, String syncId) {
+		run("catch-up", sourceKey, targetKey, syncId, this::catchUpPass);
+		eventPublisher.publishEvent(new DataSyncedEvent(this, TenantDataSourceRegistry.normalize(sourceKey),
+				TenantDataSourceRegistry.normalize(targetKey)));
+	}
+
+	private void catchUpPass(String sourceKey, String syncId, LeaseTrackingDataSource source,
+			LeaseTrackingDataSource target) {
+		createCheckpointTable(target);
+		long[] range = studentIdRange(source);
+		Set<Long> chunks = new TreeSet<>();
+		collectDifferences(chunkCounts(source, Queries.SYNC_COUNT_STUDENT_CHUNKS),
+				chunkCounts(target, Queries.SYNC_COUNT_STUDENT_CHUNKS), chunks);
+		collectDifferences(chunkCounts(source, Queries.SYNC_COUNT_ADDRESS_CHUNKS),
+				chunkCounts(target, Queries.SYNC_COUNT_ADDRESS_CHUNKS), chunks);
+		totalChunks = chunks.size();
+		LOG.info("Catching up {} changed chunks of '{}' in pool '{}'.", chunks.size(), sourceKey,
+				target.getPoolName());
+		copyChunks(source, target, sourceKey, syncId, new ArrayList<>(chunks), range[1]);
+		restartIdentities(target);
+		inTransaction(target, connection -> {
+			try (PreparedStatement ps = connection.prepareStatement(Queries.SYNC_CLEAR_SYNC_CHECKPOINTS)) {
+				ps.setString(1, sourceKey);
+				ps.setString(2, syncId);
+				ps.executeUpdate();
+			}
+		});
+	}
+
+	public void clearCheckpoints(String sourceKey, String targetKey) {
+		LeaseTrackingDataSource target = tenantDataSourceRegistry.getDataSource(targetKey);
+		inTransaction(target, connection -> {
+			try (Statement statement = connection.createStatement()) {
+				statement.execute(Queries.SYNC_CREATE_CHECKPOINT);
+			}
+			try (PreparedStatement ps = connection.prepareStatement(Queries.SYNC_CLEAR_CHECKPOINTS)) {
+				ps.setString(1, TenantDataSourceRegistry.normalize(sourceKey));
+				ps.executeUpdate();
+			}
+		});
+	}
+
+	private void run(String pass, String sourceLookupKey, String targetLookupKey, String syncId,
+			SyncPass syncPass) {
+		String sourceKey = TenantDataSourceRegistry.normalize(sourceLookupKey);
+		String targetKey = TenantDataSourceRegistry.normalize(targetLookupKey);
+		if (Objects.equals(sourceKey, targetKey)) {
+			throw new DataSourceRoutingException("Source and target of a data sync must differ.");
+		}
+		if (Objects.isNull(syncId) || syncId.isBlank()) {
+			throw new DataSourceRoutingException("A data sync needs a sync id.");
+		}
+		/*
+		 * Chunks replace the rows of the target, which would drop whatever the
+		 * active datasource got written since.
+		 */
+		if (dataSourceContextManager.getCurrentlyActiveLookpKey().equalsIgnoreCase(targetKey)) {
+			throw new DataSourceRoutingException("The active datasource cannot be the target of a data sync.");
+		}
+		if (!running.compareAndSet(false, true)) {
+			throw new DataSourceRoutingException("A data sync is already running.");
+		}
+		try {
+			lastPass = pass + " " + sourceKey + " -> " + targetKey + " (" + syncId + ")";
+			lastError = null;
+			cancelled = false;
+			totalChunks = 0;
+			completedChunks.set(0);
+			skippedChunks.set(0);
+			copiedStudents.reset();
+			copiedAddresses.reset();
+			passEndNanos = 0;
+			passStartNanos = System.nanoTime();
+			syncPass.run(sourceKey, syncId, tenantDataSourceRegistry.getDataSource(sourceKey),
+					tenantDataSourceRegistry.getDataSource(targetKey));
+			LOG.info("Data sync pass '{}' copied {} students and {} addresses in {} ms.", lastPass,
+					copiedStudents.sum(), copiedAddresses.sum(), getElapsedMillis());
+		} catch (RuntimeException e) {
+			lastError = e.getMessage();
+			LOG.error("Data sync pass '{}' failed. Error - {}", lastPass, e.getMessage());
+			throw e;
+		} finally {
+			passEndNanos = System.nanoTime();
+			running.set(false);
+		}
+	}
+
+	private void copyChunks(LeaseTrackingDataSource source, LeaseTrackingDataSource target, String sourceKey,
+			String syncId, List<Long> chunks, long maxStudentId) {
+		if (chunks.isEmpty()) {
+			return;
+		}
+		AtomicBoolean failed = new AtomicBoolean();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, chunks.size())),
+				new CustomizableThreadFactory("data-sync-"));
+		try {
+			List<CompletableFuture<Void>> futures = new ArrayList<>(chunks.size());
+			for (Long chunk : chunks) {
+				futures.add(CompletableFuture.runAsync(() -> {
+					if (failed.get() || cancelled) {
+						return;
+					}
+					try {
+						copyChunk(source, target, sourceKey, syncId, chunk, maxStudentId);
+						completedChunks.incrementAndGet();
+					} catch (RuntimeException e) {
+						failed.set(true);
+						throw e;
+					}
+				}, executor));
+			}
+			CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+			if (cancelled) {
+				throw new DataSourceRoutingException("Data sync cancelled after " + completedChunks.get() + " chunks.");
+			}
+		} catch (CompletionException e) {
+			Throwable cause = Objects.nonNull(e.getCause()) ? e.getCause() : e;
+			throw new DataSourceRoutingException("Data sync failed - " + cause.getMessage());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/*
+	 * Addresses are read after the students, so an address whose student
+	 * committed in between is left for the next pass instead of breaking the
+	 * foreign key on the target.
+	 */
+	private void copyChunk(LeaseTrackingDataSource source, LeaseTrackingDataSource target, String sourceKey,
+			String syncId, long chunk, long maxStudentId) {
+		long first = chunk * chunkSize + 1;
+		long last = first + chunkSize - 1;
+		List<Student> students = new ArrayList<>();
+		List<Address> addresses = new ArrayList<>();
+		inTransaction(source, connection -> {
+			Set<Long> studentIds = new HashSet<>();
+			try (PreparedStatement ps = connection.prepareStatement(Queries.SYNC_SELECT_STUDENTS)) {
+				ps.setLong(1, first);
+				ps.setLong(2, last);
+				try (ResultSet rs = ps.executeQuery()) {
+					while (rs.next()) {
+						Student student = new Student();
+						student.setId(rs.getLong(1));
+						student.setName(rs.getString(2));
+						students.add(student);
+						studentIds.add(student.getId());
+					}
+				}
+			}
+			try (PreparedStatement ps = connection.prepareStatement(Queries.SYNC_SELECT_ADDRESSES)) {
+				ps.setLong(1, first);
+				ps.setLong(2, last);
+				try (ResultSet rs = ps.executeQuery()) {
+					while (rs.next()) {
+						Address address = new Address();
+						address.setId(rs.getLong(1));
+						address.setStudentId(rs.getLong(2));
+						address.setAddress(rs.getString(3));
+						if (studentIds.contains(address.getStudentId())) {
+							addresses.add(address);
+						}
+					}
+				}
+			}
+		});
+		inTransaction(target, connection -> {
+			executeRangeUpdate(connection, Queries.SYNC_DELETE_ADDRESSES, first, last);
+			executeRangeUpdate(connection, Queries.SYNC_DELETE_STUDENTS, first, last);
+			try (PreparedStatement ps = connection.prepareStatement(Queries.SYNC_INSERT_STUDENT)) {
+				for (Student student : students) {
+					ps.setLong(1, student.getId());
+					ps.setString(2, student.getName());
+					ps.addBatch();
+				}
+				ps.executeBatch();
+			}
+			try (PreparedStatement ps = connection.prepareStatement(Queries.SYNC_INSERT_ADDRESS)) {
+				for (Address address : addresses) {
+					ps.setLong(1, address.getId());
+					ps.setLong(2, address.getStudentId());
+					ps.setString(3, address.getAddress());
+					ps.addBatch();
+				}
+				ps.executeBatch();
+			}
+			/*
+			 * Only a chunk wholly below the highest source id is final; the last
+			 * one may still grow and is copied again by the next pass.
+			 */
+			if (last <= maxStudentId) {
+				try (PreparedStatement ps = connection.prepareStatement(Queries.SYNC_DELETE_CHECKPOINT)) {
+					ps.setString(1, sourceKey);
+					ps.setString(2, syncId);
+					ps.setLong(3, first);
+					ps.executeUpdate();
+				}
+				try (PreparedStatement ps = connection.prepareStatement(Queries.SYNC_INSERT_CHECKPOINT)) {
+					ps.setString(1, sourceKey);
+					ps.setString(2, syncId);
+					ps.setLong(3, first);
+					ps.setLong(4, last);
+					ps.setLong(5, students.size());
+					ps.setLong(6, addresses.size());
+					ps.executeUpdate();
+				}
+			}
+		});
+		copiedStudents.add(students.size());
+		copiedAddresses.add(addresses.size());
+	}
+
+	private static void executeRangeUpdate(Connection connection, String query, long first, long last)
+			throws SQLException {
+		try (PreparedStatement ps = connection.prepareStatement(query)) {
+			ps.setLong(1, first);
+			ps.setLong(2, last);
+			ps.executeUpdate();
+		}
+	}
+
+	private long chunkOf(long studentId) {
+		return (studentId - 1) / chunkSize;
+	}
+
+	private static long[] studentIdRange(LeaseTrackingDataSource dataSource) {
+		long[] range = new long[2];
+		inTransaction(dataSource, connection -> {
+			try (Statement statement = connection.createStatement();
+					ResultSet rs = statement.executeQuery(Queries.SYNC_STUDENT_ID_RANGE)) {
+				if (rs.next()) {
+					range[0] = rs.getLong(1);
+					range[1] = rs.getLong(2);
+				}
+			}
+		});
+		return range;
+	}
+
+	/*
+	 * Row count and id sum per chunk.
+	 */
+	private Map<Long, List<Long>> chunkCounts(LeaseTrackingDataSource dataSource, String query) {
+		Map<Long, List<Long>> counts = new HashMap<>();
+		inTransaction(dataSource, connection -> {
+			try (PreparedStatement ps = connection.prepareStatement(query)) {
+				ps.setLong(1, chunkSize);
+				try (ResultSet rs = ps.executeQuery()) {
+					while (rs.next()) {
+						counts.put(rs.getLong(1), Arrays.asList(rs.getLong(2), rs.getLong(3)));
+					}
+				}
+			}
+		});
+		return counts;
+	}
+
+	/*
+	 * CRC32 over every student and address row of a chunk, in id order. Rows
+	 * are streamed with the chunk size as fetch size, so only the checksums
+	 * are held in memory.
+	 */
+	private Map<Long, Long> chunkChecksums(LeaseTrackingDataSource dataSource) {
+		Map<Long, CRC32> checksums = new HashMap<>();
+		inTransaction(dataSource, connection -> {
+			try (PreparedStatement ps = connection.prepareStatement(Queries.SYNC_CHECKSUM_STUDENTS)) {
+				ps.setFetchSize(chunkSize);
+				try (ResultSet rs = ps.executeQuery()) {
+					while (rs.next()) {
+						long id = rs.getLong(1);
+						checksum(checksums, chunkOf(id), "s", id, rs.getString(2));
+					}
+				}
+			}
+			try (PreparedStatement ps = connection.prepareStatement(Queries.SYNC_CHECKSUM_ADDRESSES)) {
+				ps.setFetchSize(chunkSize);
+				try (ResultSet rs = ps.executeQuery()) {
+					while (rs.next()) {
+						long sid = rs.getLong(2);
+						checksum(checksums, chunkOf(sid), "a", rs.getLong(1), sid, rs.getString(3));
+					}
+				}
+			}
+		});
+		Map<Long, Long> values = new HashMap<>();
+		checksums.forEach((chunk, checksum) -> values.put(chunk, checksum.getValue()));
+		return values;
+	}
+
+	private static void checksum(Map<Long, CRC32> checksums, long chunk, Object... columns) {
+		CRC32 checksum = checksums.computeIfAbsent(chunk, key -> new CRC32());
+		for (Object column : columns) {
+			checksum.update(String.valueOf(column).getBytes(StandardCharsets.UTF_8));
+			checksum.update(0);
+		}
+	}
+
+	private static <V> void collectDifferences(Map<Long, V> source, Map<Long, V> target, Set<Long> chunks) {
+		for (Map.Entry<Long, V> entry : source.entrySet()) {
+			if (!entry.getValue().equals(target.get(entry.getKey()))) {
+				chunks.add(entry.getKey());
+			}
+		}
+		for (Long chunk : target.keySet()) {
+			if (!source.containsKey(chunk)) {
+				chunks.add(chunk);
+			}
+		}
+	}
+
+	private Set<Long> checkpointedChunks(LeaseTrackingDataSource target, String sourceKey, String syncId) {
+		Set<Long> chunks = new HashSet<>();
+		inTransaction(target, connection -> {
+			try (PreparedStatement ps = connection.prepareStatement(Queries.SYNC_SELECT_CHECKPOINTS)) {
+				ps.setString(1, sourceKey);
+				ps.setString(2, syncId);
+				ps.setLong(3, chunkSize);
+				try (ResultSet rs = ps.executeQuery()) {
+					while (rs.next()) {
+						long first = rs.getLong(1);
+						if ((first - 1) % chunkSize == 0) {
+							chunks.add(chunkOf(first));
+						}
+					}
+				}
+			}
+		});
+		return chunks;
+	}
+
+	private static void createCheckpointTable(LeaseTrackingDataSource target) {
+		inTransaction(target, connection -> {
+			try (Statement statement = connection.createStatement()) {
+				statement.execute(Queries.SYNC_CREATE_CHECKPOINT);
+			}
+		});
+	}
+
+	static void restartIdentities(LeaseTrackingDataSource target) {
+		inTransaction(target, connection -> {
+			try (Statement statement = connection.createStatement()) {
+				long studentId;
+				long addressId;
+				try (ResultSet rs = statement.executeQuery(Queries.SYNC_STUDENT_ID_RANGE)) {
+					studentId = rs.next() ? rs.getLong(2) : 0;
+				}
+				try (ResultSet rs = statement.executeQuery(Queries.SYNC_MAX_ADDRESS_ID)) {
+					addressId = rs.next() ? rs.getLong(1) : 0;
+				}
+				statement.execute(Queries.SYNC_RESTART_STUDENT_ID.replace("_VALUE_", String.valueOf(studentId + 1)));
+				statement.execute(Queries.SYNC_RESTART_ADDRESS_ID.replace("_VALUE_", String.valueOf(addressId + 1)));
+			}
+		});
+	}
+
+	private static void inTransaction(LeaseTrackingDataSource dataSource, ConnectionWork work) {
+		try (Connection connection = dataSource.getConnection()) {
+			boolean autoCommit = connection.getAutoCommit();
+			connection.setAutoCommit(false);
+			try {
+				work.run(connection);
+				connection.commit();
+			} catch (SQLException | RuntimeException e) {
+				connection.rollback();
+				throw e;
+			} finally {
+				connection.setAutoCommit(autoCommit);
+			}
+		} catch (SQLException e) {
+			throw new DataSourceRoutingException("Data sync on '" + dataSource.getPoolName() + "' failed - "
+					+ e.getMessage());
+		}
+	}
+
+	/*
+	 * Stops the running pass once the chunks in flight are written. The
+	 * checkpoints let a later copy resume from there.
+	 */
+	public void cancel() {
+		if (running.get()) {
+			cancelled = true;
+		}
+	}
+
+	public boolean isRunning() {
+		return running.get();
+	}
+
+	public String getLastPass() {
+		return lastPass;
+	}
+
+	public int getTotalChunks() {
+		return totalChunks;
+	}
+
+	public int getCompletedChunks() {
+		return completedChunks.get();
+	}
+
+	public int getSkippedChunks() {
+		return skippedChunks.get();
+	}
+
+	public long getCopiedStudents() {
+		return copiedStudents.sum();
+	}
+
+	public long getCopiedAddresses() {
+		return copiedAddresses.sum();
+	}
+
+	public double getProgressPercent() {
+		int total = totalChunks;
+		return total == 0 ? (passStartNanos == 0 ? 0 : 100)
+				: 100.0 * (completedChunks.get() + skippedChunks.get()) / total;
+	}
+
+	public long getElapsedMillis() {
+		if (passStartNanos == 0) {
+			return 0;
+		}
+		long end = running.get() || passEndNanos == 0 ? System.nanoTime() : passEndNanos;
+		return TimeUnit.NANOSECONDS.toMillis(end - passStartNanos);
+	}
+
+	public long getRowsPerSecond() {
+		long elapsed = getElapsedMillis();
+		return elapsed == 0 ? 0 : (copiedStudents.sum() + copiedAddresses.sum()) * 1000 / elapsed;
+	}
+
+	public String getLastError() {
+		return lastError;
+	}
+
+	@FunctionalInterface
+	private interface SyncPass {
+		void run(String sourceKey, String syncId, LeaseTrackingDataSource source, LeaseTrackingDataSource target);
+	}
+
+	@FunctionalInterface
+	private interface ConnectionWork {
+		void run(Connection connection) throws SQLException;
+	}
+}
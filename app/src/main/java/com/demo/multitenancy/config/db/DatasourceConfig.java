@@ -0,0 +1,75 @@
+package com.demo.multitenancy.config.db;
+
+import java.sql.Connection;
+import java.util.Collections;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.demo.multitenancy.metrics.LatencyMetrics;
+import com.demo.multitenancy.metrics.TimedJdbcTemplate;
+import com.zaxxer.hikari.HikariConfig;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.datasource")
+@PropertySource({ "classpath:dbcp-config.properties" })
+public class DatasourceConfig {
+
+	private Map<String, DbConfigProperties> config;
+
+	public Map<String, DbConfigProperties> getConfig() {
+		return config;
+	}
+
+	public void setConfig(Map<String, DbConfigProperties> config) {
+		this.config = config;
+	}
+
+	/*
+	 * Template for every tenant pool created by the TenantDataSourceRegistry.
+	 */
+	@ConfigurationProperties(prefix = "app.datasource")
+	@Bean
+	public HikariConfig hikariConfig() {
+		return new HikariConfig();
+	}
+
+	@Bean
+	public CustomRoutingDatasource routingDataSource() {
+		CustomRoutingDatasource customRoutingDatasource = new CustomRoutingDatasource();
+		customRoutingDatasource.setTargetDataSources(Collections.emptyMap());
+		return customRoutingDatasource;
+	}
+
+	/*
+	 * Defers the physical connection to the first statement, when the read-only
+	 * flag of the surrounding transaction is known. The defaults are set here so
+	 * that no connection is taken at startup to detect them.
+	 */
+	@Bean
+	@Primary
+	public DataSource dataSource(CustomRoutingDatasource routingDataSource, HikariConfig hikariConfig) {
+		LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy();
+		dataSource.setTargetDataSource(routingDataSource);
+		dataSource.setDefaultAutoCommit(hikariConfig.isAutoCommit());
+		dataSource.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+		return dataSource;
+	}
+
+	/*
+	 * Takes the place of Boot's JdbcTemplate, so that statements are timed per
+	 * Queries constant without proxying every statement.
+	 */
+	@Bean
+	public JdbcTemplate jdbcTemplate(DataSource dataSource, LatencyMetrics latencyMetrics) {
+		return new TimedJdbcTemplate(dataSource, latencyMetrics);
+	}
+}
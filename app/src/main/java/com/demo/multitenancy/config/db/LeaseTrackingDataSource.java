@@ -0,0 +1,237 @@
+package com.demo.multitenancy.config.db;
+
+import java.io.Closeable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import com.demo.multitenancy.metrics.LatencyHistogram;
+import com.demo.multitenancy.metrics.LatencyMetrics;
+import com.demo.multitenancy.metrics.RequestDbTimings;
+import com.zaxxer.hikari.HikariDataSource;
+
+/*
+ * Wraps a Hikari pool and counts the connections currently leased out of it.
+ * Drain waiters get notified as soon as the last lease is closed and no
+ * connection is being acquired any more, so nobody has to poll the pool MXBean
+ * for active connections. The time spent waiting for the pool is summed up as
+ * well and, given LatencyMetrics, recorded per pool. It also adds to the
+ * RequestDbTimings of the current request. A retired instance hands out no
+ * more connections of its own and passes callers on to its successor.
+ */
+public class LeaseTrackingDataSource extends DelegatingDataSource implements Closeable {
+
+	private final AtomicInteger openLeases = new AtomicInteger();
+	private final AtomicInteger pendingAcquires = new AtomicInteger();
+	private final Queue<CompletableFuture<Boolean>> drainWaiters = new ConcurrentLinkedQueue<>();
+	private final LongAdder acquisitions = new LongAdder();
+	private final LongAdder acquireNanos = new LongAdder();
+	private final LatencyHistogram acquireHistogram;
+	private volatile Supplier<? extends DataSource> successor;
+
+	public LeaseTrackingDataSource(HikariDataSource hikariDataSource) {
+		this(hikariDataSource, null);
+	}
+
+	public LeaseTrackingDataSource(HikariDataSource hikariDataSource, LatencyMetrics latencyMetrics) {
+		super(hikariDataSource);
+		this.acquireHistogram = latencyMetrics != null ? latencyMetrics.connectionAcquire(hikariDataSource.getPoolName())
+				: null;
+	}
+
+	public HikariDataSource getHikariDataSource() {
+		return (HikariDataSource) obtainTargetDataSource();
+	}
+
+	public String getPoolName() {
+		return getHikariDataSource().getPoolName();
+	}
+
+	public int getOpenLeases() {
+		return openLeases.get();
+	}
+
+	public long getAcquisitions() {
+		return acquisitions.sum();
+	}
+
+	public long getAcquireNanos() {
+		return acquireNanos.sum();
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		pendingAcquires.incrementAndGet();
+		try {
+			Supplier<? extends DataSource> next = successor;
+			if (next != null) {
+				return next.get().getConnection();
+			}
+			long start = System.nanoTime();
+			Connection connection = obtainTargetDataSource().getConnection();
+			recordAcquire(start);
+			return lease(connection);
+		} finally {
+			if (pendingAcquires.decrementAndGet() == 0 && openLeases.get() == 0) {
+				notifyDrained();
+			}
+		}
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		pendingAcquires.incrementAndGet();
+		try {
+			Supplier<? extends DataSource> next = successor;
+			if (next != null) {
+				return next.get().getConnection(username, password);
+			}
+			long start = System.nanoTime();
+			Connection connection = obtainTargetDataSource().getConnection(username, password);
+			recordAcquire(start);
+			return lease(connection);
+		} finally {
+			if (pendingAcquires.decrementAndGet() == 0 && openLeases.get() == 0) {
+				notifyDrained();
+			}
+		}
+	}
+
+	/*
+	 * Retires this instance if no lease is open or being acquired, so the pool
+	 * can be closed without failing anyone who still holds on to it: they get
+	 * their connections from the successor instead. Returns false, and stays
+	 * in service, if a lease got in first.
+	 */
+	public boolean retire(Supplier<? extends DataSource> successor) {
+		this.successor = successor;
+		if (pendingAcquires.get() > 0 || openLeases.get() > 0) {
+			this.successor = null;
+			return false;
+		}
+		return true;
+	}
+
+	public boolean isRetired() {
+		return successor != null;
+	}
+
+	/*
+	 * Completes with true once there are no open leases and no connection is
+	 * being acquired, or with false if the timeout (scheduled on the given
+	 * scheduler) fires first. A lease is counted before its acquisition ends,
+	 * so a connection that is just being handed out is never missed.
+	 */
+	public CompletableFuture<Boolean> whenDrained(ScheduledExecutorService scheduler, long timeout, TimeUnit unit) {
+		CompletableFuture<Boolean> waiter = new CompletableFuture<>();
+		drainWaiters.add(waiter);
+		if (pendingAcquires.get() == 0 && openLeases.get() == 0) {
+			drainWaiters.remove(waiter);
+			waiter.complete(true);
+			return waiter;
+		}
+		ScheduledFuture<?> timeoutTask = scheduler.schedule(() -> waiter.complete(false), timeout, unit);
+		waiter.whenComplete((drained, error) -> {
+			timeoutTask.cancel(false);
+			drainWaiters.remove(waiter);
+		});
+		return waiter;
+	}
+
+	@Override
+	public void close() {
+		getHikariDataSource().close();
+	}
+
+	private void recordAcquire(long startNanos) {
+		long nanos = System.nanoTime() - startNanos;
+		acquireNanos.add(nanos);
+		acquisitions.increment();
+		if (acquireHistogram != null) {
+			acquireHistogram.record(nanos);
+		}
+		RequestDbTimings.connectionAcquired(nanos);
+	}
+
+	private Connection lease(Connection connection) {
+		openLeases.incrementAndGet();
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+				new LeaseHandler(connection));
+	}
+
+	private void release() {
+		if (openLeases.decrementAndGet() == 0 && pendingAcquires.get() == 0) {
+			notifyDrained();
+		}
+	}
+
+	/*
+	 * Both counters are decremented before the other one is read, so of a
+	 * release and an acquisition ending at the same time at least one sees
+	 * the pool drained.
+	 */
+	private void notifyDrained() {
+		CompletableFuture<Boolean> waiter;
+		while ((waiter = drainWaiters.poll()) != null) {
+			waiter.complete(true);
+		}
+	}
+
+	private class LeaseHandler implements InvocationHandler {
+
+		private final Connection target;
+		private final AtomicBoolean released = new AtomicBoolean();
+
+		LeaseHandler(Connection target) {
+			this.target = target;
+		}
+
+		/*
+		 * Statements are handed out as they are; only the lease itself is
+		 * proxied. Equality is that of the proxy, as with Spring's connection
+		 * proxies.
+		 */
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			if ("equals".equals(method.getName())) {
+				return proxy == args[0];
+			}
+			if ("hashCode".equals(method.getName())) {
+				return System.identityHashCode(proxy);
+			}
+			if ("close".equals(method.getName())) {
+				try {
+					return method.invoke(target, args);
+				} catch (InvocationTargetException e) {
+					throw e.getTargetException();
+				} finally {
+					if (released.compareAndSet(false, true)) {
+						release();
+					}
+				}
+			}
+			try {
+				return method.invoke(target, args);
+			} catch (InvocationTargetException e) {
+				throw e.getTargetException();
+			}
+		}
+	}
+}
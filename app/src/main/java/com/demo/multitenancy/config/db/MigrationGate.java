@@ -0,0 +1,205 @@
+package com.demo.multitenancy.config.db;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.demo.multitenancy.exception.DataSourceRoutingException;
+
+/*
+ * Holds new getConnection() calls while a migration switches pools and
+ * releases them all at once to the newly active pool. Requests routed to a
+ * tenant are only held if that tenant takes part in the migration, since its
+ * pool may be suspended. Park latencies are recorded per migration.
+ */
+@Component
+public class MigrationGate {
+
+	private static final Logger LOG = LoggerFactory.getLogger(MigrationGate.class);
+	private static final int MAX_SAMPLES = 1 << 16;
+
+	@Value("${app.datasource.migration-gate.max-park-millis:-1}")
+	private long maxParkMillis;
+
+	@Value("${app.datasource.migration-gate.switch-margin-millis:5000}")
+	private long switchMarginMillis;
+
+	@Value("${app.datasource.active-connections.timeout}")
+	private long drainTimeoutSeconds;
+
+	@Value("${app.datasource.migration-gate.fast-fail:false}")
+	private boolean fastFail;
+
+	private volatile CountDownLatch latch;
+	private volatile Set<String> migratingKeys = Collections.emptySet();
+	private volatile long closedAtNanos;
+
+	private final AtomicLongArray parkSamples = new AtomicLongArray(MAX_SAMPLES);
+	private final AtomicInteger parkSampleCount = new AtomicInteger();
+	private final LongAdder rejected = new LongAdder();
+
+	private volatile long lastP50ParkMillis;
+	private volatile long lastP99ParkMillis;
+	private volatile long lastMaxParkMillis;
+	private volatile int lastParkedRequests;
+	private volatile long lastRejectedRequests;
+
+	/*
+	 * The gate stays closed while the previous pool drains, so by default a
+	 * request may be parked for the whole drain timeout plus the time the
+	 * switch itself takes.
+	 */
+	@PostConstruct
+	public void init() {
+		if (maxParkMillis < 0) {
+			maxParkMillis = TimeUnit.SECONDS.toMillis(drainTimeoutSeconds) + switchMarginMillis;
+		}
+	}
+
+	public long getMaxParkMillis() {
+		return maxParkMillis;
+	}
+
+	public synchronized void close(String... lookupKeys) {
+		if (latch == null) {
+			migratingKeys = Stream.of(lookupKeys).map(TenantDataSourceRegistry::normalize)
+					.filter(key -> key != null).collect(Collectors.toUnmodifiableSet());
+			parkSampleCount.set(0);
+			rejected.reset();
+			closedAtNanos = System.nanoTime();
+			latch = new CountDownLatch(1);
+			LOG.info("Migration gate closed. New connection requests will be parked for up to {} ms.", maxParkMillis);
+		}
+	}
+
+	public synchronized void open() {
+		CountDownLatch current = latch;
+		if (current != null) {
+			long openedAtNanos = System.nanoTime();
+			latch = null;
+			migratingKeys = Collections.emptySet();
+			current.countDown();
+			publishStatistics(openedAtNanos);
+			LOG.info("Migration gate opened. Parked = {}, Rejected = {}, p50 = {} ms, p99 = {} ms, max = {} ms",
+					lastParkedRequests, lastRejectedRequests, lastP50ParkMillis, lastP99ParkMillis, lastMaxParkMillis);
+		}
+	}
+
+	/*
+	 * Parks a request routed to the given tenant only if the tenant is one of
+	 * the keys being migrated; a null tenant follows the active key and is
+	 * always subject to the gate.
+	 */
+	public void awaitPassage(String tenant) {
+		if (latch == null) {
+			return;
+		}
+		if (tenant == null || migratingKeys.contains(TenantDataSourceRegistry.normalize(tenant))) {
+			awaitPassage();
+		}
+	}
+
+	/*
+	 * Returns immediately while the gate is open, which is a single volatile
+	 * read on the hot path.
+	 */
+	public void awaitPassage() {
+		CountDownLatch current = latch;
+		if (current == null) {
+			return;
+		}
+		if (fastFail) {
+			rejected.increment();
+			throw new DataSourceRoutingException("DataSource migration in progress. Please retry.");
+		}
+		/*
+		 * The arrival offset is recorded up front so that the park latency can
+		 * be computed when the gate opens, without waiting for woken threads.
+		 */
+		int index = parkSampleCount.getAndIncrement();
+		if (index < MAX_SAMPLES) {
+			parkSamples.set(index, System.nanoTime() - closedAtNanos + 1);
+		}
+		boolean released;
+		try {
+			released = current.await(maxParkMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			released = false;
+		}
+		if (!released) {
+			if (index < MAX_SAMPLES) {
+				parkSamples.set(index, 0);
+			}
+			rejected.increment();
+			throw new DataSourceRoutingException(
+					"DataSource migration did not finish within " + maxParkMillis + " ms. Please retry.");
+		}
+	}
+
+	public boolean isClosed() {
+		return latch != null;
+	}
+
+	private void publishStatistics(long openedAtNanos) {
+		int recorded = Math.min(parkSampleCount.get(), MAX_SAMPLES);
+		long openOffset = openedAtNanos - closedAtNanos + 1;
+		long[] samples = new long[recorded];
+		int count = 0;
+		for (int i = 0; i < recorded; i++) {
+			long arrivalOffset = parkSamples.get(i);
+			if (arrivalOffset > 0) {
+				samples[count++] = Math.max(openOffset - arrivalOffset, 0);
+			}
+		}
+		samples = Arrays.copyOf(samples, count);
+		Arrays.sort(samples);
+		lastParkedRequests = count;
+		lastRejectedRequests = rejected.sum();
+		lastP50ParkMillis = percentileMillis(samples, 0.50);
+		lastP99ParkMillis = percentileMillis(samples, 0.99);
+		lastMaxParkMillis = count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(samples[count - 1]);
+	}
+
+	private static long percentileMillis(long[] sortedSamples, double percentile) {
+		if (sortedSamples.length == 0) {
+			return 0;
+		}
+		int index = (int) Math.ceil(percentile * sortedSamples.length) - 1;
+		return TimeUnit.NANOSECONDS.toMillis(sortedSamples[Math.max(index, 0)]);
+	}
+
+	public long getLastP50ParkMillis() {
+		return lastP50ParkMillis;
+	}
+
+	public long getLastP99ParkMillis() {
+		return lastP99ParkMillis;
+	}
+
+	public long getLastMaxParkMillis() {
+		return lastMaxParkMillis;
+	}
+
+	public int getLastParkedRequests() {
+		return lastParkedRequests;
+	}
+
+	public long getLastRejectedRequests() {
+		return lastRejectedRequests;
+	}
+}
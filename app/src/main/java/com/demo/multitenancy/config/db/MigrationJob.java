@@ -0,0 +1,190 @@
+package com.demo.multitenancy.config.db;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * One run of the MigrationOrchestrator. The state moves forward through the
+ * phases in declaration order, skipping the data sync ones when data sync is
+ * off and the cluster barrier for local migrations, and ends in one of the
+ * terminal states. The time spent in each phase
+ * is kept per job.
+ */
+public class MigrationJob {
+
+	public enum State {
+		PENDING(null, true),
+		RESUMING_TARGET("resume", true),
+		WARMING_UP("warmUp", true),
+		SYNCING_DATA("dataSync", true),
+		CATCHING_UP("dataSyncCatchUp", true),
+		SUSPENDING_SOURCE("suspend", true),
+		DRAINING_SOURCE("drain", true),
+		AWAITING_CLUSTER("clusterBarrier", true),
+		SWITCHING("switch", false),
+		RESUMING_SOURCE("resumePrevious", false),
+		SUCCEEDED(null, false),
+		FAILED(null, false),
+		CANCELLED(null, false);
+
+		private final String phaseName;
+		private final boolean cancellable;
+
+		State(String phaseName, boolean cancellable) {
+			this.phaseName = phaseName;
+			this.cancellable = cancellable;
+		}
+
+		/*
+		 * Name of the phase in LatencyMetrics, null for the states that are not
+		 * a phase of the migration.
+		 */
+		public String getPhaseName() {
+			return phaseName;
+		}
+
+		/*
+		 * Once the switch has started the migration can only be completed.
+		 */
+		public boolean isCancellable() {
+			return cancellable;
+		}
+
+		public boolean isTerminal() {
+			return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+		}
+	}
+
+	private final long id;
+	private final String lookupKey;
+	private final String sourceLookupKey;
+	private final Instant submittedAt = Instant.now();
+	private final long submittedAtNanos = System.nanoTime();
+	private final Map<String, Long> phaseMillis = Collections.synchronizedMap(new LinkedHashMap<>());
+	private final CompletableFuture<MigrationJob> completion = new CompletableFuture<>();
+
+	private volatile State state = State.PENDING;
+	private volatile long stateEnteredAtNanos = submittedAtNanos;
+	private volatile long finishedAtNanos;
+	private volatile String outcome;
+	private volatile boolean cancelRequested;
+	private volatile Thread worker;
+
+	MigrationJob(long id, String lookupKey, String sourceLookupKey) {
+		this.id = id;
+		this.lookupKey = lookupKey;
+		this.sourceLookupKey = sourceLookupKey;
+	}
+
+	/*
+	 * Records the time spent in the state that is left and returns it in
+	 * nanoseconds.
+	 */
+	long enter(State next) {
+		long now = System.nanoTime();
+		long nanos = now - stateEnteredAtNanos;
+		if (state.getPhaseName() != null) {
+			phaseMillis.put(state.getPhaseName(), TimeUnit.NANOSECONDS.toMillis(nanos));
+		}
+		state = next;
+		stateEnteredAtNanos = now;
+		return nanos;
+	}
+
+	long finish(State terminal, String outcome) {
+		long nanos = enter(terminal);
+		this.outcome = outcome;
+		finishedAtNanos = System.nanoTime();
+		worker = null;
+		completion.complete(this);
+		return nanos;
+	}
+
+	void requestCancel() {
+		cancelRequested = true;
+	}
+
+	boolean isCancelRequested() {
+		return cancelRequested;
+	}
+
+	void setWorker(Thread worker) {
+		this.worker = worker;
+	}
+
+	Thread getWorker() {
+		return worker;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	/*
+	 * Unlike the job id, which starts over with every process, unique across
+	 * restarts. Scopes the data sync checkpoints of the job.
+	 */
+	public String getMigrationId() {
+		return "migration-" + id + "-" + submittedAt.toEpochMilli();
+	}
+
+	public String getLookupKey() {
+		return lookupKey;
+	}
+
+	public String getSourceLookupKey() {
+		return sourceLookupKey;
+	}
+
+	public Instant getSubmittedAt() {
+		return submittedAt;
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	public boolean isDone() {
+		return state.isTerminal();
+	}
+
+	public long getElapsedMillis() {
+		long end = finishedAtNanos == 0 ? System.nanoTime() : finishedAtNanos;
+		return TimeUnit.NANOSECONDS.toMillis(end - submittedAtNanos);
+	}
+
+	/*
+	 * Time per phase in milliseconds, in the order the phases ran. The phase
+	 * currently running is included with the time spent in it so far.
+	 */
+	public Map<String, Long> getPhaseMillis() {
+		Map<String, Long> snapshot;
+		synchronized (phaseMillis) {
+			snapshot = new LinkedHashMap<>(phaseMillis);
+		}
+		State current = state;
+		if (current.getPhaseName() != null) {
+			snapshot.put(current.getPhaseName(),
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - stateEnteredAtNanos));
+		}
+		return snapshot;
+	}
+
+	public String getOutcome() {
+		return outcome;
+	}
+
+	public CompletableFuture<MigrationJob> getCompletion() {
+		return completion;
+	}
+
+	@Override
+	public String toString() {
+		return "Migration job " + id + " " + sourceLookupKey + " -> " + lookupKey + ": " + state + " after "
+				+ getElapsedMillis() + " ms, phases = " + getPhaseMillis() + (outcome != null ? ". " + outcome : "");
+	}
+}
@@ -0,0 +1,409 @@
+package com.demo.multitenancy.config.db;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import com.demo.multitenancy.config.EventConfig;
+import com.demo.multitenancy.config.db.MigrationJob.State;
+import com.demo.multitenancy.event.DataSourceMigratedEvent;
+import com.demo.multitenancy.exception.DataSourceRoutingException;
+import com.demo.multitenancy.metrics.LatencyMetrics;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+/*
+ * Runs datasource migrations as jobs on a dedicated thread, one at a time.
+ * A job is accepted and handed back right away; asking again for the
+ * migration that is running returns the same job, asking for another one is
+ * rejected until it is done.
+ *
+ * The requested pool is resumed and warmed up before anything is switched.
+ * New connection requests are then parked at the migration gate while the
+ * current pool drains, and released to whichever pool is active once the
+ * switch is over. The drained pool is resumed afterwards so that requests
+ * explicitly routed to that tenant keep working. With data sync on, the bulk
+ * of the rows is copied before the gate closes and only the chunks written
+ * meanwhile are copied again once the active pool has drained behind it.
+ *
+ * A job can be cancelled up to the switch. Whatever way it ends without
+ * switching, the previously active pool is resumed and the gate opened, so
+ * that the previous datasource keeps serving. Once routing has switched the
+ * job succeeds; listeners of the migrated event that fail, or a previous pool
+ * that cannot be resumed, only add warnings to its outcome.
+ */
+@Component
+public class MigrationOrchestrator {
+
+	private static final Logger LOG = LoggerFactory.getLogger(MigrationOrchestrator.class);
+
+	public static final String SUCCESS_MSG = "DataSource Migration Successful.";
+	private static final String GENERIC_FAILURE_MSG = "DataSource could not migrate. Same datasource is still active.";
+	private static final String CANCELLED_MSG = "DataSource migration cancelled. Same datasource is still active.";
+	private static final String NO_DATASOURCE_MSG = "DataSource could not migrate. \nCurrently active datasource get suspended but after that something went wrong.\nTried to resume back same datasource but get failed.\nCurrently no datasource is active.\nPlease restart the application.";
+
+	@Value("${app.datasource.active-connections.timeout}")
+	private Long timeout;
+
+	@Value("${app.datasource.migration.job-history-size:20}")
+	private int jobHistorySize;
+
+	@Autowired
+	private DataSourceContextManager dataSourceContextManager;
+
+	@Autowired
+	private TenantDataSourceRegistry tenantDataSourceRegistry;
+
+	@Autowired
+	private ConnectionDrainMonitor connectionDrainMonitor;
+
+	@Autowired
+	private MigrationGate migrationGate;
+
+	@Autowired
+	private PoolWarmer poolWarmer;
+
+	@Autowired
+	private DataSynchronizer dataSynchronizer;
+
+	@Autowired
+	private ShadowWriter shadowWriter;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Autowired
+	private LatencyMetrics latencyMetrics;
+
+	private final AtomicLong jobIds = new AtomicLong();
+	private ExecutorService executor;
+	private Map<Long, MigrationJob> jobs;
+	private MigrationJob currentJob;
+
+	@PostConstruct
+	public void init() {
+		executor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("migration-"));
+		jobs = new LinkedHashMap<Long, MigrationJob>() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, MigrationJob> eldest) {
+				return size() > jobHistorySize;
+			}
+		};
+	}
+
+	/*
+	 * Called on the migration thread once the previously active pool has
+	 * drained behind the closed gate, right before the switch. Throwing aborts
+	 * the migration like any other failed phase.
+	 */
+	@FunctionalInterface
+	public interface SwitchBarrier {
+		void await(MigrationJob job);
+	}
+
+	/*
+	 * Accepts a migration to the given tenant and returns its job, which runs
+	 * in the background.
+	 */
+	public MigrationJob start(String lookupKey) {
+		return start(lookupKey, null);
+	}
+
+	public synchronized MigrationJob start(String lookupKey, SwitchBarrier barrier) {
+		if (!StringUtils.hasText(lookupKey) || !tenantDataSourceRegistry.contains(lookupKey)) {
+			throw new DataSourceRoutingException("Provided lookup key was invalid.");
+		}
+		String key = TenantDataSourceRegistry.normalize(lookupKey);
+		if (currentJob != null && !currentJob.isDone()) {
+			if (currentJob.getLookupKey().equals(key)) {
+				return currentJob;
+			}
+			throw new DataSourceRoutingException("Migration job " + currentJob.getId() + " to '"
+					+ currentJob.getLookupKey() + "' is in progress.");
+		}
+		String activeKey = dataSourceContextManager.getCurrentlyActiveLookpKey();
+		if (activeKey.equalsIgnoreCase(key)) {
+			throw new DataSourceRoutingException("Provided lookup key is already active.");
+		}
+		MigrationJob job = new MigrationJob(jobIds.incrementAndGet(), key, activeKey);
+		jobs.put(job.getId(), job);
+		currentJob = job;
+		executor.execute(() -> run(job, barrier));
+		LOG.info("Migration job {} accepted: '{}' -> '{}'.", job.getId(), activeKey, key);
+		return job;
+	}
+
+	/*
+	 * Cancellation takes effect at the next phase boundary; waits for a pool
+	 * to drain or for the cluster barrier are interrupted and data sync passes
+	 * stop after the chunks in flight. Returns false once the switch has
+	 * started, or when the job is unknown or already over.
+	 */
+	public boolean cancel(long jobId) {
+		MigrationJob job = getJob(jobId);
+		if (job == null) {
+			return false;
+		}
+		synchronized (job) {
+			State state = job.getState();
+			if (!state.isCancellable()) {
+				return false;
+			}
+			job.requestCancel();
+			if (state == State.SYNCING_DATA || state == State.CATCHING_UP) {
+				dataSynchronizer.cancel();
+			}
+			Thread worker = job.getWorker();
+			if (worker != null && (state == State.CATCHING_UP || state == State.DRAINING_SOURCE
+					|| state == State.AWAITING_CLUSTER)) {
+				worker.interrupt();
+			}
+		}
+		LOG.warn("Cancellation of migration job {} requested in state {}.", jobId, job.getState());
+		return true;
+	}
+
+	public synchronized MigrationJob getJob(long jobId) {
+		return jobs.get(jobId);
+	}
+
+	public synchronized MigrationJob getCurrentJob() {
+		return currentJob;
+	}
+
+	public synchronized List<MigrationJob> getJobs() {
+		return new ArrayList<>(jobs.values());
+	}
+
+	private void run(MigrationJob job, SwitchBarrier barrier) {
+		String key = job.getLookupKey();
+		LOG.info("#######--- DATASOURCE MIGRATION PROCESS STARTED :: Job = {}, Lookup Key = {} ---#######", job.getId(),
+				key);
+		LOG.info("Lookup key before migration = {}", job.getSourceLookupKey());
+		job.setWorker(Thread.currentThread());
+		LeaseTrackingDataSource source = null;
+		boolean sourceSuspended = false;
+		boolean shadowHandedOver = false;
+		boolean sourceResumed = false;
+		boolean switched = false;
+		List<String> warnings = new ArrayList<>();
+		State terminal = State.FAILED;
+		String outcome = GENERIC_FAILURE_MSG;
+		try {
+			advance(job, State.RESUMING_TARGET);
+			LeaseTrackingDataSource target = tenantDataSourceRegistry.getDataSource(key);
+			if (!resumeConnectionPool(target.getHikariDataSource())) {
+				throw new DataSourceRoutingException(GENERIC_FAILURE_MSG);
+			}
+			advance(job, State.WARMING_UP);
+			poolWarmer.warmUp(target);
+			boolean syncData = dataSynchronizer.isEnabled();
+			if (syncData) {
+				advance(job, State.SYNCING_DATA);
+				syncData(() -> dataSynchronizer.copy(job.getSourceLookupKey(), key, job.getMigrationId()));
+				syncData(() -> dataSynchronizer.reconcile(job.getSourceLookupKey(), key, job.getMigrationId()));
+			}
+			migrationGate.close(job.getSourceLookupKey(), key);
+			source = dataSourceContextManager.getActiveDataSource();
+			if (syncData) {
+				advance(job, State.CATCHING_UP);
+				if (!connectionDrainMonitor.awaitDrain(source, timeout, TimeUnit.SECONDS)) {
+					throw new DataSourceRoutingException(
+							"DataSource could not migrate. Active connections did not drain for the data sync.");
+				}
+				syncData(() -> dataSynchronizer.catchUp(job.getSourceLookupKey(), key, job.getMigrationId()));
+			}
+			advance(job, State.SUSPENDING_SOURCE);
+			sourceSuspended = true;
+			suspendConnectionPool(source);
+			advance(job, State.DRAINING_SOURCE);
+			drain(source);
+			shadowHandedOver = shadowWriter.handOver(key, syncData);
+			if (barrier != null) {
+				advance(job, State.AWAITING_CLUSTER);
+				barrier.await(job);
+			}
+			advance(job, State.SWITCHING);
+			dataSourceContextManager.setActiveDataSource(key);
+			switched = true;
+			publishMigrated(job, warnings);
+			advance(job, State.RESUMING_SOURCE);
+			sourceResumed = resumeConnectionPool(source.getHikariDataSource());
+		} catch (CancellationException e) {
+			terminal = State.CANCELLED;
+			outcome = CANCELLED_MSG;
+		} catch (DataSourceRoutingException e) {
+			outcome = e.getMessage();
+		} catch (RuntimeException e) {
+			LOG.error("Migration job {} failed in state {}.", job.getId(), job.getState(), e);
+		} finally {
+			Thread.interrupted();
+			if (shadowHandedOver && !switched) {
+				shadowWriter.resume(key);
+			}
+			if (sourceSuspended && !sourceResumed) {
+				sourceResumed = resumeConnectionPool(source.getHikariDataSource());
+			}
+			if (switched) {
+				if (!sourceResumed) {
+					warnings.add("Previously active connection pool '" + source.getPoolName() + "' could not be resumed.");
+				}
+				terminal = State.SUCCEEDED;
+				outcome = warnings.isEmpty() ? SUCCESS_MSG : SUCCESS_MSG + " Warnings: " + String.join(" ", warnings);
+			} else if (sourceSuspended && !sourceResumed) {
+				terminal = State.FAILED;
+				outcome = NO_DATASOURCE_MSG;
+			} else if (job.isCancelRequested()) {
+				terminal = State.CANCELLED;
+				outcome = CANCELLED_MSG;
+			}
+			migrationGate.open();
+			finish(job, terminal, outcome);
+		}
+	}
+
+	/*
+	 * Routing has already switched, so a failing listener must neither undo
+	 * the migration nor keep the other listeners from seeing it.
+	 */
+	private void publishMigrated(MigrationJob job, List<String> warnings) {
+		DataSourceMigratedEvent event = new DataSourceMigratedEvent(this, job.getSourceLookupKey(),
+				dataSourceContextManager.getCurrentlyActiveLookpKey());
+		for (Throwable failure : EventConfig.publishIsolated(eventPublisher, event)) {
+			LOG.error("Listener of migration job {} failed after the switch.", job.getId(), failure);
+			warnings.add("A listener of the migrated event failed: " + failure.getMessage());
+		}
+	}
+
+	/*
+	 * The only place a job changes state while running, and the last point a
+	 * cancellation is honoured before the next phase.
+	 */
+	private void advance(MigrationJob job, State next) {
+		synchronized (job) {
+			if (job.isCancelRequested()) {
+				throw new CancellationException();
+			}
+			recordPhase(job.getState(), job.enter(next));
+		}
+		LOG.info("Migration job {}: {}", job.getId(), next);
+	}
+
+	private void finish(MigrationJob job, State terminal, String outcome) {
+		State last;
+		long nanos;
+		synchronized (job) {
+			last = job.getState();
+			nanos = job.finish(terminal, outcome);
+		}
+		recordPhase(last, nanos);
+		if (terminal == State.SUCCEEDED) {
+			latencyMetrics.migrationPhase("total").record(TimeUnit.MILLISECONDS.toNanos(job.getElapsedMillis()));
+			LOG.info("Lookup key after migration = {}", dataSourceContextManager.getCurrentlyActiveLookpKey());
+			LOG.info("#######--- DATASOURCE MIGRATION PROCESS SUCCESSFULLY COMPLETED :: Job = {}, Lookup Key = {} ---#######",
+					job.getId(), job.getLookupKey());
+		} else {
+			LOG.info("#######--- DATASOURCE MIGRATION PROCESS {} :: Job = {}, Lookup Key = {} ---#######", terminal,
+					job.getId(), job.getLookupKey());
+		}
+	}
+
+	private void recordPhase(State state, long nanos) {
+		if (state.getPhaseName() != null) {
+			latencyMetrics.migrationPhase(state.getPhaseName()).record(nanos);
+		}
+	}
+
+	private void syncData(Runnable pass) {
+		try {
+			pass.run();
+		} catch (Exception e) {
+			LOG.error("Data sync failed. Error - {}", e.getMessage());
+			throw new DataSourceRoutingException("DataSource could not migrate. Data sync failed. Same datasource is still active.");
+		}
+	}
+
+	private void suspendConnectionPool(LeaseTrackingDataSource leaseTrackingDataSource) {
+		HikariDataSource dataSourceToBeSuspended = leaseTrackingDataSource.getHikariDataSource();
+		String poolName = dataSourceToBeSuspended.getPoolName();
+		HikariPoolMXBean pool = dataSourceToBeSuspended.getHikariPoolMXBean();
+		try {
+			pool.softEvictConnections();
+			LOG.info("Suspending currently active connection pool '{}'...", poolName);
+			pool.suspendPool();
+			LOG.info("Currently active connection pool '{}' suspended.", poolName);
+		} catch (Exception e) {
+			LOG.error("Cound not suspend connection pool '{}'.", poolName);
+			throw new DataSourceRoutingException(GENERIC_FAILURE_MSG);
+		}
+	}
+
+	private void drain(LeaseTrackingDataSource dataSource) {
+		String poolName = dataSource.getPoolName();
+		LOG.info("Checking for the active connections on suspended connection pool. Will wait for the next {} seconds for all the connections to be released.", timeout);
+		if (!connectionDrainMonitor.awaitDrain(dataSource, timeout, TimeUnit.SECONDS)) {
+			LOG.error("Suspending connection pool '{}' timedout. Open leases = {}. Resuming back the same connection pool...",
+					poolName, dataSource.getOpenLeases());
+			throw new DataSourceRoutingException(GENERIC_FAILURE_MSG);
+		}
+		LOG.info("Released all the active connections on the suspended connection pool in {} ms.",
+				connectionDrainMonitor.getLastDrainDurationMillis());
+		try {
+			LOG.info("Softly evicting connections from the suspended connection pool...");
+			dataSource.getHikariDataSource().getHikariPoolMXBean().softEvictConnections();
+			LOG.info("Softly evicted connections from the suspended connection pool...");
+		} catch (Exception e) {
+			LOG.error("Cound not softly evict connections on suspended connection pool '{}'. Resuming back the same connection pool...", poolName);
+			throw new DataSourceRoutingException(GENERIC_FAILURE_MSG);
+		}
+	}
+
+	private boolean resumeConnectionPool(HikariDataSource dataSourceToBeResumed) {
+		try {
+			HikariPoolMXBean pool = dataSourceToBeResumed.getHikariPoolMXBean();
+			LOG.info("Resuming the requested connection pool '{}'...", dataSourceToBeResumed.getPoolName());
+			pool.resumePool();
+			LOG.info("Requested connection pool resumed.");
+			return true;
+		} catch (Exception e) {
+			LOG.error("Could not resume connection pool '{}'.", dataSourceToBeResumed.getPoolName());
+		}
+		return false;
+	}
+
+	/*
+	 * Waits for a running job to wind down, so that its pools are resumed and
+	 * the gate opened before the pools themselves are closed.
+	 */
+	@PreDestroy
+	public void destroy() throws InterruptedException {
+		MigrationJob job = getCurrentJob();
+		if (job != null && !job.isDone()) {
+			cancel(job.getId());
+		}
+		executor.shutdown();
+		if (!executor.awaitTermination(timeout, TimeUnit.SECONDS)) {
+			LOG.warn("Migration job {} did not finish within {} seconds of shutdown.", job.getId(), timeout);
+		}
+	}
+}
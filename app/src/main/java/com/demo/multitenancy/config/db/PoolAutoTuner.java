@@ -0,0 +1,167 @@
+package com.demo.multitenancy.config.db;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.demo.multitenancy.config.SchedulerConfig;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+/*
+ * Samples every open pool at a fixed interval and grows it by one step while
+ * threads are waiting for connections or the mean acquire time is above the
+ * grow threshold, and shrinks it by one step once the acquire time stays
+ * below the shrink threshold with spare connections. Either direction only
+ * triggers after the configured number of consecutive samples, and the
+ * streaks restart after every change, so that a pool does not flap between
+ * two sizes. Sampling pauses while a migration is switching pools.
+ */
+@Component
+public class PoolAutoTuner {
+
+	private static final Logger LOG = LoggerFactory.getLogger(PoolAutoTuner.class);
+
+	@Autowired
+	private TenantDataSourceRegistry tenantDataSourceRegistry;
+
+	@Autowired
+	private MigrationGate migrationGate;
+
+	@Value("${app.datasource.auto-tune.enabled:false}")
+	private volatile boolean enabled;
+
+	@Value("${app.datasource.auto-tune.interval-millis:5000}")
+	private long intervalMillis;
+
+	@Value("${app.datasource.auto-tune.min-pool-size:2}")
+	private int minPoolSize;
+
+	@Value("${app.datasource.auto-tune.max-pool-size:20}")
+	private int maxPoolSize;
+
+	@Value("${app.datasource.auto-tune.step:1}")
+	private int step;
+
+	@Value("${app.datasource.auto-tune.grow-acquire-millis:50}")
+	private long growAcquireMillis;
+
+	@Value("${app.datasource.auto-tune.shrink-acquire-millis:5}")
+	private long shrinkAcquireMillis;
+
+	@Value("${app.datasource.auto-tune.grow-after-samples:2}")
+	private int growAfterSamples;
+
+	@Value("${app.datasource.auto-tune.shrink-after-samples:6}")
+	private int shrinkAfterSamples;
+
+	private final Map<String, Sample> samples = new ConcurrentHashMap<>();
+	private final ScheduledExecutorService scheduler = SchedulerConfig.dedicatedScheduler("pool-auto-tuner");
+	private volatile String lastAction = "none";
+
+	@PostConstruct
+	public void init() {
+		if (minPoolSize < 1 || maxPoolSize < minPoolSize || step < 1) {
+			throw new IllegalStateException("Invalid auto-tune bounds: min-pool-size = " + minPoolSize
+					+ ", max-pool-size = " + maxPoolSize + ", step = " + step);
+		}
+		scheduler.scheduleWithFixedDelay(this::tune, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		scheduler.shutdownNow();
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		samples.clear();
+		LOG.info("Connection pool auto-tuning {}.", enabled ? "enabled" : "disabled");
+	}
+
+	public String getLastAction() {
+		return lastAction;
+	}
+
+	private void tune() {
+		if (!enabled || migrationGate.isClosed()) {
+			return;
+		}
+		for (String key : tenantDataSourceRegistry.getLookupKeys()) {
+			LeaseTrackingDataSource dataSource = tenantDataSourceRegistry.getDataSourceIfOpen(key);
+			if (Objects.isNull(dataSource)) {
+				samples.remove(key);
+				continue;
+			}
+			try {
+				tune(key, dataSource);
+			} catch (Exception e) {
+				LOG.warn("Could not auto-tune connection pool of tenant '{}'. Error - {}", key, e.getMessage());
+			}
+		}
+	}
+
+	private void tune(String key, LeaseTrackingDataSource dataSource) {
+		HikariPoolMXBean pool = dataSource.getHikariDataSource().getHikariPoolMXBean();
+		if (Objects.isNull(pool)) {
+			return;
+		}
+		Sample previous = samples.get(key);
+		Sample current = new Sample(dataSource.getAcquisitions(), dataSource.getAcquireNanos());
+		samples.put(key, current);
+		if (Objects.isNull(previous)) {
+			return;
+		}
+		long acquisitions = current.acquisitions - previous.acquisitions;
+		long meanAcquireMillis = acquisitions == 0 ? 0
+				: TimeUnit.NANOSECONDS.toMillis((current.acquireNanos - previous.acquireNanos) / acquisitions);
+		int size = tenantDataSourceRegistry.getMaximumPoolSize(key);
+		boolean starving = pool.getThreadsAwaitingConnection() > 0 || meanAcquireMillis > growAcquireMillis;
+		boolean idle = pool.getThreadsAwaitingConnection() == 0 && meanAcquireMillis < shrinkAcquireMillis
+				&& pool.getActiveConnections() + step <= size;
+		current.growStreak = starving ? previous.growStreak + 1 : 0;
+		current.shrinkStreak = idle ? previous.shrinkStreak + 1 : 0;
+
+		int target = size;
+		if (current.growStreak >= growAfterSamples) {
+			target = Math.min(maxPoolSize, size + step);
+		} else if (current.shrinkStreak >= shrinkAfterSamples) {
+			target = Math.max(minPoolSize, size - step);
+		}
+		if (target != size) {
+			int minimumIdle = Math.min(tenantDataSourceRegistry.getMinimumIdle(key), target);
+			tenantDataSourceRegistry.resize(key, target, minimumIdle);
+			current.growStreak = 0;
+			current.shrinkStreak = 0;
+			lastAction = key + ": " + size + " -> " + target + " (awaiting = " + pool.getThreadsAwaitingConnection()
+					+ ", mean acquire = " + meanAcquireMillis + " ms)";
+			LOG.info("Auto-tuned connection pool of tenant {}", lastAction);
+		}
+	}
+
+	private static class Sample {
+		private final long acquisitions;
+		private final long acquireNanos;
+		private int growStreak;
+		private int shrinkStreak;
+
+		Sample(long acquisitions, long acquireNanos) {
+			this.acquisitions = acquisitions;
+			this.acquireNanos = acquireNanos;
+		}
+	}
+}
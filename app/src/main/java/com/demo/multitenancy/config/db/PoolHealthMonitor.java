@@ -0,0 +1,481 @@
+package com.demo.multitenancy.config.db;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import com.demo.multitenancy.config.SchedulerConfig;
+
+import com.demo.multitenancy.event.DataSourceMigratedEvent;
+import com.demo.multitenancy.exception.DataSourceRoutingException;
+
+/*
+ * Probes the active pool and the configured failover candidates at a fixed
+ * interval, timing connection validation and a round trip of the probe
+ * query, and keeps the last samples of each pool in a sliding window. A pool
+ * is unhealthy when the error rate or the mean latency of its window is over
+ * the threshold.
+ *
+ * With auto-failover on, a circuit breaker trips once the active pool has
+ * been unhealthy for the configured number of consecutive probes and migrates
+ * to the candidate with the lowest latency among those healthy for long
+ * enough. Any migration, automatic or not, starts a cooldown during which the
+ * breaker does not trip again, so traffic does not flap between two degraded
+ * pools. Probing pauses while a migration is switching pools.
+ *
+ * Each pool is probed on its own thread and a probe that has not finished
+ * within the probe timeout counts as failed, so a pool that hands out no
+ * connections is caught without waiting for its connection timeout.
+ */
+@Component
+public class PoolHealthMonitor {
+
+	private static final Logger LOG = LoggerFactory.getLogger(PoolHealthMonitor.class);
+
+	public enum BreakerState {
+		CLOSED, TRIPPING, FAILING_OVER, COOLDOWN
+	}
+
+	@Autowired
+	private TenantDataSourceRegistry tenantDataSourceRegistry;
+
+	@Autowired
+	private DataSourceContextManager dataSourceContextManager;
+
+	@Autowired
+	private MigrationGate migrationGate;
+
+	@Autowired
+	private MigrationOrchestrator migrationOrchestrator;
+
+	@Value("${app.datasource.failover.enabled:false}")
+	private volatile boolean enabled;
+
+	@Value("${app.datasource.failover.candidate-lookup-keys:}")
+	private String[] candidateLookupKeys;
+
+	@Value("${app.datasource.failover.probe-interval-millis:2000}")
+	private long probeIntervalMillis;
+
+	@Value("${app.datasource.failover.probe-query:select 1}")
+	private String probeQuery;
+
+	@Value("${app.datasource.failover.probe-timeout-millis:1000}")
+	private long probeTimeoutMillis;
+
+	@Value("${app.datasource.failover.window-size:10}")
+	private int windowSize;
+
+	@Value("${app.datasource.failover.latency-threshold-millis:500}")
+	private long latencyThresholdMillis;
+
+	@Value("${app.datasource.failover.error-rate-threshold:0.5}")
+	private double errorRateThreshold;
+
+	@Value("${app.datasource.failover.trip-after-probes:3}")
+	private int tripAfterProbes;
+
+	@Value("${app.datasource.failover.candidate-healthy-probes:5}")
+	private int candidateHealthyProbes;
+
+	@Value("${app.datasource.failover.cooldown-millis:60000}")
+	private long cooldownMillis;
+
+	private final Map<String, ProbeWindow> windows = new ConcurrentHashMap<>();
+	private final Set<String> probing = ConcurrentHashMap.newKeySet();
+	private final ScheduledExecutorService scheduler = SchedulerConfig.dedicatedScheduler("pool-health-monitor");
+	private final ExecutorService probeExecutor = Executors.newCachedThreadPool(probeThreadFactory());
+	private final AtomicBoolean failingOver = new AtomicBoolean();
+	private final LongAdder failovers = new LongAdder();
+	private List<String> candidates = Collections.emptyList();
+	private volatile int unhealthyStreak;
+	private volatile long cooldownUntilMillis;
+	private volatile String lastFailover = "none";
+
+	@PostConstruct
+	public void init() {
+		candidates = Arrays.stream(candidateLookupKeys).map(TenantDataSourceRegistry::normalize)
+				.filter(Objects::nonNull).distinct().collect(Collectors.toList());
+		candidates.stream().filter(key -> !tenantDataSourceRegistry.contains(key)).findAny().ifPresent(key -> {
+			throw new IllegalStateException("Failover candidate '" + key + "' is not a registered tenant.");
+		});
+		scheduler.scheduleWithFixedDelay(this::probe, probeIntervalMillis, probeIntervalMillis, TimeUnit.MILLISECONDS);
+		LOG.info("Pool health probing every {} ms. Failover candidates: {}, auto-failover {}", probeIntervalMillis,
+				candidates, enabled ? "enabled" : "disabled");
+	}
+
+	@PreDestroy
+	public void destroy() {
+		scheduler.shutdownNow();
+		probeExecutor.shutdownNow();
+	}
+
+	private static CustomizableThreadFactory probeThreadFactory() {
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("pool-health-probe-");
+		threadFactory.setDaemon(true);
+		return threadFactory;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		unhealthyStreak = 0;
+		LOG.info("Automatic datasource failover {}.", enabled ? "enabled" : "disabled");
+	}
+
+	/*
+	 * The windows of the new active pool start over, and so does the cooldown.
+	 */
+	@EventListener
+	public void onDataSourceMigrated(DataSourceMigratedEvent event) {
+		windows.remove(event.getLookupKey());
+		unhealthyStreak = 0;
+		cooldownUntilMillis = System.currentTimeMillis() + cooldownMillis;
+	}
+
+	private void probe() {
+		if (migrationGate.isClosed() || failingOver.get()) {
+			return;
+		}
+		String activeKey = dataSourceContextManager.getCurrentlyActiveLookpKey();
+		List<String> keys = new ArrayList<>(candidates);
+		if (!keys.contains(activeKey)) {
+			keys.add(0, activeKey);
+		}
+		long start = System.nanoTime();
+		Map<String, Future<ProbeSample>> started = new LinkedHashMap<>();
+		for (String key : keys) {
+			if (probing.add(key)) {
+				started.put(key, probeExecutor.submit(() -> {
+					try {
+						return probe(key);
+					} finally {
+						probing.remove(key);
+					}
+				}));
+			} else {
+				record(key, ProbeSample.failed(0, "previous probe still running"));
+			}
+		}
+		long deadline = start + TimeUnit.MILLISECONDS.toNanos(probeTimeoutMillis);
+		for (Map.Entry<String, Future<ProbeSample>> entry : started.entrySet()) {
+			record(entry.getKey(), awaitSample(entry.getKey(), entry.getValue(), deadline));
+		}
+		if (Thread.currentThread().isInterrupted()) {
+			return;
+		}
+		windows.keySet().retainAll(keys);
+		evaluate(activeKey);
+	}
+
+	private void record(String key, ProbeSample sample) {
+		windows.computeIfAbsent(key, k -> new ProbeWindow(windowSize)).add(sample);
+	}
+
+	/*
+	 * A probe over the timeout is interrupted, which also ends a wait for a
+	 * connection of the pool.
+	 */
+	private ProbeSample awaitSample(String key, Future<ProbeSample> probe, long deadline) {
+		try {
+			return probe.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+		} catch (TimeoutException e) {
+			probe.cancel(true);
+			LOG.warn("Health probe of '{}' did not finish within {} ms.", key, probeTimeoutMillis);
+			return ProbeSample.failed(TimeUnit.MILLISECONDS.toNanos(probeTimeoutMillis),
+					"no answer within " + probeTimeoutMillis + " ms");
+		} catch (ExecutionException e) {
+			return ProbeSample.failed(TimeUnit.MILLISECONDS.toNanos(probeTimeoutMillis), e.getCause().getMessage());
+		} catch (InterruptedException e) {
+			probe.cancel(true);
+			Thread.currentThread().interrupt();
+			return ProbeSample.failed(0, "probing interrupted");
+		}
+	}
+
+	private ProbeSample probe(String key) {
+		long start = System.nanoTime();
+		try (Connection connection = tenantDataSourceRegistry.getDataSource(key).getConnection()) {
+			long validationStart = System.nanoTime();
+			int timeoutSeconds = (int) Math.max(1, (probeTimeoutMillis + 999) / 1000);
+			if (!connection.isValid(timeoutSeconds)) {
+				return ProbeSample.failed(System.nanoTime() - start, "connection is not valid");
+			}
+			long validationNanos = System.nanoTime() - validationStart;
+			long queryStart = System.nanoTime();
+			try (Statement statement = connection.createStatement()) {
+				statement.setQueryTimeout(timeoutSeconds);
+				try (ResultSet rs = statement.executeQuery(probeQuery)) {
+					rs.next();
+				}
+			}
+			long queryNanos = System.nanoTime() - queryStart;
+			return new ProbeSample(System.nanoTime() - start, validationNanos, queryNanos, null);
+		} catch (Exception e) {
+			LOG.warn("Health probe of '{}' failed. Error - {}", key, e.getMessage());
+			return ProbeSample.failed(System.nanoTime() - start, e.getMessage());
+		}
+	}
+
+	private void evaluate(String activeKey) {
+		ProbeWindow active = windows.get(activeKey);
+		if (Objects.isNull(active) || !active.isFull() || active.isHealthy()) {
+			unhealthyStreak = 0;
+			return;
+		}
+		unhealthyStreak++;
+		LOG.warn("Active datasource '{}' is unhealthy ({} of {} probes in a row). Error rate = {}, mean latency = {} ms",
+				activeKey, unhealthyStreak, tripAfterProbes, active.getErrorRate(), active.getMeanLatencyMillis());
+		if (!enabled || unhealthyStreak < tripAfterProbes || System.currentTimeMillis() < cooldownUntilMillis) {
+			return;
+		}
+		String candidate = windows.entrySet().stream()
+				.filter(entry -> !entry.getKey().equals(activeKey) && candidates.contains(entry.getKey()))
+				.filter(entry -> entry.getValue().getHealthyStreak() >= candidateHealthyProbes
+						&& entry.getValue().isHealthy())
+				.min((a, b) -> Double.compare(a.getValue().getMeanLatencyMillis(), b.getValue().getMeanLatencyMillis()))
+				.map(Map.Entry::getKey).orElse(null);
+		if (Objects.isNull(candidate)) {
+			LOG.warn("No healthy failover candidate for unhealthy datasource '{}'.", activeKey);
+			return;
+		}
+		failOver(activeKey, candidate);
+	}
+
+	/*
+	 * The migration runs as a job of the orchestrator, off the probing
+	 * thread, which keeps sampling the pools meanwhile.
+	 */
+	private void failOver(String activeKey, String candidate) {
+		if (!failingOver.compareAndSet(false, true)) {
+			return;
+		}
+		LOG.warn("Failing over from unhealthy datasource '{}' to '{}'.", activeKey, candidate);
+		MigrationJob job;
+		try {
+			job = migrationOrchestrator.start(candidate);
+		} catch (DataSourceRoutingException e) {
+			lastFailover = activeKey + " -> " + candidate + " at " + Instant.now() + ": " + e.getMessage();
+			LOG.warn("Automatic failover not started. {}", lastFailover);
+			endFailover();
+			return;
+		}
+		job.getCompletion().whenComplete((done, error) -> {
+			try {
+				boolean switched = job.getState() == MigrationJob.State.SUCCEEDED;
+				if (switched) {
+					failovers.increment();
+				}
+				lastFailover = activeKey + " -> " + candidate + " at " + Instant.now() + ": " + job.getOutcome();
+				LOG.warn("Automatic failover {}. {}", switched ? "done" : "failed", lastFailover);
+			} finally {
+				endFailover();
+			}
+		});
+	}
+
+	private void endFailover() {
+		unhealthyStreak = 0;
+		cooldownUntilMillis = System.currentTimeMillis() + cooldownMillis;
+		failingOver.set(false);
+	}
+
+	public BreakerState getBreakerState() {
+		if (failingOver.get()) {
+			return BreakerState.FAILING_OVER;
+		}
+		if (System.currentTimeMillis() < cooldownUntilMillis) {
+			return BreakerState.COOLDOWN;
+		}
+		return unhealthyStreak > 0 ? BreakerState.TRIPPING : BreakerState.CLOSED;
+	}
+
+	public long getCooldownRemainingMillis() {
+		return Math.max(0, cooldownUntilMillis - System.currentTimeMillis());
+	}
+
+	public int getUnhealthyStreak() {
+		return unhealthyStreak;
+	}
+
+	public long getFailovers() {
+		return failovers.sum();
+	}
+
+	public String getLastFailover() {
+		return lastFailover;
+	}
+
+	public List<String> getCandidates() {
+		return candidates;
+	}
+
+	public List<String> getHealthyPools() {
+		return windows.entrySet().stream().filter(entry -> entry.getValue().isHealthy()).map(Map.Entry::getKey)
+				.sorted().collect(Collectors.toList());
+	}
+
+	public Map<String, Double> getMeanLatencyMillis() {
+		return collect(ProbeWindow::getMeanLatencyMillis);
+	}
+
+	public Map<String, Double> getLastValidationMillis() {
+		return collect(window -> window.last().validationNanos / 1_000_000.0);
+	}
+
+	public Map<String, Double> getLastQueryMillis() {
+		return collect(window -> window.last().queryNanos / 1_000_000.0);
+	}
+
+	public Map<String, Double> getErrorRates() {
+		return collect(ProbeWindow::getErrorRate);
+	}
+
+	public Map<String, String> getLastErrors() {
+		Map<String, String> errors = new LinkedHashMap<>();
+		windows.forEach((key, window) -> {
+			String error = window.getLastError();
+			if (Objects.nonNull(error)) {
+				errors.put(key, error);
+			}
+		});
+		return errors;
+	}
+
+	private Map<String, Double> collect(ToDoubleFunction<ProbeWindow> value) {
+		Map<String, Double> values = new LinkedHashMap<>();
+		windows.forEach((key, window) -> {
+			if (!window.isEmpty()) {
+				values.put(key, value.applyAsDouble(window));
+			}
+		});
+		return values;
+	}
+
+	private static final class ProbeSample {
+
+		private final long totalNanos;
+		private final long validationNanos;
+		private final long queryNanos;
+		private final String error;
+
+		ProbeSample(long totalNanos, long validationNanos, long queryNanos, String error) {
+			this.totalNanos = totalNanos;
+			this.validationNanos = validationNanos;
+			this.queryNanos = queryNanos;
+			this.error = error;
+		}
+
+		static ProbeSample failed(long totalNanos, String error) {
+			return new ProbeSample(totalNanos, 0, 0, Objects.nonNull(error) ? error : "probe failed");
+		}
+	}
+
+	/*
+	 * Written by the probing thread only; readers get a consistent enough
+	 * picture through the synchronized accessors.
+	 */
+	private final class ProbeWindow {
+
+		private final ProbeSample[] samples;
+		private int next;
+		private int size;
+		private int healthyStreak;
+		private String lastError;
+
+		ProbeWindow(int capacity) {
+			this.samples = new ProbeSample[Math.max(1, capacity)];
+		}
+
+		synchronized void add(ProbeSample sample) {
+			samples[next] = sample;
+			next = (next + 1) % samples.length;
+			size = Math.min(size + 1, samples.length);
+			if (Objects.nonNull(sample.error)) {
+				lastError = sample.error;
+			}
+			healthyStreak = Objects.isNull(sample.error) && isHealthy() ? healthyStreak + 1 : 0;
+		}
+
+		synchronized boolean isEmpty() {
+			return size == 0;
+		}
+
+		synchronized boolean isFull() {
+			return size == samples.length;
+		}
+
+		synchronized ProbeSample last() {
+			return samples[Math.floorMod(next - 1, samples.length)];
+		}
+
+		synchronized int getHealthyStreak() {
+			return healthyStreak;
+		}
+
+		synchronized String getLastError() {
+			return lastError;
+		}
+
+		synchronized boolean isHealthy() {
+			return size > 0 && getErrorRate() <= errorRateThreshold && getMeanLatencyMillis() <= latencyThresholdMillis;
+		}
+
+		synchronized double getErrorRate() {
+			int errors = 0;
+			for (int i = 0; i < size; i++) {
+				if (Objects.nonNull(samples[i].error)) {
+					errors++;
+				}
+			}
+			return size == 0 ? 0 : (double) errors / size;
+		}
+
+		synchronized double getMeanLatencyMillis() {
+			long total = 0;
+			int count = 0;
+			for (int i = 0; i < size; i++) {
+				if (Objects.isNull(samples[i].error)) {
+					total += samples[i].totalNanos;
+					count++;
+				}
+			}
+			return count == 0 ? 0 : total / 1_000_000.0 / count;
+		}
+	}
+}
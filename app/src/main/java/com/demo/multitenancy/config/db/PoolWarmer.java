@@ -0,0 +1,125 @@
+package com.demo.multitenancy.config.db;
+
+import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+
+import com.demo.multitenancy.util.Queries;
+import com.zaxxer.hikari.HikariDataSource;
+
+/*
+ * Fills a freshly resumed pool with validated connections and runs the
+ * priming statements on each of them, so that the first requests after a
+ * switch do not pay for handshakes and cold plans.
+ */
+@Component
+public class PoolWarmer {
+
+	private static final Logger LOG = LoggerFactory.getLogger(PoolWarmer.class);
+
+	@Value("${app.datasource.warm-up.enabled:true}")
+	private boolean enabled;
+
+	@Value("${app.datasource.warm-up.connections:0}")
+	private int warmConnections;
+
+	@Value("${app.datasource.warm-up.priming-queries:FIND_BY_ID,FIND_ALL}")
+	private List<String> primingQueryNames;
+
+	private final List<String> primingQueries = new ArrayList<>();
+
+	private volatile long lastWarmUpMillis = -1;
+	private volatile int lastWarmedConnections;
+
+	@PostConstruct
+	public void init() {
+		for (String name : primingQueryNames) {
+			Field field = ReflectionUtils.findField(Queries.class, name.trim(), String.class);
+			if (Objects.isNull(field)) {
+				LOG.warn("Unknown priming query '{}'. It will be ignored.", name);
+				continue;
+			}
+			primingQueries.add((String) ReflectionUtils.getField(field, null));
+		}
+	}
+
+	public void warmUp(LeaseTrackingDataSource dataSource) {
+		if (!enabled) {
+			return;
+		}
+		HikariDataSource hikariDataSource = dataSource.getHikariDataSource();
+		int target = warmConnections > 0 ? warmConnections : hikariDataSource.getMinimumIdle();
+		target = Math.min(target, hikariDataSource.getMaximumPoolSize());
+		int validationTimeoutSeconds = (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(hikariDataSource.getValidationTimeout()));
+		LOG.info("Warming up connection pool '{}' with {} connections...", hikariDataSource.getPoolName(), target);
+		long start = System.nanoTime();
+		List<Connection> connections = new ArrayList<>(target);
+		try {
+			/*
+			 * Connections are held until all of them are borrowed so that the pool
+			 * really has to open the requested number of physical connections.
+			 */
+			for (int i = 0; i < target; i++) {
+				Connection connection = hikariDataSource.getConnection();
+				connections.add(connection);
+				if (connection.isValid(validationTimeoutSeconds)) {
+					prime(connection);
+				}
+			}
+		} catch (SQLException e) {
+			LOG.warn("Could not fully warm up connection pool '{}'. Error - {}", hikariDataSource.getPoolName(),
+					e.getMessage());
+		} finally {
+			for (Connection connection : connections) {
+				closeQuietly(connection);
+			}
+		}
+		lastWarmedConnections = connections.size();
+		lastWarmUpMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		LOG.info("Warmed up {} connections on connection pool '{}' in {} ms.", lastWarmedConnections,
+				hikariDataSource.getPoolName(), lastWarmUpMillis);
+	}
+
+	private void prime(Connection connection) {
+		for (String query : primingQueries) {
+			try (PreparedStatement ps = connection.prepareStatement(query)) {
+				for (int i = 1; i <= ps.getParameterMetaData().getParameterCount(); i++) {
+					ps.setLong(i, -1L);
+				}
+				ps.setMaxRows(1);
+				ps.executeQuery().close();
+			} catch (SQLException e) {
+				LOG.warn("Priming query failed. Query - {}, Error - {}", query, e.getMessage());
+			}
+		}
+	}
+
+	private void closeQuietly(Connection connection) {
+		try {
+			connection.close();
+		} catch (SQLException e) {
+			LOG.warn("Could not return warm-up connection to the pool. Error - {}", e.getMessage());
+		}
+	}
+
+	public long getLastWarmUpMillis() {
+		return lastWarmUpMillis;
+	}
+
+	public int getLastWarmedConnections() {
+		return lastWarmedConnections;
+	}
+}
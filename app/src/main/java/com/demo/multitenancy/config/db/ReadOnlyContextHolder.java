@@ -0,0 +1,54 @@
+package com.demo.multitenancy.config.db;
+
+import java.util.function.Supplier;
+
+/*
+ * Explicit read-only mode for work that does not run inside a read-only
+ * transaction. Connections requested while it is set are routed to a healthy
+ * read replica, if any. Whether a replica actually served the work can be
+ * tracked as well.
+ */
+public final class ReadOnlyContextHolder {
+
+	private static final ThreadLocal<Boolean> READ_ONLY = new ThreadLocal<>();
+	private static final ThreadLocal<boolean[]> ROUTED_TO_REPLICA = new ThreadLocal<>();
+
+	private ReadOnlyContextHolder() {}
+
+	public static boolean isReadOnly() {
+		return Boolean.TRUE.equals(READ_ONLY.get());
+	}
+
+	public static <T> T readOnly(Supplier<T> work) {
+		Boolean previous = READ_ONLY.get();
+		READ_ONLY.set(Boolean.TRUE);
+		try {
+			return work.get();
+		} finally {
+			READ_ONLY.set(previous);
+		}
+	}
+
+	/*
+	 * Runs the work and tells whether any of its connections were routed to a
+	 * read replica, which may lag behind the active pool.
+	 */
+	public static boolean routedToReplica(Runnable work) {
+		boolean[] previous = ROUTED_TO_REPLICA.get();
+		boolean[] routed = new boolean[1];
+		ROUTED_TO_REPLICA.set(routed);
+		try {
+			work.run();
+		} finally {
+			ROUTED_TO_REPLICA.set(previous);
+		}
+		return routed[0];
+	}
+
+	static void replicaRouted() {
+		boolean[] routed = ROUTED_TO_REPLICA.get();
+		if (routed != null) {
+			routed[0] = true;
+		}
+	}
+}
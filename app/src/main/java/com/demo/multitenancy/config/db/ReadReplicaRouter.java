@@ -0,0 +1,167 @@
+package com.demo.multitenancy.config.db;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.demo.multitenancy.config.SchedulerConfig;
+
+/*
+ * Picks the read replica for read-only work on the globally active key. The
+ * lag of every configured replica is probed in the background; replicas over
+ * the lag threshold, failing the probe or currently taking writes are left
+ * out, and reads fall back to the active pool when none is left.
+ */
+@Component
+public class ReadReplicaRouter {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ReadReplicaRouter.class);
+	private static final long PROBE_FAILED = -1;
+
+	@Autowired
+	private TenantDataSourceRegistry tenantDataSourceRegistry;
+
+	@Autowired
+	private MigrationGate migrationGate;
+
+	@Value("${app.datasource.read-replicas.lookup-keys:}")
+	private String[] lookupKeys;
+
+	@Value("${app.datasource.read-replicas.max-lag-millis:5000}")
+	private long maxLagMillis;
+
+	@Value("${app.datasource.read-replicas.probe-interval-millis:5000}")
+	private long probeIntervalMillis;
+
+	@Value("${app.datasource.read-replicas.probe-timeout-millis:2000}")
+	private long probeTimeoutMillis;
+
+	@Value("${app.datasource.read-replicas.lag-query:select coalesce(extract(epoch from (now() - pg_last_xact_replay_timestamp())) * 1000, 0)}")
+	private String lagQuery;
+
+	private final Map<String, Long> lagMillis = new ConcurrentHashMap<>();
+	private final AtomicInteger next = new AtomicInteger();
+	private final LongAdder replicaReads = new LongAdder();
+	private final LongAdder fallbackReads = new LongAdder();
+	private volatile List<String> healthyReplicas = Collections.emptyList();
+	private List<String> replicas = Collections.emptyList();
+	private final ScheduledExecutorService scheduler = SchedulerConfig.dedicatedScheduler("replica-lag-probe");
+
+	@PostConstruct
+	public void init() {
+		replicas = Arrays.stream(lookupKeys).map(TenantDataSourceRegistry::normalize).filter(Objects::nonNull)
+				.distinct().collect(Collectors.toList());
+		replicas.stream().filter(key -> !tenantDataSourceRegistry.contains(key)).findAny().ifPresent(key -> {
+			throw new IllegalStateException("Read replica '" + key + "' is not a registered tenant.");
+		});
+		if (!replicas.isEmpty()) {
+			scheduler.scheduleWithFixedDelay(this::probe, 0, probeIntervalMillis, TimeUnit.MILLISECONDS);
+			LOG.info("Read replicas: {}. Maximum lag = {} ms", replicas, maxLagMillis);
+		}
+	}
+
+	@PreDestroy
+	public void destroy() {
+		scheduler.shutdownNow();
+	}
+
+	/*
+	 * Returns null when read-only work has to stay on the active pool.
+	 */
+	public DataSource getReadDataSource(String activeLookupKey) {
+		List<String> candidates = healthyReplicas;
+		if (!candidates.isEmpty()) {
+			int start = Math.floorMod(next.getAndIncrement(), candidates.size());
+			for (int i = 0; i < candidates.size(); i++) {
+				String key = candidates.get((start + i) % candidates.size());
+				if (!key.equals(activeLookupKey)) {
+					replicaReads.increment();
+					return tenantDataSourceRegistry.getDataSource(key);
+				}
+			}
+		}
+		if (!replicas.isEmpty()) {
+			fallbackReads.increment();
+		}
+		return null;
+	}
+
+	/*
+	 * Skipped while a migration is switching pools: the pool being drained is
+	 * suspended and a probe against it would only wait for it. Probes run on
+	 * their own thread, so a slow replica delays nothing but the next probe.
+	 */
+	private void probe() {
+		if (migrationGate.isClosed()) {
+			return;
+		}
+		List<String> healthy = new ArrayList<>();
+		for (String key : replicas) {
+			long lag = probeLag(key);
+			lagMillis.put(key, lag);
+			if (lag != PROBE_FAILED && lag <= maxLagMillis) {
+				healthy.add(key);
+			}
+		}
+		if (!healthy.equals(healthyReplicas)) {
+			LOG.info("Healthy read replicas changed from {} to {}. Lag = {}", healthyReplicas, healthy, lagMillis);
+		}
+		healthyReplicas = Collections.unmodifiableList(healthy);
+	}
+
+	private long probeLag(String key) {
+		try (Connection connection = tenantDataSourceRegistry.getDataSource(key).getConnection();
+				Statement statement = connection.createStatement()) {
+			statement.setQueryTimeout((int) Math.max(1, (probeTimeoutMillis + 999) / 1000));
+			try (ResultSet rs = statement.executeQuery(lagQuery)) {
+				return rs.next() ? Math.max(0, rs.getLong(1)) : PROBE_FAILED;
+			}
+		} catch (Exception e) {
+			LOG.warn("Could not probe the lag of read replica '{}'. Error - {}", key, e.getMessage());
+			return PROBE_FAILED;
+		}
+	}
+
+	public Map<String, Long> getLagMillis() {
+		return new LinkedHashMap<>(lagMillis);
+	}
+
+	public List<String> getHealthyReplicas() {
+		return healthyReplicas;
+	}
+
+	public long getReplicaReads() {
+		return replicaReads.sum();
+	}
+
+	public long getFallbackReads() {
+		return fallbackReads.sum();
+	}
+
+	public long getMaxLagMillis() {
+		return maxLagMillis;
+	}
+}
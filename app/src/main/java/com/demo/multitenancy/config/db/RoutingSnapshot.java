@@ -0,0 +1,26 @@
+package com.demo.multitenancy.config.db;
+
+import javax.sql.DataSource;
+
+/*
+ * Immutable view of the routing decision. A new instance is published on every
+ * switch so that the hot path only needs a single volatile read.
+ */
+public final class RoutingSnapshot {
+
+	private final String lookupKey;
+	private final DataSource dataSource;
+
+	public RoutingSnapshot(String lookupKey, DataSource dataSource) {
+		this.lookupKey = lookupKey;
+		this.dataSource = dataSource;
+	}
+
+	public String getLookupKey() {
+		return lookupKey;
+	}
+
+	public DataSource getDataSource() {
+		return dataSource;
+	}
+}
@@ -0,0 +1,441 @@
+package com.demo.multitenancy.config.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.demo.multitenancy.event.DataSyncedEvent;
+import com.demo.multitenancy.exception.DataSourceRoutingException;
+import com.demo.multitenancy.model.Student;
+import com.demo.multitenancy.util.Queries;
+
+/*
+ * Replays students committed to the active datasource on a shadow target, so
+ * that the target keeps up with live writes ahead of a migration. Writes are
+ * queued after commit and applied by a single background thread in batches,
+ * with the ids they got on the active datasource. A batch replaces rows with
+ * the same ids, so a write applied twice, or one already copied by a data
+ * sync, does no harm.
+ *
+ * The queue is bounded: writes arriving while it is full are dropped and
+ * counted, and the target has to be reconciled with a data sync afterwards.
+ * A migration to the target is refused until it is, see handOver.
+ */
+@Component
+public class ShadowWriter {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ShadowWriter.class);
+
+	@Value("${app.datasource.shadow-write.target-lookup-key:}")
+	private volatile String targetLookupKey;
+
+	@Value("${app.datasource.shadow-write.queue-capacity:10000}")
+	private int queueCapacity;
+
+	@Value("${app.datasource.shadow-write.batch-size:200}")
+	private int batchSize;
+
+	@Value("${app.datasource.shadow-write.max-attempts:3}")
+	private int maxAttempts;
+
+	@Value("${app.datasource.shadow-write.retry-backoff-millis:500}")
+	private long retryBackoffMillis;
+
+	@Value("${app.datasource.shadow-write.catch-up-timeout-millis:5000}")
+	private long catchUpTimeoutMillis;
+
+	@Autowired
+	private TenantDataSourceRegistry tenantDataSourceRegistry;
+
+	@Autowired
+	private DataSourceContextManager dataSourceContextManager;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	private BlockingQueue<ShadowWrite> queue;
+	private Thread worker;
+	private volatile long lostBeforeTarget;
+
+	private final AtomicInteger pending = new AtomicInteger();
+	private final Queue<CompletableFuture<Void>> caughtUpWaiters = new ConcurrentLinkedQueue<>();
+	private final LongAdder queuedWrites = new LongAdder();
+	private final LongAdder appliedWrites = new LongAdder();
+	private final LongAdder failedWrites = new LongAdder();
+	private final LongAdder droppedWrites = new LongAdder();
+	private final LongAdder batches = new LongAdder();
+	private volatile long lastApplyLagMillis;
+	private volatile String lastError;
+
+	@PostConstruct
+	public void init() {
+		targetLookupKey = TenantDataSourceRegistry.normalize(targetLookupKey);
+		queue = new ArrayBlockingQueue<>(queueCapacity);
+		if (Objects.nonNull(targetLookupKey)) {
+			startWorker();
+		}
+	}
+
+	public String getTargetLookupKey() {
+		return targetLookupKey;
+	}
+
+	public void setTargetLookupKey(String lookupKey) {
+		String key = TenantDataSourceRegistry.normalize(lookupKey);
+		if (Objects.nonNull(key) && !tenantDataSourceRegistry.contains(key)) {
+			throw new DataSourceRoutingException("Tenant '" + lookupKey + "' is not registered.");
+		}
+		if (Objects.nonNull(key) && key.equalsIgnoreCase(dataSourceContextManager.getCurrentlyActiveLookpKey())) {
+			throw new DataSourceRoutingException("Tenant '" + key + "' is the active datasource.");
+		}
+		lostBeforeTarget = getLostWrites();
+		if (Objects.nonNull(key)) {
+			startWorker();
+		}
+		targetLookupKey = key;
+		LOG.info("Shadow writes {}.", Objects.isNull(key) ? "disabled" : "go to '" + key + "'");
+	}
+
+	/*
+	 * Queues the students once the surrounding transaction commits, or right
+	 * away when there is none. Only writes to the globally active datasource
+	 * are shadowed; requests pinned to a tenant are left alone.
+	 */
+	public void shadow(List<Student> students) {
+		String target = targetLookupKey;
+		if (Objects.isNull(target) || students.isEmpty()) {
+			return;
+		}
+		String activeKey = dataSourceContextManager.getCurrentlyActiveLookpKey();
+		if (target.equalsIgnoreCase(activeKey)
+				|| !activeKey.equalsIgnoreCase(dataSourceContextManager.getEffectiveLookupKey())) {
+			return;
+		}
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					enqueue(students, target);
+				}
+			});
+		} else {
+			enqueue(students, target);
+		}
+	}
+
+	private void enqueue(List<Student> students, String target) {
+		long committedAt = System.nanoTime();
+		for (Student student : students) {
+			pending.incrementAndGet();
+			if (queue.offer(new ShadowWrite(target, student, committedAt))) {
+				queuedWrites.increment();
+			} else {
+				droppedWrites.increment();
+				written(1);
+			}
+		}
+	}
+
+	/*
+	 * Waits until every queued write has been applied or given up on. The
+	 * worker wakes the waiters up as soon as the last pending write is done.
+	 */
+	public boolean awaitCaughtUp(long timeout, TimeUnit unit) {
+		CompletableFuture<Void> waiter = new CompletableFuture<>();
+		caughtUpWaiters.add(waiter);
+		if (isCaughtUp()) {
+			caughtUpWaiters.remove(waiter);
+			return true;
+		}
+		try {
+			waiter.get(timeout, unit);
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} catch (ExecutionException | TimeoutException e) {
+			return false;
+		} finally {
+			caughtUpWaiters.remove(waiter);
+		}
+	}
+
+	private void written(int writes) {
+		if (pending.addAndGet(-writes) == 0) {
+			CompletableFuture<Void> waiter;
+			while ((waiter = caughtUpWaiters.poll()) != null) {
+				waiter.complete(null);
+			}
+		}
+	}
+
+	/*
+	 * Called by a migration to the given key while writes are held and the
+	 * source has drained, before routing flips. Shadowing stops once every
+	 * pending write is applied; the worker is stopped and only then are the
+	 * identity columns of the target moved past the shadowed ids. Refuses,
+	 * and keeps shadowing, if writes are still pending after the catch-up
+	 * timeout or some were dropped or failed, unless the migration reconciled
+	 * the target with a data sync. Returns false if the key is not the target.
+	 * A handover counts as a data sync for the caches and counters of the target.
+	 */
+	public boolean handOver(String lookupKey, boolean reconciled) {
+		String target = targetLookupKey;
+		if (Objects.isNull(target) || !target.equalsIgnoreCase(lookupKey)) {
+			return false;
+		}
+		targetLookupKey = null;
+		try {
+			if (!awaitCaughtUp(catchUpTimeoutMillis, TimeUnit.MILLISECONDS)) {
+				throw new DataSourceRoutingException("Shadow writes to '" + target + "' did not catch up within "
+						+ catchUpTimeoutMillis + " ms. Pending writes = " + pending.get() + ".");
+			}
+			long lost = getLostWrites() - lostBeforeTarget;
+			if (lost > 0 && !reconciled) {
+				throw new DataSourceRoutingException(lost + " shadow writes to '" + target
+						+ "' were dropped or failed. Reconcile it with a data sync first.");
+			}
+			stopWorker();
+			DataSynchronizer.restartIdentities(tenantDataSourceRegistry.getDataSource(target));
+		} catch (RuntimeException e) {
+			resume(target);
+			throw e;
+		}
+		eventPublisher.publishEvent(
+				new DataSyncedEvent(this, dataSourceContextManager.getCurrentlyActiveLookpKey(), target));
+		LOG.info("Shadow target '{}' caught up and handed over. Shadow writes disabled.", target);
+		return true;
+	}
+
+	/*
+	 * Shadows to the given key again after handOver, if the migration did not
+	 * switch after all. Nothing was written in between, since writes were held.
+	 */
+	public void resume(String lookupKey) {
+		startWorker();
+		targetLookupKey = TenantDataSourceRegistry.normalize(lookupKey);
+		LOG.info("Shadow writes go to '{}' again.", targetLookupKey);
+	}
+
+	private synchronized void startWorker() {
+		if (Objects.isNull(worker)) {
+			worker = new CustomizableThreadFactory("shadow-writer-").newThread(this::drain);
+			worker.setDaemon(true);
+			worker.start();
+		}
+	}
+
+	private synchronized void stopWorker() {
+		Thread current = worker;
+		worker = null;
+		if (Objects.nonNull(current)) {
+			current.interrupt();
+			try {
+				current.join(TimeUnit.SECONDS.toMillis(5));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void drain() {
+		List<ShadowWrite> batch = new ArrayList<>(batchSize);
+		while (!Thread.currentThread().isInterrupted()) {
+			try {
+				ShadowWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+				if (Objects.isNull(first)) {
+					continue;
+				}
+				batch.add(first);
+				queue.drainTo(batch, batchSize - 1);
+				applyGroupedByTarget(batch);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} finally {
+				if (!batch.isEmpty()) {
+					written(batch.size());
+					batch.clear();
+				}
+			}
+		}
+	}
+
+	private void applyGroupedByTarget(List<ShadowWrite> batch) throws InterruptedException {
+		int from = 0;
+		for (int i = 1; i <= batch.size(); i++) {
+			if (i == batch.size() || !batch.get(i).target.equals(batch.get(from).target)) {
+				applyWithRetry(batch.subList(from, i));
+				from = i;
+			}
+		}
+	}
+
+	private void applyWithRetry(List<ShadowWrite> writes) throws InterruptedException {
+		String target = writes.get(0).target;
+		for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+			try {
+				apply(tenantDataSourceRegistry.getDataSource(target), writes);
+				appliedWrites.add(writes.size());
+				batches.increment();
+				lastApplyLagMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - writes.get(0).committedAtNanos);
+				return;
+			} catch (Exception e) {
+				lastError = e.getMessage();
+				LOG.warn("Could not apply {} shadow writes to '{}' (attempt {} of {}). Error - {}", writes.size(),
+						target, attempt, maxAttempts, e.getMessage());
+				if (attempt < maxAttempts) {
+					Thread.sleep(retryBackoffMillis * attempt);
+				}
+			}
+		}
+		failedWrites.add(writes.size());
+	}
+
+	private static void apply(LeaseTrackingDataSource dataSource, List<ShadowWrite> writes) throws SQLException {
+		try (Connection connection = dataSource.getConnection()) {
+			boolean autoCommit = connection.getAutoCommit();
+			connection.setAutoCommit(false);
+			try {
+				executeBatch(connection, Queries.SHADOW_DELETE_ADDRESS, writes, (ps, student) -> {
+					ps.setLong(1, student.getId());
+				});
+				executeBatch(connection, Queries.SHADOW_DELETE_STUDENT, writes, (ps, student) -> {
+					ps.setLong(1, student.getId());
+				});
+				executeBatch(connection, Queries.SYNC_INSERT_STUDENT, writes, (ps, student) -> {
+					ps.setLong(1, student.getId());
+					ps.setString(2, student.getName());
+				});
+				executeBatch(connection, Queries.SYNC_INSERT_ADDRESS, writes, (ps, student) -> {
+					ps.setLong(1, student.getAddress().getId());
+					ps.setLong(2, student.getId());
+					ps.setString(3, student.getAddress().getAddress());
+				});
+				connection.commit();
+			} catch (SQLException | RuntimeException e) {
+				connection.rollback();
+				throw e;
+			} finally {
+				connection.setAutoCommit(autoCommit);
+			}
+		}
+	}
+
+	private static void executeBatch(Connection connection, String query, List<ShadowWrite> writes,
+			StatementBinder binder) throws SQLException {
+		try (PreparedStatement ps = connection.prepareStatement(query)) {
+			for (ShadowWrite write : writes) {
+				binder.bind(ps, write.student);
+				ps.addBatch();
+			}
+			ps.executeBatch();
+		}
+	}
+
+	public boolean isEnabled() {
+		return Objects.nonNull(targetLookupKey);
+	}
+
+	public boolean isCaughtUp() {
+		return pending.get() == 0;
+	}
+
+	public int getQueueDepth() {
+		return queue.size();
+	}
+
+	/*
+	 * Age of the oldest write still waiting, 0 when the queue is empty.
+	 */
+	public long getLagMillis() {
+		ShadowWrite oldest = queue.peek();
+		return Objects.isNull(oldest) ? 0
+				: TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest.committedAtNanos);
+	}
+
+	public long getLastApplyLagMillis() {
+		return lastApplyLagMillis;
+	}
+
+	public long getQueuedWrites() {
+		return queuedWrites.sum();
+	}
+
+	public long getAppliedWrites() {
+		return appliedWrites.sum();
+	}
+
+	public long getFailedWrites() {
+		return failedWrites.sum();
+	}
+
+	public long getDroppedWrites() {
+		return droppedWrites.sum();
+	}
+
+	private long getLostWrites() {
+		return droppedWrites.sum() + failedWrites.sum();
+	}
+
+	public long getBatches() {
+		return batches.sum();
+	}
+
+	public String getLastError() {
+		return lastError;
+	}
+
+	@PreDestroy
+	public synchronized void destroy() {
+		Thread current = worker;
+		worker = null;
+		if (Objects.nonNull(current)) {
+			current.interrupt();
+		}
+	}
+
+	@FunctionalInterface
+	private interface StatementBinder {
+		void bind(PreparedStatement ps, Student student) throws SQLException;
+	}
+
+	private static final class ShadowWrite {
+
+		private final String target;
+		private final Student student;
+		private final long committedAtNanos;
+
+		ShadowWrite(String target, Student student, long committedAtNanos) {
+			this.target = target;
+			this.student = student;
+			this.committedAtNanos = committedAtNanos;
+		}
+	}
+}
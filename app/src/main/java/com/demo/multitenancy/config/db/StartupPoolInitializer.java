@@ -0,0 +1,157 @@
+package com.demo.multitenancy.config.db;
+
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import com.demo.multitenancy.config.SchedulerConfig;
+import com.demo.multitenancy.metrics.StartupTimings;
+import com.zaxxer.hikari.HikariConfig;
+
+/*
+ * Keeps pool setup off the startup path. Pools are opened without waiting for
+ * a first connection (initialization-fail-timeout = -1), and the first
+ * connection of the active pool is validated on its own thread while the rest
+ * of the context refreshes. The refresh only waits for that validation at its
+ * very end, and fails startup with it when fail-fast is on.
+ *
+ * Standby pools are not opened at startup at all: the configured ones are
+ * opened in the background once the application is ready, any other on the
+ * first migration to it.
+ */
+@Component
+public class StartupPoolInitializer {
+
+	private static final Logger LOG = LoggerFactory.getLogger(StartupPoolInitializer.class);
+
+	@Autowired
+	private DataSourceContextManager dataSourceContextManager;
+
+	@Autowired
+	private TenantDataSourceRegistry tenantDataSourceRegistry;
+
+	@Autowired
+	private StartupTimings startupTimings;
+
+	@Autowired
+	private HikariConfig hikariConfig;
+
+	@Value("${app.datasource.startup.fail-fast:true}")
+	private boolean failFast;
+
+	@Value("${app.datasource.standby.lookup-keys:}")
+	private String[] standbyLookupKeys;
+
+	@Value("${app.datasource.standby.open-delay-millis:0}")
+	private long standbyOpenDelayMillis;
+
+	private CompletableFuture<Void> activePoolValidation;
+	private List<String> standbys = Collections.emptyList();
+	private final ScheduledExecutorService standbyScheduler = SchedulerConfig.dedicatedScheduler("standby-opener");
+
+	@PostConstruct
+	public void init() {
+		standbys = Arrays.stream(standbyLookupKeys).map(TenantDataSourceRegistry::normalize).filter(Objects::nonNull)
+				.distinct().collect(Collectors.toList());
+		standbys.stream().filter(key -> !tenantDataSourceRegistry.contains(key)).findAny().ifPresent(key -> {
+			throw new IllegalStateException("Standby '" + key + "' is not a registered tenant.");
+		});
+		LeaseTrackingDataSource dataSource = dataSourceContextManager.getActiveDataSource();
+		activePoolValidation = new CompletableFuture<>();
+		Thread validator = new CustomizableThreadFactory("pool-validator-").newThread(() -> {
+			try {
+				validate(dataSource);
+				activePoolValidation.complete(null);
+			} catch (Exception e) {
+				activePoolValidation.completeExceptionally(e);
+			}
+		});
+		validator.setDaemon(true);
+		validator.start();
+	}
+
+	@PreDestroy
+	public void destroy() {
+		standbyScheduler.shutdownNow();
+	}
+
+	private void validate(LeaseTrackingDataSource dataSource) throws Exception {
+		long start = System.nanoTime();
+		int timeoutSeconds = (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(hikariConfig.getValidationTimeout()));
+		try (Connection connection = dataSource.getConnection()) {
+			if (!connection.isValid(timeoutSeconds)) {
+				throw new IllegalStateException("First connection of pool '" + dataSource.getPoolName()
+						+ "' is not valid.");
+			}
+		}
+		long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		startupTimings.activePoolValidated(millis);
+		LOG.info("Validated first connection of active pool '{}' in {} ms.", dataSource.getPoolName(), millis);
+	}
+
+	@EventListener
+	public void onContextRefreshed(ContextRefreshedEvent event) {
+		if (activePoolValidation.isDone() && !activePoolValidation.isCompletedExceptionally()) {
+			return;
+		}
+		try {
+			activePoolValidation.get(hikariConfig.getConnectionTimeout() + hikariConfig.getValidationTimeout(),
+					TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException | TimeoutException e) {
+			Throwable cause = Objects.nonNull(e.getCause()) ? e.getCause() : e;
+			if (failFast) {
+				throw new IllegalStateException("Active datasource '"
+						+ dataSourceContextManager.getCurrentlyActiveLookpKey() + "' is not reachable.", cause);
+			}
+			LOG.error("Active datasource '{}' is not reachable. Starting anyway. Error - {}",
+					dataSourceContextManager.getCurrentlyActiveLookpKey(), cause.getMessage());
+		}
+	}
+
+	@EventListener
+	public void onApplicationReady(ApplicationReadyEvent event) {
+		for (String key : standbys) {
+			standbyScheduler.schedule(() -> openStandby(key), standbyOpenDelayMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/*
+	 * A standby that cannot be reached is only logged; the migration to it
+	 * tries again.
+	 */
+	private void openStandby(String key) {
+		if (key.equals(dataSourceContextManager.getCurrentlyActiveLookpKey())) {
+			return;
+		}
+		try {
+			tenantDataSourceRegistry.getDataSource(key);
+			startupTimings.standbyOpened(key);
+			LOG.info("Opened standby connection pool of tenant '{}' in the background.", key);
+		} catch (Exception e) {
+			LOG.warn("Could not open standby connection pool of tenant '{}'. Error - {}", key, e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package com.demo.multitenancy.config.db;
+
+import java.util.concurrent.Callable;
+
+/*
+ * Request scoped tenant lookup key. When set it takes precedence over the
+ * globally active lookup key held by DataSourceContextManager.
+ */
+public final class TenantContextHolder {
+
+	private static final ThreadLocal<String> CURRENT_TENANT = new ThreadLocal<>();
+
+	private TenantContextHolder() {}
+
+	public static void setTenant(String lookupKey) {
+		CURRENT_TENANT.set(TenantDataSourceRegistry.normalize(lookupKey));
+	}
+
+	public static String getTenant() {
+		return CURRENT_TENANT.get();
+	}
+
+	public static void clear() {
+		CURRENT_TENANT.remove();
+	}
+
+	/*
+	 * Captures the tenant of the calling thread so that it is visible to the
+	 * thread running the task, and restores that thread's own value afterwards.
+	 */
+	public static Runnable wrap(Runnable task) {
+		String tenant = getTenant();
+		return () -> {
+			String previous = getTenant();
+			CURRENT_TENANT.set(tenant);
+			try {
+				task.run();
+			} finally {
+				CURRENT_TENANT.set(previous);
+			}
+		};
+	}
+
+	public static <T> Callable<T> wrap(Callable<T> task) {
+		String tenant = getTenant();
+		return () -> {
+			String previous = getTenant();
+			CURRENT_TENANT.set(tenant);
+			try {
+				return task.call();
+			} finally {
+				CURRENT_TENANT.set(previous);
+			}
+		};
+	}
+}
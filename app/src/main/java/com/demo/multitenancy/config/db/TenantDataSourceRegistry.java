@@ -0,0 +1,445 @@
+package com.demo.multitenancy.config.db;
+
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import com.demo.multitenancy.config.SchedulerConfig;
+import com.demo.multitenancy.event.PoolResizedEvent;
+import com.demo.multitenancy.exception.DataSourceRoutingException;
+import com.demo.multitenancy.metrics.LatencyMetrics;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+
+/*
+ * Keeps one entry per tenant configured under app.datasource.config and opens
+ * its Hikari pool on first use. The sum of the maximum pool sizes of all open
+ * pools never exceeds the global connection budget; idle pools are closed in
+ * LRU order to make room, and in the background once they exceed the idle
+ * timeout. Neither the active tenant nor the tenants of a running migration
+ * are evicted or removed, and a pool is never closed under a holder. Pools
+ * can be resized at runtime; the new size is kept for when an evicted pool is
+ * opened again.
+ */
+@Component
+public class TenantDataSourceRegistry {
+
+	private static final Logger LOG = LoggerFactory.getLogger(TenantDataSourceRegistry.class);
+
+	@Autowired
+	private DatasourceConfig datasourceConfig;
+
+	@Autowired
+	private HikariConfig hikariConfig;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Autowired
+	private LatencyMetrics latencyMetrics;
+
+	@Autowired
+	private ObjectProvider<MigrationOrchestrator> migrationOrchestratorProvider;
+
+	@Value("${app.datasource.tenants.max-total-connections:100}")
+	private int maxTotalConnections;
+
+	@Value("${app.datasource.tenants.idle-timeout-millis:600000}")
+	private long idleTimeoutMillis;
+
+	@Value("${app.datasource.tenants.idle-check-interval-millis:60000}")
+	private long idleCheckIntervalMillis;
+
+	private final Map<String, Tenant> tenants = new ConcurrentHashMap<>();
+	private final ScheduledExecutorService evictionScheduler = SchedulerConfig.dedicatedScheduler("tenant-eviction");
+	private volatile String activeLookupKey;
+	private volatile MigrationOrchestrator migrationOrchestrator;
+	private int allocatedConnections;
+
+	@PostConstruct
+	public void init() {
+		Optional.ofNullable(datasourceConfig.getConfig())
+				.ifPresent(config -> config.forEach(this::register));
+		evictionScheduler.scheduleWithFixedDelay(this::evictIdleTenants, idleCheckIntervalMillis,
+				idleCheckIntervalMillis, TimeUnit.MILLISECONDS);
+		LOG.info("Registered tenants: {}. Connection budget = {}", getLookupKeys(), maxTotalConnections);
+	}
+
+	/*
+	 * The orchestrator depends on the registry, so it is only looked up once
+	 * the context is up.
+	 */
+	@EventListener
+	public void onContextRefreshed(ContextRefreshedEvent event) {
+		migrationOrchestrator = migrationOrchestratorProvider.getIfAvailable();
+	}
+
+	public static String normalize(String lookupKey) {
+		return StringUtils.hasText(lookupKey) ? lookupKey.trim().toLowerCase() : null;
+	}
+
+	public boolean contains(String lookupKey) {
+		String key = normalize(lookupKey);
+		return Objects.nonNull(key) && tenants.containsKey(key);
+	}
+
+	public Set<String> getLookupKeys() {
+		return new TreeSet<>(tenants.keySet());
+	}
+
+	public void register(String lookupKey, DbConfigProperties properties) {
+		String key = normalize(lookupKey);
+		if (Objects.isNull(key) || Objects.isNull(properties)) {
+			throw new DataSourceRoutingException("Tenant lookup key and properties cannot be empty.");
+		}
+		if (tenants.putIfAbsent(key, new Tenant(key, properties)) != null) {
+			throw new DataSourceRoutingException("Tenant '" + key + "' is already registered.");
+		}
+	}
+
+	/*
+	 * Removes an idle tenant. Its pool is retired like an evicted one, so
+	 * removal is refused while a lease is open or being acquired; whoever still
+	 * holds on to the pool afterwards is told the tenant is not registered.
+	 */
+	public void remove(String lookupKey) {
+		Tenant tenant = getTenant(lookupKey);
+		if (tenant.key.equals(activeLookupKey)) {
+			throw new DataSourceRoutingException("Tenant '" + tenant.key + "' is currently active and cannot be removed.");
+		}
+		if (isMigrating(tenant.key)) {
+			throw new DataSourceRoutingException("Tenant '" + tenant.key + "' is part of a running migration and cannot be removed.");
+		}
+		LeaseTrackingDataSource dataSource;
+		int connections;
+		synchronized (tenant) {
+			dataSource = tenant.dataSource;
+			if (Objects.nonNull(dataSource) && !dataSource.retire(() -> getDataSource(tenant.key))) {
+				throw new DataSourceRoutingException("Tenant '" + tenant.key + "' has connections in use and cannot be removed.");
+			}
+			tenant.removed = true;
+			tenants.remove(tenant.key, tenant);
+			connections = tenant.allocatedConnections;
+			tenant.dataSource = null;
+			tenant.allocatedConnections = 0;
+		}
+		release(connections);
+		if (Objects.nonNull(dataSource)) {
+			closePool(dataSource);
+		}
+	}
+
+	/*
+	 * Returns the pool of the given tenant, opening it if needed. Access to an
+	 * already open pool only touches the LRU timestamp. An evicted pool that is
+	 * still referenced somewhere is retired rather than closed under its holder,
+	 * and passes them on to this method to get the reopened pool.
+	 */
+	public LeaseTrackingDataSource getDataSource(String lookupKey) {
+		Tenant tenant = getTenant(lookupKey);
+		tenant.lastAccessNanos = System.nanoTime();
+		LeaseTrackingDataSource dataSource = tenant.dataSource;
+		return Objects.nonNull(dataSource) && !dataSource.isRetired() ? dataSource : open(tenant);
+	}
+
+	public LeaseTrackingDataSource getDataSourceIfOpen(String lookupKey) {
+		LeaseTrackingDataSource dataSource = getTenant(lookupKey).dataSource;
+		return Objects.nonNull(dataSource) && !dataSource.isRetired() ? dataSource : null;
+	}
+
+	/*
+	 * Resizes a live pool through its HikariConfigMXBean, or only records the
+	 * size if the pool is not open. Growing reserves the difference against the
+	 * connection budget first and may evict idle pools to make room. The tenant
+	 * lock is not held while reserving; if the pool changed in the meantime the
+	 * difference is worked out again, and anything reserved in excess released.
+	 */
+	public void resize(String lookupKey, int maximumPoolSize, int minimumIdle) {
+		if (maximumPoolSize < 1 || minimumIdle < 0 || minimumIdle > maximumPoolSize) {
+			throw new DataSourceRoutingException("Invalid pool size: maximumPoolSize = " + maximumPoolSize
+					+ ", minimumIdle = " + minimumIdle + ".");
+		}
+		Tenant tenant = getTenant(lookupKey);
+		int reserved = 0;
+		while (true) {
+			int needed;
+			synchronized (tenant) {
+				LeaseTrackingDataSource dataSource = tenant.dataSource;
+				needed = Objects.nonNull(dataSource) ? maximumPoolSize - tenant.allocatedConnections : 0;
+				if (needed <= reserved) {
+					if (Objects.nonNull(dataSource)) {
+						HikariConfigMXBean pool = dataSource.getHikariDataSource().getHikariConfigMXBean();
+						if (maximumPoolSize < pool.getMinimumIdle()) {
+							pool.setMinimumIdle(minimumIdle);
+							pool.setMaximumPoolSize(maximumPoolSize);
+						} else {
+							pool.setMaximumPoolSize(maximumPoolSize);
+							pool.setMinimumIdle(minimumIdle);
+						}
+						tenant.allocatedConnections = maximumPoolSize;
+					}
+					tenant.maximumPoolSize = maximumPoolSize;
+					tenant.minimumIdle = minimumIdle;
+				}
+			}
+			if (needed <= reserved) {
+				release(reserved - needed);
+				break;
+			}
+			try {
+				reserve(tenant, needed - reserved);
+			} catch (RuntimeException e) {
+				release(reserved);
+				throw e;
+			}
+			reserved = needed;
+		}
+		LOG.info("Connection pool of tenant '{}' resized: maximumPoolSize = {}, minimumIdle = {}", tenant.key,
+				maximumPoolSize, minimumIdle);
+		eventPublisher.publishEvent(new PoolResizedEvent(this, tenant.key, maximumPoolSize, minimumIdle));
+	}
+
+	public int getMaximumPoolSize(String lookupKey) {
+		Tenant tenant = getTenant(lookupKey);
+		return tenant.maximumPoolSize > 0 ? tenant.maximumPoolSize : hikariConfig.getMaximumPoolSize();
+	}
+
+	public int getMinimumIdle(String lookupKey) {
+		Tenant tenant = getTenant(lookupKey);
+		return tenant.maximumPoolSize > 0 ? tenant.minimumIdle : hikariConfig.getMinimumIdle();
+	}
+
+	public Map<String, Integer> getPoolSizes() {
+		Map<String, Integer> poolSizes = new LinkedHashMap<>();
+		for (String key : getLookupKeys()) {
+			poolSizes.put(key, getMaximumPoolSize(key));
+		}
+		return poolSizes;
+	}
+
+	public void setActiveLookupKey(String lookupKey) {
+		this.activeLookupKey = normalize(lookupKey);
+	}
+
+	public Map<String, Integer> getOpenLeases() {
+		Map<String, Integer> openLeases = new LinkedHashMap<>();
+		for (String key : getLookupKeys()) {
+			LeaseTrackingDataSource dataSource = tenants.get(key).dataSource;
+			if (Objects.nonNull(dataSource)) {
+				openLeases.put(key, dataSource.getOpenLeases());
+			}
+		}
+		return openLeases;
+	}
+
+	public int getOpenPools() {
+		return (int) tenants.values().stream().filter(tenant -> Objects.nonNull(tenant.dataSource)).count();
+	}
+
+	public synchronized int getAllocatedConnections() {
+		return allocatedConnections;
+	}
+
+	public int getMaxTotalConnections() {
+		return maxTotalConnections;
+	}
+
+	@PreDestroy
+	public void destroy() {
+		evictionScheduler.shutdownNow();
+		tenants.values().forEach(this::close);
+	}
+
+	private Tenant getTenant(String lookupKey) {
+		String key = normalize(lookupKey);
+		Tenant tenant = Objects.isNull(key) ? null : tenants.get(key);
+		if (Objects.isNull(tenant)) {
+			throw new DataSourceRoutingException("Tenant '" + lookupKey + "' is not registered.");
+		}
+		return tenant;
+	}
+
+	private LeaseTrackingDataSource open(Tenant tenant) {
+		synchronized (tenant) {
+			if (Objects.nonNull(tenant.dataSource)) {
+				return tenant.dataSource;
+			}
+			if (tenant.removed) {
+				throw new DataSourceRoutingException("Tenant '" + tenant.key + "' is not registered.");
+			}
+			HikariConfig config = createHikariConfig(tenant);
+			reserve(tenant, config.getMaximumPoolSize());
+			try {
+				LOG.info("Opening connection pool '{}' for tenant '{}'...", config.getPoolName(), tenant.key);
+				tenant.dataSource = new LeaseTrackingDataSource(new HikariDataSource(config), latencyMetrics);
+				tenant.allocatedConnections = config.getMaximumPoolSize();
+				return tenant.dataSource;
+			} catch (RuntimeException e) {
+				release(config.getMaximumPoolSize());
+				throw new DataSourceRoutingException("Could not open connection pool for tenant '" + tenant.key + "'.", e);
+			}
+		}
+	}
+
+	private HikariConfig createHikariConfig(Tenant tenant) {
+		HikariConfig config = new HikariConfig();
+		hikariConfig.copyStateTo(config);
+		config.setPoolName("Pool-" + StringUtils.capitalize(tenant.key));
+		config.setDriverClassName(tenant.properties.getDriver());
+		config.setJdbcUrl(tenant.properties.getUrl());
+		config.setUsername(tenant.properties.getUsername());
+		config.setPassword(tenant.properties.getPassword());
+		if (tenant.maximumPoolSize > 0) {
+			config.setMaximumPoolSize(tenant.maximumPoolSize);
+			config.setMinimumIdle(tenant.minimumIdle);
+		}
+		return config;
+	}
+
+	/*
+	 * Makes room in the connection budget by closing idle pools, least
+	 * recently used first. Victims are only picked under the registry lock and
+	 * closed after it is released; a victim that got leased in the meantime
+	 * is skipped.
+	 */
+	private void reserve(Tenant requester, int connections) {
+		Set<Tenant> skipped = new HashSet<>();
+		while (true) {
+			Tenant victim;
+			synchronized (this) {
+				if (allocatedConnections + connections <= maxTotalConnections) {
+					allocatedConnections += connections;
+					return;
+				}
+				victim = tenants.values().stream()
+						.filter(tenant -> tenant != requester && !skipped.contains(tenant) && isEvictable(tenant))
+						.min(Comparator.comparingLong(tenant -> tenant.lastAccessNanos))
+						.orElseThrow(() -> new DataSourceRoutingException("Connection budget of " + maxTotalConnections
+								+ " exhausted. Could not open connection pool for tenant '" + requester.key + "'."));
+			}
+			LOG.info("Evicting least recently used connection pool of tenant '{}' to stay within the connection budget.",
+					victim.key);
+			if (!evict(victim)) {
+				skipped.add(victim);
+			}
+		}
+	}
+
+	private synchronized void release(int connections) {
+		allocatedConnections -= connections;
+	}
+
+	private boolean isEvictable(Tenant tenant) {
+		LeaseTrackingDataSource dataSource = tenant.dataSource;
+		return Objects.nonNull(dataSource) && !tenant.key.equals(activeLookupKey) && dataSource.getOpenLeases() == 0
+				&& !isMigrating(tenant.key);
+	}
+
+	/*
+	 * Both ends of a running migration stay open from the start of the job
+	 * until it is over, also between data sync chunks when no lease is open.
+	 */
+	private boolean isMigrating(String key) {
+		MigrationOrchestrator orchestrator = migrationOrchestrator;
+		MigrationJob job = Objects.nonNull(orchestrator) ? orchestrator.getCurrentJob() : null;
+		return Objects.nonNull(job) && !job.isDone()
+				&& (key.equals(job.getLookupKey()) || key.equals(job.getSourceLookupKey()));
+	}
+
+	private void evictIdleTenants() {
+		long now = System.nanoTime();
+		for (Tenant tenant : tenants.values()) {
+			if (isEvictable(tenant) && now - tenant.lastAccessNanos > TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis)) {
+				LOG.info("Closing idle connection pool of tenant '{}'.", tenant.key);
+				evict(tenant);
+			}
+		}
+	}
+
+	/*
+	 * Only open nests locks: it holds the tenant being opened while reserving,
+	 * which takes the registry lock and then, without it, the lock of an open
+	 * victim. Nothing holds an open tenant while waiting for another lock, and
+	 * the registry lock is never held while taking a tenant lock or closing a
+	 * pool. The budget is released after the tenant lock.
+	 */
+	private void close(Tenant tenant) {
+		detach(tenant, false);
+	}
+
+	/*
+	 * Closes the pool only if it is still evictable once the tenant is locked
+	 * and it can be retired, i.e. no lease is open or being acquired.
+	 */
+	private boolean evict(Tenant tenant) {
+		return detach(tenant, true);
+	}
+
+	private boolean detach(Tenant tenant, boolean evict) {
+		LeaseTrackingDataSource dataSource;
+		int connections;
+		synchronized (tenant) {
+			dataSource = tenant.dataSource;
+			if (Objects.isNull(dataSource)) {
+				return false;
+			}
+			if (evict && (!isEvictable(tenant) || !dataSource.retire(() -> getDataSource(tenant.key)))) {
+				return false;
+			}
+			connections = tenant.allocatedConnections;
+			tenant.dataSource = null;
+			tenant.allocatedConnections = 0;
+		}
+		release(connections);
+		closePool(dataSource);
+		return true;
+	}
+
+	private void closePool(LeaseTrackingDataSource dataSource) {
+		try {
+			dataSource.close();
+		} catch (Exception e) {
+			LOG.error("Error occurred while closing connection pool '{}'. Error - {}", dataSource.getPoolName(),
+					e.getMessage());
+		}
+	}
+
+	private static class Tenant {
+		private final String key;
+		private final DbConfigProperties properties;
+		private volatile LeaseTrackingDataSource dataSource;
+		private volatile long lastAccessNanos = System.nanoTime();
+		private int allocatedConnections;
+		private volatile int maximumPoolSize;
+		private volatile int minimumIdle;
+		private boolean removed;
+
+		Tenant(String key, DbConfigProperties properties) {
+			this.key = key;
+			this.properties = properties;
+		}
+	}
+}
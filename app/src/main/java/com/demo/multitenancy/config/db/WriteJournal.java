@@ -0,0 +1,787 @@
+package com.demo.multitenancy.config.db;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.demo.multitenancy.cache.RecordCounters;
+import com.demo.multitenancy.cache.StudentCache;
+import com.demo.multitenancy.event.DataSourceMigratedEvent;
+import com.demo.multitenancy.exception.DataSourceRoutingException;
+import com.demo.multitenancy.model.Address;
+import com.demo.multitenancy.model.PendingWrite;
+import com.demo.multitenancy.model.Student;
+import com.demo.multitenancy.util.Queries;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/*
+ * Absorbs student writes while a migration has the gate closed. They are
+ * appended to a memory-mapped, append-only file and acknowledged as pending,
+ * then replayed in batches into the active datasource once the gate opens.
+ *
+ * Every record carries a sequence number and a CRC32 over the journal id and
+ * its body, and its length is written last. A record torn by a crash fails
+ * the check and ends the journal when it is recovered on startup. Writes to
+ * the mapped file survive a crash of the process without forcing it;
+ * force-on-append also covers a crash of the host, at the cost of a sync per
+ * write.
+ *
+ * Each replayed batch records the sequences it applied in the
+ * write_journal_applied table of the datasource, in the same transaction as
+ * the rows, and the header keeps the last replayed sequence. Before a batch
+ * is committed the header also records the datasource it goes to. A batch
+ * replayed again after a crash between the commit and the header update
+ * skips the sequences already applied there. If another datasource has
+ * become active meanwhile, those sequences are first copied into its applied
+ * table, so they stay skipped whatever crashes next. Once everything is
+ * replayed the journal starts over under a new id.
+ *
+ * When a batch fails on a constraint or other non-transient error its writes
+ * are retried one by one. Those that still fail are appended to the
+ * dead-letter file next to the journal, one JSON object per line, and replay
+ * carries on past them. Any other error stops the replay until the next
+ * trigger.
+ */
+@Component
+public class WriteJournal {
+
+	private static final Logger LOG = LoggerFactory.getLogger(WriteJournal.class);
+
+	private static final int MAGIC = 0x534A524E;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 64;
+	private static final int JOURNAL_ID_OFFSET = 8;
+	private static final int REPLAYED_OFFSET = 16;
+	private static final int IN_FLIGHT_TARGET_OFFSET = 24;
+	private static final int RECORD_HEADER_SIZE = 8;
+
+	@Value("${app.datasource.write-journal.enabled:false}")
+	private boolean enabled;
+
+	@Value("${app.datasource.write-journal.path:./journal/student-writes.journal}")
+	private String path;
+
+	@Value("${app.datasource.write-journal.capacity-bytes:67108864}")
+	private int capacityBytes;
+
+	@Value("${app.datasource.write-journal.force-on-append:false}")
+	private boolean forceOnAppend;
+
+	@Value("${app.datasource.write-journal.replay-batch-size:500}")
+	private int replayBatchSize;
+
+	@Value("${app.datasource.write-journal.replay-interval-millis:1000}")
+	private long replayIntervalMillis;
+
+	@Autowired
+	private MigrationGate migrationGate;
+
+	@Autowired
+	private DataSourceContextManager dataSourceContextManager;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private StudentCache studentCache;
+
+	@Autowired
+	private RecordCounters recordCounters;
+
+	@Autowired
+	private ShadowWriter shadowWriter;
+
+	@Autowired
+	private TenantDataSourceRegistry tenantDataSourceRegistry;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	@Qualifier("sharedScheduler")
+	private ScheduledExecutorService scheduler;
+
+	private FileChannel channel;
+	private FileChannel deadLetterChannel;
+	private Path deadLetterPath;
+	private MappedByteBuffer buffer;
+	private ExecutorService replayExecutor;
+	private ScheduledFuture<?> replayTask;
+	private final AtomicBoolean replayQueued = new AtomicBoolean();
+	private final Set<String> preparedLookupKeys = new HashSet<>();
+
+	private long journalId;
+	private volatile long lastSequence;
+	private volatile int writePosition;
+	private volatile long replayedSequence;
+	private int replayPosition;
+
+	private final LongAdder appendedWrites = new LongAdder();
+	private final LongAdder rejectedWrites = new LongAdder();
+	private final LongAdder replayedWrites = new LongAdder();
+	private final LongAdder duplicateWrites = new LongAdder();
+	private final LongAdder replayBatches = new LongAdder();
+	private final LongAdder deadLetterWrites = new LongAdder();
+	private volatile long recoveredWrites;
+	private volatile long lastReplayWrites;
+	private volatile long lastReplayMillis;
+	private volatile long lastReplayWritesPerSecond;
+	private volatile String lastError;
+
+	@PostConstruct
+	public void init() throws IOException {
+		if (!enabled) {
+			return;
+		}
+		Path file = Paths.get(path);
+		if (Objects.nonNull(file.toAbsolutePath().getParent())) {
+			Files.createDirectories(file.toAbsolutePath().getParent());
+		}
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		long size = Math.max(channel.size(), capacityBytes);
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+		recover();
+		deadLetterPath = Paths.get(path + ".dead-letter");
+		deadLetterChannel = FileChannel.open(deadLetterPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND);
+		try (Stream<String> lines = Files.lines(deadLetterPath, StandardCharsets.UTF_8)) {
+			deadLetterWrites.add(lines.count());
+		}
+		replayExecutor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("write-journal-"));
+		replayTask = scheduler.scheduleWithFixedDelay(this::triggerReplay, replayIntervalMillis, replayIntervalMillis,
+				TimeUnit.MILLISECONDS);
+		LOG.info("Write journal {} opened with {} of {} bytes used, {} writes to replay.", file.toAbsolutePath(),
+				writePosition, buffer.capacity(), getPendingWrites());
+	}
+
+	/*
+	 * Reads the header and scans the records from the start. The journal ends
+	 * at the first record that is missing, torn or out of sequence; whatever
+	 * follows it is zeroed.
+	 */
+	private void recover() {
+		if (buffer.getInt(0) != MAGIC) {
+			startOver();
+			return;
+		}
+		journalId = buffer.getLong(JOURNAL_ID_OFFSET);
+		replayedSequence = buffer.getLong(REPLAYED_OFFSET);
+		int position = HEADER_SIZE;
+		long sequence = 0;
+		replayPosition = -1;
+		while (true) {
+			JournalRecord record = read(position, sequence + 1);
+			if (Objects.isNull(record)) {
+				break;
+			}
+			sequence = record.sequence;
+			position = record.nextPosition;
+			if (sequence == replayedSequence + 1) {
+				replayPosition = record.position;
+			}
+			if (sequence > replayedSequence) {
+				recoveredWrites++;
+			}
+		}
+		zero(position, buffer.capacity());
+		if (replayedSequence > sequence) {
+			replayedSequence = sequence;
+			buffer.putLong(REPLAYED_OFFSET, sequence);
+		}
+		lastSequence = sequence;
+		writePosition = position;
+		if (replayPosition < 0) {
+			replayPosition = position;
+		}
+	}
+
+	private void startOver() {
+		zero(0, Math.max(writePosition, HEADER_SIZE));
+		journalId = System.currentTimeMillis() << 16 | (long) (Math.random() * 0xFFFF);
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, VERSION);
+		buffer.putLong(JOURNAL_ID_OFFSET, journalId);
+		buffer.putLong(REPLAYED_OFFSET, 0);
+		buffer.force();
+		lastSequence = 0;
+		replayedSequence = 0;
+		writePosition = HEADER_SIZE;
+		replayPosition = HEADER_SIZE;
+	}
+
+	private void zero(int from, int to) {
+		int i = from;
+		for (; i + 8 <= to; i += 8) {
+			buffer.putLong(i, 0);
+		}
+		for (; i < to; i++) {
+			buffer.put(i, (byte) 0);
+		}
+	}
+
+	/*
+	 * Writes are journaled rather than parked while a migration is switching
+	 * pools.
+	 */
+	public boolean isBuffering() {
+		return enabled && migrationGate.isClosed();
+	}
+
+	/*
+	 * Appends the student and acknowledges it as pending. Throws when the
+	 * journal is full, in which case the write has to go to the database.
+	 */
+	public synchronized PendingWrite append(Student student) {
+		if (Objects.isNull(student.getName())) {
+			throw new IllegalArgumentException("A journaled student needs a name.");
+		}
+		byte[] name = student.getName().getBytes(StandardCharsets.UTF_8);
+		String address = Objects.isNull(student.getAddress()) ? null : student.getAddress().getAddress();
+		byte[] addressBytes = Objects.isNull(address) ? null : address.getBytes(StandardCharsets.UTF_8);
+		int bodyLength = 8 + 4 + name.length + 4 + (Objects.isNull(addressBytes) ? 0 : addressBytes.length);
+		int position = writePosition;
+		if (position + RECORD_HEADER_SIZE + bodyLength + 4 > buffer.capacity()) {
+			rejectedWrites.increment();
+			throw new DataSourceRoutingException("Write journal is full. Pending writes = " + getPendingWrites());
+		}
+		long sequence = lastSequence + 1;
+		ByteBuffer body = buffer.duplicate();
+		body.position(position + RECORD_HEADER_SIZE);
+		body.putLong(sequence);
+		body.putInt(name.length);
+		body.put(name);
+		body.putInt(Objects.isNull(addressBytes) ? -1 : addressBytes.length);
+		if (Objects.nonNull(addressBytes)) {
+			body.put(addressBytes);
+		}
+		buffer.putInt(position + 4, (int) checksum(position + RECORD_HEADER_SIZE, bodyLength));
+		buffer.putInt(position, bodyLength);
+		if (forceOnAppend) {
+			buffer.force();
+		}
+		lastSequence = sequence;
+		writePosition = position + RECORD_HEADER_SIZE + bodyLength;
+		appendedWrites.increment();
+		return PendingWrite.pending(journalId, sequence, student);
+	}
+
+	private long checksum(int from, int length) {
+		CRC32 crc = new CRC32();
+		ByteBuffer id = ByteBuffer.allocate(8).putLong(0, journalId);
+		crc.update(id);
+		ByteBuffer body = buffer.duplicate();
+		body.position(from).limit(from + length);
+		crc.update(body);
+		return crc.getValue();
+	}
+
+	private JournalRecord read(int position, long expectedSequence) {
+		if (position + RECORD_HEADER_SIZE > buffer.capacity()) {
+			return null;
+		}
+		int bodyLength = buffer.getInt(position);
+		int from = position + RECORD_HEADER_SIZE;
+		if (bodyLength < 16 || from + bodyLength > buffer.capacity()
+				|| (int) checksum(from, bodyLength) != buffer.getInt(position + 4)) {
+			return null;
+		}
+		ByteBuffer body = buffer.duplicate();
+		body.position(from);
+		long sequence = body.getLong();
+		if (sequence != expectedSequence) {
+			return null;
+		}
+		byte[] name = new byte[body.getInt()];
+		body.get(name);
+		int addressLength = body.getInt();
+		String address = null;
+		if (addressLength >= 0) {
+			byte[] addressBytes = new byte[addressLength];
+			body.get(addressBytes);
+			address = new String(addressBytes, StandardCharsets.UTF_8);
+		}
+		return new JournalRecord(position, from + bodyLength, sequence, new String(name, StandardCharsets.UTF_8),
+				address);
+	}
+
+	@EventListener
+	public void onDataSourceMigrated(DataSourceMigratedEvent event) {
+		triggerReplay();
+	}
+
+	private void triggerReplay() {
+		if (getPendingWrites() > 0 && replayQueued.compareAndSet(false, true)) {
+			replayExecutor.execute(this::replay);
+		}
+	}
+
+	/*
+	 * Runs on the journal thread only. Waits for the gate like any other
+	 * writer and gives up until the next trigger when the migration is still
+	 * switching.
+	 */
+	private void replay() {
+		replayQueued.set(false);
+		try {
+			migrationGate.awaitPassage();
+			long startNanos = System.nanoTime();
+			long replayed = 0;
+			while (replayedSequence < lastSequence && !migrationGate.isClosed()) {
+				replayed += replayBatch();
+			}
+			long nanos = System.nanoTime() - startNanos;
+			lastReplayWrites = replayed;
+			lastReplayMillis = TimeUnit.NANOSECONDS.toMillis(nanos);
+			lastReplayWritesPerSecond = nanos == 0 ? 0 : replayed * TimeUnit.SECONDS.toNanos(1) / nanos;
+			LOG.info("Replayed {} journaled writes in {} ms ({} writes/s). Pending writes = {}", replayed,
+					lastReplayMillis, lastReplayWritesPerSecond, getPendingWrites());
+			compact();
+		} catch (RuntimeException e) {
+			lastError = e.getMessage();
+			LOG.warn("Replay of the write journal stopped. Pending writes = {}. Error - {}", getPendingWrites(),
+					e.getMessage());
+		}
+	}
+
+	private long replayBatch() {
+		List<JournalRecord> batch = new ArrayList<>(replayBatchSize);
+		int position = replayPosition;
+		long sequence = replayedSequence;
+		while (batch.size() < replayBatchSize && sequence < lastSequence) {
+			JournalRecord record = read(position, sequence + 1);
+			if (Objects.isNull(record)) {
+				throw new DataSourceRoutingException("Write journal record " + (sequence + 1) + " is corrupt.");
+			}
+			batch.add(record);
+			sequence = record.sequence;
+			position = record.nextPosition;
+		}
+		String lookupKey = dataSourceContextManager.getCurrentlyActiveLookpKey();
+		carryOverInterruptedBatch(lookupKey, batch);
+		buffer.putLong(IN_FLIGHT_TARGET_OFFSET, targetId(lookupKey));
+		if (forceOnAppend) {
+			buffer.force();
+		}
+		List<JournalRecord> deadLettered = new ArrayList<>();
+		List<Student> applied = onTenant(lookupKey, () -> apply(lookupKey, batch, deadLettered));
+		applied.forEach(student -> studentCache.invalidate(lookupKey, student.getId()));
+		recordCounters.recordInsert(lookupKey, applied.size(), applied.size());
+		shadowWriter.shadow(applied);
+		replayBatches.increment();
+		replayedWrites.add(applied.size());
+		duplicateWrites.add(batch.size() - applied.size() - deadLettered.size());
+		replayPosition = position;
+		replayedSequence = sequence;
+		buffer.putLong(REPLAYED_OFFSET, sequence);
+		buffer.putLong(IN_FLIGHT_TARGET_OFFSET, 0);
+		if (forceOnAppend) {
+			buffer.force();
+		}
+		return applied.size();
+	}
+
+	/*
+	 * Applies the batch in one transaction, or each write in a transaction of
+	 * its own once the batch failed on the data. Writes that fail on their own
+	 * go to the dead-letter file.
+	 */
+	private List<Student> apply(String lookupKey, List<JournalRecord> batch, List<JournalRecord> deadLettered) {
+		prepare(lookupKey);
+		try {
+			return transactionTemplate.execute(status -> jdbcTemplate.execute(applyBatch(batch)));
+		} catch (DataAccessException e) {
+			if (!isPoison(e)) {
+				throw e;
+			}
+			LOG.warn("Replay of {} journaled writes failed, retrying them one by one. Error - {}", batch.size(),
+					e.getMostSpecificCause().getMessage());
+		}
+		List<Student> applied = new ArrayList<>(batch.size());
+		for (JournalRecord record : batch) {
+			try {
+				applied.addAll(transactionTemplate.execute(status -> jdbcTemplate.execute(applyBatch(List.of(record)))));
+			} catch (DataAccessException e) {
+				if (!isPoison(e)) {
+					throw e;
+				}
+				deadLetter(record, e);
+				deadLettered.add(record);
+			}
+		}
+		return applied;
+	}
+
+	/*
+	 * Constraint violations, bad values and the like fail the same way on
+	 * every retry; a datasource that cannot be reached does not.
+	 */
+	private static boolean isPoison(DataAccessException e) {
+		return e instanceof NonTransientDataAccessException && !(e instanceof DataAccessResourceFailureException);
+	}
+
+	private void deadLetter(JournalRecord record, DataAccessException failure) {
+		Map<String, Object> entry = new LinkedHashMap<>();
+		entry.put("journalId", journalId);
+		entry.put("sequence", record.sequence);
+		entry.put("name", record.name);
+		entry.put("address", record.address);
+		entry.put("error", failure.getMostSpecificCause().getMessage());
+		entry.put("at", Instant.now().toString());
+		try {
+			byte[] line = (objectMapper.writeValueAsString(entry) + "\n").getBytes(StandardCharsets.UTF_8);
+			ByteBuffer bytes = ByteBuffer.wrap(line);
+			while (bytes.hasRemaining()) {
+				deadLetterChannel.write(bytes);
+			}
+			deadLetterChannel.force(false);
+		} catch (JsonProcessingException e) {
+			throw new DataSourceRoutingException("Could not serialize journaled write " + record.sequence + ".");
+		} catch (IOException e) {
+			throw new DataSourceRoutingException("Could not write the dead-letter file " + deadLetterPath + ". Error - "
+					+ e.getMessage());
+		}
+		deadLetterWrites.increment();
+		LOG.error("Journaled write {} of journal {} moved to {}. Error - {}", record.sequence, journalId, deadLetterPath,
+				failure.getMostSpecificCause().getMessage());
+	}
+
+	/*
+	 * A replay interrupted before its header update may have committed to a
+	 * datasource that is not the active one any more. The sequences it applied
+	 * there are recorded as applied in the active one too.
+	 */
+	private void carryOverInterruptedBatch(String lookupKey, List<JournalRecord> batch) {
+		long target = buffer.getLong(IN_FLIGHT_TARGET_OFFSET);
+		if (target == 0 || target == targetId(lookupKey)) {
+			return;
+		}
+		String previous = tenantDataSourceRegistry.getLookupKeys().stream().filter(key -> targetId(key) == target)
+				.findFirst().orElse(null);
+		if (Objects.isNull(previous)) {
+			LOG.warn("The datasource an interrupted replay went to is not registered any more. Its writes may be applied twice.");
+			return;
+		}
+		long first = batch.get(0).sequence;
+		long last = batch.get(batch.size() - 1).sequence;
+		Map<Long, Long> appliedThere = onTenant(previous, () -> {
+			prepare(previous);
+			return jdbcTemplate.execute((ConnectionCallback<Map<Long, Long>>) connection -> selectApplied(connection, first, last));
+		});
+		if (appliedThere.isEmpty()) {
+			return;
+		}
+		onTenant(lookupKey, () -> {
+			prepare(lookupKey);
+			return transactionTemplate.execute(status -> jdbcTemplate.execute((ConnectionCallback<int[]>) connection -> {
+				Map<Long, Long> appliedHere = selectApplied(connection, first, last);
+				try (PreparedStatement ps = connection.prepareStatement(Queries.JOURNAL_INSERT_APPLIED)) {
+					for (Map.Entry<Long, Long> applied : appliedThere.entrySet()) {
+						if (!appliedHere.containsKey(applied.getKey())) {
+							ps.setLong(1, journalId);
+							ps.setLong(2, applied.getKey());
+							ps.setLong(3, applied.getValue());
+							ps.addBatch();
+						}
+					}
+					return ps.executeBatch();
+				}
+			}));
+		});
+		LOG.info("{} journaled writes applied to '{}' by an interrupted replay are recorded as applied in '{}'.",
+				appliedThere.size(), previous, lookupKey);
+	}
+
+	private void prepare(String lookupKey) {
+		if (preparedLookupKeys.add(lookupKey)) {
+			jdbcTemplate.execute(Queries.JOURNAL_CREATE_APPLIED);
+		}
+	}
+
+	private static long targetId(String lookupKey) {
+		CRC32 crc = new CRC32();
+		crc.update(TenantDataSourceRegistry.normalize(lookupKey).getBytes(StandardCharsets.UTF_8));
+		return 1L << 32 | crc.getValue();
+	}
+
+	/*
+	 * Runs the work against the given datasource whichever one is active.
+	 */
+	private static <T> T onTenant(String lookupKey, Supplier<T> work) {
+		String previous = TenantContextHolder.getTenant();
+		TenantContextHolder.setTenant(lookupKey);
+		try {
+			return work.get();
+		} finally {
+			if (Objects.isNull(previous)) {
+				TenantContextHolder.clear();
+			} else {
+				TenantContextHolder.setTenant(previous);
+			}
+		}
+	}
+
+	private Map<Long, Long> selectApplied(Connection connection, long first, long last) throws SQLException {
+		Map<Long, Long> applied = new HashMap<>();
+		try (PreparedStatement ps = connection.prepareStatement(Queries.JOURNAL_SELECT_APPLIED)) {
+			ps.setLong(1, journalId);
+			ps.setLong(2, first);
+			ps.setLong(3, last);
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					applied.put(rs.getLong(1), rs.getLong(2));
+				}
+			}
+		}
+		return applied;
+	}
+
+	private ConnectionCallback<List<Student>> applyBatch(List<JournalRecord> batch) {
+		return connection -> {
+			Map<Long, Long> alreadyApplied = selectApplied(connection, batch.get(0).sequence,
+					batch.get(batch.size() - 1).sequence);
+			List<Student> students = new ArrayList<>(batch.size());
+			List<Long> sequences = new ArrayList<>(batch.size());
+			for (JournalRecord record : batch) {
+				if (!alreadyApplied.containsKey(record.sequence)) {
+					students.add(record.toStudent());
+					sequences.add(record.sequence);
+				}
+			}
+			if (students.isEmpty()) {
+				return students;
+			}
+			try (PreparedStatement ps = connection.prepareStatement(Queries.INSERT_STUDENT, new String[] { "id" })) {
+				for (Student student : students) {
+					ps.setString(1, student.getName());
+					ps.addBatch();
+				}
+				ps.executeBatch();
+				try (ResultSet keys = ps.getGeneratedKeys()) {
+					for (Student student : students) {
+						if (!keys.next()) {
+							throw new DataSourceRoutingException("The driver returned fewer generated keys than rows.");
+						}
+						student.setId(keys.getLong(1));
+						student.getAddress().setStudentId(student.getId());
+					}
+				}
+			}
+			try (PreparedStatement ps = connection.prepareStatement(Queries.INSERT_ADDRESS, new String[] { "id" })) {
+				for (Student student : students) {
+					ps.setLong(1, student.getId());
+					ps.setString(2, student.getAddress().getAddress());
+					ps.addBatch();
+				}
+				ps.executeBatch();
+				try (ResultSet keys = ps.getGeneratedKeys()) {
+					for (Student student : students) {
+						if (keys.next()) {
+							student.getAddress().setId(keys.getLong(1));
+						}
+					}
+				}
+			}
+			try (PreparedStatement ps = connection.prepareStatement(Queries.JOURNAL_INSERT_APPLIED)) {
+				for (int i = 0; i < students.size(); i++) {
+					ps.setLong(1, journalId);
+					ps.setLong(2, sequences.get(i));
+					ps.setLong(3, students.get(i).getId());
+					ps.addBatch();
+				}
+				ps.executeBatch();
+			}
+			return students;
+		};
+	}
+
+	/*
+	 * Starts the journal over once everything in it is replayed. The applied
+	 * sequences of the old journal id are not needed any more.
+	 */
+	private void compact() {
+		long previousJournalId;
+		synchronized (this) {
+			if (replayedSequence != lastSequence || lastSequence == 0) {
+				return;
+			}
+			previousJournalId = journalId;
+			startOver();
+		}
+		try {
+			jdbcTemplate.update(Queries.JOURNAL_DELETE_APPLIED, previousJournalId);
+		} catch (RuntimeException e) {
+			LOG.warn("Could not delete the applied sequences of write journal {}. Error - {}", previousJournalId,
+					e.getMessage());
+		}
+	}
+
+	@PreDestroy
+	public void destroy() throws IOException {
+		if (!enabled) {
+			return;
+		}
+		replayTask.cancel(false);
+		replayExecutor.shutdown();
+		try {
+			replayExecutor.awaitTermination(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		synchronized (this) {
+			buffer.force();
+			channel.close();
+		}
+		deadLetterChannel.close();
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public int getCapacityBytes() {
+		return enabled ? buffer.capacity() : 0;
+	}
+
+	public int getUsedBytes() {
+		return enabled ? writePosition : 0;
+	}
+
+	public long getPendingWrites() {
+		return lastSequence - replayedSequence;
+	}
+
+	public long getRecoveredWrites() {
+		return recoveredWrites;
+	}
+
+	public long getAppendedWrites() {
+		return appendedWrites.sum();
+	}
+
+	public long getRejectedWrites() {
+		return rejectedWrites.sum();
+	}
+
+	public long getReplayedWrites() {
+		return replayedWrites.sum();
+	}
+
+	public long getDuplicateWrites() {
+		return duplicateWrites.sum();
+	}
+
+	public long getDeadLetterWrites() {
+		return deadLetterWrites.sum();
+	}
+
+	public String getDeadLetterPath() {
+		return enabled ? deadLetterPath.toString() : null;
+	}
+
+	public long getReplayBatches() {
+		return replayBatches.sum();
+	}
+
+	public long getLastReplayWrites() {
+		return lastReplayWrites;
+	}
+
+	public long getLastReplayMillis() {
+		return lastReplayMillis;
+	}
+
+	public long getLastReplayWritesPerSecond() {
+		return lastReplayWritesPerSecond;
+	}
+
+	public String getLastError() {
+		return lastError;
+	}
+
+	public void replayNow() {
+		if (enabled) {
+			triggerReplay();
+		}
+	}
+
+	private static final class JournalRecord {
+
+		final int position;
+		final int nextPosition;
+		final long sequence;
+		final String name;
+		final String address;
+
+		JournalRecord(int position, int nextPosition, long sequence, String name, String address) {
+			this.position = position;
+			this.nextPosition = nextPosition;
+			this.sequence = sequence;
+			this.name = name;
+			this.address = address;
+		}
+
+		Student toStudent() {
+			Student student = new Student();
+			student.setName(name);
+			Address studentAddress = new Address();
+			studentAddress.setAddress(address);
+			student.setAddress(studentAddress);
+			return student;
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package com.demo.multitenancy.config.web;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.demo.multitenancy.metrics.RequestDbTimings;
+
+/*
+ * Writes one structured access record per request to the "access" logger:
+ * method, path, status, the lookup key the request's connections were routed
+ * to and the time it spent acquiring connections and executing statements.
+ * Logged through the Log4j API with unboxed parameters, so that a record does
+ * not allocate on the way into the async logger. Async requests are logged
+ * on their async dispatch, where they end. Set the logger to OFF to disable.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class AccessLogFilter extends OncePerRequestFilter {
+
+	private static final Logger ACCESS = LogManager.getLogger("com.demo.multitenancy.access");
+	private static final String TIMINGS_ATTRIBUTE = AccessLogFilter.class.getName() + ".TIMINGS";
+	private static final String NONE = "-";
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		if (!ACCESS.isInfoEnabled()) {
+			filterChain.doFilter(request, response);
+			return;
+		}
+		RequestDbTimings timings = (RequestDbTimings) request.getAttribute(TIMINGS_ATTRIBUTE);
+		if (timings == null) {
+			timings = RequestDbTimings.begin();
+			request.setAttribute(TIMINGS_ATTRIBUTE, timings);
+		} else {
+			RequestDbTimings.bind(timings);
+		}
+		try {
+			filterChain.doFilter(request, response);
+		} finally {
+			RequestDbTimings.clear();
+			if (!request.isAsyncStarted()) {
+				log(request, response, timings);
+			}
+		}
+	}
+
+	private static void log(HttpServletRequest request, HttpServletResponse response, RequestDbTimings timings) {
+		String lookupKey = timings.getLookupKey();
+		ACCESS.info(
+				"method={} path={} status={} lookupKey={} readReplica={} durationMicros={} dbConnections={} dbAcquireMicros={} dbStatements={} dbExecMicros={}",
+				request.getMethod(), request.getRequestURI(), Unbox.box(response.getStatus()),
+				lookupKey != null ? lookupKey : NONE, Unbox.box(timings.isReadReplica()),
+				Unbox.box(micros(System.nanoTime() - timings.getStartNanos())), Unbox.box(timings.getConnections()),
+				Unbox.box(micros(timings.getAcquireNanos())), Unbox.box(timings.getStatements()),
+				Unbox.box(micros(timings.getStatementNanos())));
+	}
+
+	private static long micros(long nanos) {
+		return TimeUnit.NANOSECONDS.toMicros(nanos);
+	}
+
+	@Override
+	protected boolean shouldNotFilterAsyncDispatch() {
+		return false;
+	}
+}
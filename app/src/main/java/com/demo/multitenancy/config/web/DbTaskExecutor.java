@@ -0,0 +1,164 @@
+package com.demo.multitenancy.config.web;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import com.demo.multitenancy.config.db.DataSourceContextManager;
+import com.demo.multitenancy.config.db.TenantDataSourceRegistry;
+import com.demo.multitenancy.event.DataSourceMigratedEvent;
+import com.demo.multitenancy.event.PoolResizedEvent;
+import com.demo.multitenancy.exception.ServiceOverloadedException;
+import com.zaxxer.hikari.HikariConfig;
+
+/*
+ * Runs the database work of request handlers so that servlet threads never
+ * block on a connection. At most one task per pool connection runs at a time
+ * and a bounded number wait; anything beyond that is rejected immediately
+ * instead of parking in HikariPool.getConnection until the connection timeout.
+ * Workers are virtual threads when the runtime has them. Unless configured
+ * explicitly, the concurrency follows the size of the active pool.
+ */
+@Component
+public class DbTaskExecutor {
+
+	private static final Logger LOG = LoggerFactory.getLogger(DbTaskExecutor.class);
+
+	@Autowired
+	private HikariConfig hikariConfig;
+
+	@Autowired
+	private TaskDecorator tenantContextTaskDecorator;
+
+	@Autowired
+	private DataSourceContextManager dataSourceContextManager;
+
+	@Autowired
+	private TenantDataSourceRegistry tenantDataSourceRegistry;
+
+	@Value("${app.web.db-executor.concurrency:0}")
+	private int concurrency;
+
+	@Value("${app.web.db-executor.queue-capacity:100}")
+	private int queueCapacity;
+
+	@Value("${app.web.db-executor.retry-after-seconds:1}")
+	private long retryAfterSeconds;
+
+	@Value("${app.web.db-executor.virtual-threads:true}")
+	private boolean virtualThreads;
+
+	private final LongAdder rejectedTasks = new LongAdder();
+	private ThreadPoolExecutor executor;
+	private boolean usingVirtualThreads;
+
+	@PostConstruct
+	public void init() {
+		int workers = concurrency > 0 ? concurrency : hikariConfig.getMaximumPoolSize();
+		ThreadFactory threadFactory = virtualThreads ? virtualThreadFactory() : null;
+		usingVirtualThreads = threadFactory != null;
+		if (!usingVirtualThreads) {
+			threadFactory = new CustomizableThreadFactory("db-worker-");
+		}
+		executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+		LOG.info("DB task executor: concurrency = {}, queue capacity = {}, virtual threads = {}", workers, queueCapacity,
+				usingVirtualThreads);
+	}
+
+	public <T> CompletableFuture<T> submit(Supplier<T> work) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		Runnable task = tenantContextTaskDecorator.decorate(() -> {
+			try {
+				future.complete(work.get());
+			} catch (Throwable e) {
+				future.completeExceptionally(e);
+			}
+		});
+		try {
+			executor.execute(task);
+		} catch (RejectedExecutionException e) {
+			rejectedTasks.increment();
+			throw new ServiceOverloadedException("Too many pending database requests.", retryAfterSeconds);
+		}
+		return future;
+	}
+
+	@EventListener({ PoolResizedEvent.class, DataSourceMigratedEvent.class })
+	public void onPoolSizeChanged() {
+		if (concurrency > 0) {
+			return;
+		}
+		int workers = tenantDataSourceRegistry.getMaximumPoolSize(dataSourceContextManager.getCurrentlyActiveLookpKey());
+		synchronized (executor) {
+			if (workers > executor.getMaximumPoolSize()) {
+				executor.setMaximumPoolSize(workers);
+				executor.setCorePoolSize(workers);
+			} else if (workers < executor.getMaximumPoolSize()) {
+				executor.setCorePoolSize(workers);
+				executor.setMaximumPoolSize(workers);
+			}
+		}
+	}
+
+	/*
+	 * Thread.ofVirtual() only exists from Java 21 on (19 with preview) while the
+	 * application targets Java 11, hence the reflection.
+	 */
+	private static ThreadFactory virtualThreadFactory() {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+			builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "db-worker-", 0L);
+			return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	public int getQueueDepth() {
+		return executor.getQueue().size();
+	}
+
+	public int getActiveTasks() {
+		return executor.getActiveCount();
+	}
+
+	public long getRejectedTasks() {
+		return rejectedTasks.sum();
+	}
+
+	public int getConcurrency() {
+		return executor.getMaximumPoolSize();
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	public boolean isUsingVirtualThreads() {
+		return usingVirtualThreads;
+	}
+
+	@PreDestroy
+	public void destroy() {
+		executor.shutdown();
+	}
+}
@@ -0,0 +1,42 @@
+package com.demo.multitenancy.config.web;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.demo.multitenancy.metrics.StartupTimings;
+
+/*
+ * Marks the end of the first request for the time-to-first-request metric.
+ * Async requests are seen again on their async dispatch, where they end.
+ */
+@Component
+public class StartupTimingFilter extends OncePerRequestFilter {
+
+	@Autowired
+	private StartupTimings startupTimings;
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		try {
+			filterChain.doFilter(request, response);
+		} finally {
+			if (!request.isAsyncStarted()) {
+				startupTimings.requestCompleted();
+			}
+		}
+	}
+
+	@Override
+	protected boolean shouldNotFilterAsyncDispatch() {
+		return false;
+	}
+}
@@ -0,0 +1,67 @@
+package com.demo.multitenancy.config.web;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.demo.multitenancy.config.db.TenantContextHolder;
+import com.demo.multitenancy.config.db.TenantDataSourceRegistry;
+
+/*
+ * Binds the tenant of the request either from the tenant header or from a
+ * "/tenants/{key}/..." path prefix. Prefixed requests are forwarded to the
+ * remaining path. Requests without a tenant use the globally active key.
+ */
+@Component
+public class TenantRoutingFilter extends OncePerRequestFilter {
+
+	@Value("${app.tenant.header-name:X-Tenant-ID}")
+	private String headerName;
+
+	@Value("${app.tenant.path-prefix:/tenants/}")
+	private String pathPrefix;
+
+	@Autowired
+	private TenantDataSourceRegistry tenantDataSourceRegistry;
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		String path = request.getRequestURI().substring(request.getContextPath().length());
+		String tenant = request.getHeader(headerName);
+		String forwardPath = null;
+		if (path.startsWith(pathPrefix)) {
+			int end = path.indexOf('/', pathPrefix.length());
+			tenant = end < 0 ? path.substring(pathPrefix.length()) : path.substring(pathPrefix.length(), end);
+			forwardPath = end < 0 ? "/" : path.substring(end);
+		}
+		if (!StringUtils.hasText(tenant)) {
+			filterChain.doFilter(request, response);
+			return;
+		}
+		if (!tenantDataSourceRegistry.contains(tenant)) {
+			response.sendError(HttpStatus.NOT_FOUND.value(), "Unknown tenant '" + tenant + "'.");
+			return;
+		}
+		TenantContextHolder.setTenant(tenant);
+		try {
+			if (forwardPath != null) {
+				request.getRequestDispatcher(forwardPath).forward(request, response);
+			} else {
+				filterChain.doFilter(request, response);
+			}
+		} finally {
+			TenantContextHolder.clear();
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package com.demo.multitenancy.config.web;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+
+import com.demo.multitenancy.config.db.TenantContextHolder;
+import com.demo.multitenancy.metrics.RequestDbTimings;
+
+@Configuration
+public class TenantTaskDecoratorConfig {
+
+	/*
+	 * Every executor that runs DB work on behalf of a request must be decorated
+	 * with this so that the request tenant, and the DB timings of the request,
+	 * follow the task.
+	 */
+	@Bean
+	public TaskDecorator tenantContextTaskDecorator() {
+		return task -> RequestDbTimings.wrap(TenantContextHolder.wrap(task));
+	}
+}
@@ -0,0 +1,70 @@
+package com.demo.multitenancy.config.web;
+
+import java.util.concurrent.Callable;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebAsyncConfig implements WebMvcConfigurer {
+
+	/*
+	 * Set by handlers that stream their response body, which may take far
+	 * longer than any other async request.
+	 */
+	public static final String STREAMING_REQUEST_ATTRIBUTE = WebAsyncConfig.class.getName() + ".STREAMING";
+
+	@Value("${app.web.async.pool-size:8}")
+	private int poolSize;
+
+	@Value("${app.web.async.timeout-millis:30000}")
+	private long timeoutMillis;
+
+	@Value("${app.web.async.stream-timeout-millis:600000}")
+	private long streamTimeoutMillis;
+
+	private final TaskDecorator tenantContextTaskDecorator;
+
+	public WebAsyncConfig(TaskDecorator tenantContextTaskDecorator) {
+		this.tenantContextTaskDecorator = tenantContextTaskDecorator;
+	}
+
+	/*
+	 * Runs streaming response bodies. Decorated so that the request tenant
+	 * follows the body onto the executor thread.
+	 */
+	@Bean
+	public ThreadPoolTaskExecutor mvcAsyncExecutor() {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(poolSize);
+		executor.setMaxPoolSize(poolSize);
+		executor.setThreadNamePrefix("mvc-async-");
+		executor.setTaskDecorator(tenantContextTaskDecorator);
+		return executor;
+	}
+
+	@Override
+	public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+		configurer.setTaskExecutor(mvcAsyncExecutor());
+		configurer.setDefaultTimeout(timeoutMillis);
+		configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+			/* Runs before the async context is started, so the timeout still applies */
+			@Override
+			public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+				if (request instanceof AsyncWebRequest && Boolean.TRUE
+						.equals(request.getAttribute(STREAMING_REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST))) {
+					((AsyncWebRequest) request).setTimeout(streamTimeoutMillis);
+				}
+			}
+		});
+	}
+}
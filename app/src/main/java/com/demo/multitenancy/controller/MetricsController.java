@@ -0,0 +1,21 @@
+package com.demo.multitenancy.controller;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.demo.multitenancy.metrics.LatencyMetrics;
+
+@RestController
+public class MetricsController {
+
+	@Autowired
+	private LatencyMetrics latencyMetrics;
+
+	@GetMapping("/metrics/latency")
+	public Map<String, Map<String, Map<String, Long>>> latency() {
+		return latencyMetrics.getAll();
+	}
+}
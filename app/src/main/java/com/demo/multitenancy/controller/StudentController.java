@@ -0,0 +1,377 @@
+package com.demo.multitenancy.controller;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.SqlProvider;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.demo.multitenancy.cache.RecordCounters;
+import com.demo.multitenancy.cache.StudentCache;
+import com.demo.multitenancy.config.db.CustomRoutingDatasource;
+import com.demo.multitenancy.config.db.DataSourceContextManager;
+import com.demo.multitenancy.config.db.ShadowWriter;
+import com.demo.multitenancy.config.db.WriteJournal;
+import com.demo.multitenancy.config.db.DatasourceConfig;
+import com.demo.multitenancy.config.db.ReadOnlyContextHolder;
+import com.demo.multitenancy.config.web.DbTaskExecutor;
+import com.demo.multitenancy.config.web.WebAsyncConfig;
+import com.demo.multitenancy.exception.DataSourceRoutingException;
+import com.demo.multitenancy.model.BatchItemResult;
+import com.demo.multitenancy.model.Student;
+import com.demo.multitenancy.model.StudentPage;
+import com.demo.multitenancy.repository.StudentBatchRepository;
+import com.demo.multitenancy.repository.StudentStreamRepository;
+import com.demo.multitenancy.rowmapper.StudentRowMapper;
+import com.demo.multitenancy.util.ContinuationToken;
+import com.demo.multitenancy.util.Queries;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+@RestController
+public class StudentController {
+
+	private static final Logger LOG = LoggerFactory.getLogger(StudentController.class);
+	private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private DataSourceContextManager dataSourceContextManager;
+
+	@Autowired
+	private StudentBatchRepository studentBatchRepository;
+
+	@Autowired
+	private StudentStreamRepository studentStreamRepository;
+
+	@Autowired
+	private StudentCache studentCache;
+
+	@Autowired
+	private RecordCounters recordCounters;
+
+	@Autowired
+	private ShadowWriter shadowWriter;
+
+	@Autowired
+	private WriteJournal writeJournal;
+
+	@Autowired
+	private DbTaskExecutor dbTaskExecutor;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	private TransactionTemplate readOnlyTransactionTemplate;
+
+	@Value("${app.student.page.default-limit:50}")
+	private int defaultPageSize;
+
+	@Value("${app.student.page.max-limit:1000}")
+	private int maxPageSize;
+
+	@PostConstruct
+	public void init() {
+		readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager(),
+				transactionTemplate);
+		readOnlyTransactionTemplate.setReadOnly(true);
+	}
+
+	/*
+	 * Handlers hand their database work to the DbTaskExecutor and return at
+	 * once, so transactions are demarcated on the worker thread. While a
+	 * migration is switching pools a student is appended to the write journal
+	 * instead and acknowledged with 202 and a pending status.
+	 */
+	@PostMapping("/student")
+	public CompletableFuture<ResponseEntity<?>> save(@RequestBody Student student) {
+		LOG.debug("### -- SAVE CALLED -- ####");
+		if (Objects.isNull(student.getName())) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Student name is required.");
+		}
+		student.setName(student.getName() + "-" + getRandomNumber());
+		if (writeJournal.isBuffering() && Objects.nonNull(student.getAddress())) {
+			try {
+				return CompletableFuture.completedFuture(ResponseEntity.accepted().body(writeJournal.append(student)));
+			} catch (DataSourceRoutingException e) {
+				LOG.warn("Student not journaled. {}", e.getMessage());
+			}
+		}
+		return dbTaskExecutor.submit(() -> transactionTemplate.execute(status -> insert(student)))
+				.thenApply(ResponseEntity::ok);
+	}
+
+	Student insert(Student student) {
+		long sid = runInsert(Queries.INSERT_STUDENT, student.getName());
+		if (sid > 0) {
+			student.setId(sid);
+			studentCache.invalidate(dataSourceContextManager.getEffectiveLookupKey(), sid);
+			student.getAddress().setStudentId(sid);
+			long addressId = runInsert(Queries.INSERT_ADDRESS, sid, student.getAddress().getAddress());
+			if (addressId > 0) {
+				student.getAddress().setId(addressId);
+				recordCounters.recordInsert(dataSourceContextManager.getEffectiveLookupKey(), 1, 1);
+				shadowWriter.shadow(Collections.singletonList(student));
+				LOG.debug("Saved student {} with address {}", student.getId(), student.getAddress().getId());
+				return student;
+			} else {
+				throw new DataSourceRoutingException("Something went wrong while saving address for the student "
+						+ student.getName() + "[" + sid + "] into database.");
+			}
+		} else {
+			throw new DataSourceRoutingException(
+					"Something went wrong while saving student " + student.getName() + " into database.");
+		}
+
+	}
+
+	@PostMapping("/students/batch")
+	public CompletableFuture<List<BatchItemResult>> saveAll(@RequestBody List<Student> students) {
+		LOG.debug("### -- BATCH SAVE CALLED -- ####");
+		return dbTaskExecutor.submit(() -> insertAll(students));
+	}
+
+	private List<BatchItemResult> insertAll(List<Student> students) {
+		students.stream().filter(Objects::nonNull).filter(student -> Objects.nonNull(student.getName()))
+				.forEach(student -> student.setName(student.getName() + "-" + getRandomNumber()));
+		List<BatchItemResult> results = studentBatchRepository.saveAll(students);
+		String lookupKey = dataSourceContextManager.getEffectiveLookupKey();
+		results.stream().filter(result -> result.getStatus() == BatchItemResult.Status.SAVED)
+				.forEach(result -> studentCache.invalidate(lookupKey, result.getStudent().getId()));
+		List<Student> saved = results.stream().filter(result -> result.getStatus() == BatchItemResult.Status.SAVED)
+				.map(BatchItemResult::getStudent).collect(Collectors.toList());
+		recordCounters.recordInsert(lookupKey, saved.size(), saved.size());
+		shadowWriter.shadow(saved);
+		LOG.debug("Batch saved {} of {} students", saved.size(), students.size());
+		return results;
+	}
+
+	private int getRandomNumber() {
+		int min = 100000;
+		int max = 999999;
+		return (int) ((Math.random() * (max - min)) + min);
+	}
+
+	@GetMapping("/student")
+	public CompletableFuture<List<Student>> findAll() {
+		LOG.debug("### -- FIND ALL CALLED -- ####");
+		return dbTaskExecutor.submit(() -> readOnlyTransactionTemplate.execute(status -> {
+			List<Student> result = jdbcTemplate.query(Queries.FIND_ALL, StudentRowMapper.INSTANCE);
+			LOG.debug("Number of students in the table = {}", result.size());
+			return result;
+		}));
+	}
+
+	/*
+	 * Keyset pagination: the next student ids are read off address_sid_idx
+	 * (PostgreSQL does not index foreign keys by itself), starting after the
+	 * continuation token, so latency does not depend on how deep the page is.
+	 * Pages are cut at student boundaries, never between the addresses of one
+	 * student.
+	 */
+	@GetMapping(value = "/student", params = { "limit", "stream!=true" })
+	public CompletableFuture<StudentPage> findPage(@RequestParam(required = false) String after,
+			@RequestParam int limit) {
+		LOG.debug("### -- FIND PAGE CALLED -- ####");
+		return dbTaskExecutor.submit(() -> readOnlyTransactionTemplate.execute(status -> readPage(after, limit)));
+	}
+
+	StudentPage readPage(String after, int limit) {
+		int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+		List<Student> rows = StringUtils.hasText(after)
+				? jdbcTemplate.query(Queries.FIND_PAGE_AFTER, StudentRowMapper.INSTANCE, ContinuationToken.decode(after),
+						pageSize + 1)
+				: jdbcTemplate.query(Queries.FIND_FIRST_PAGE, StudentRowMapper.INSTANCE, pageSize + 1);
+		/* The limit counts students, each of which may span several joined rows */
+		String next = null;
+		int students = 0;
+		for (int i = 0; i < rows.size(); i++) {
+			if (i == 0 || !Objects.equals(rows.get(i).getId(), rows.get(i - 1).getId())) {
+				if (++students > pageSize) {
+					rows = rows.subList(0, i);
+					next = ContinuationToken.encode(rows.get(i - 1).getId());
+					break;
+				}
+			}
+		}
+		LOG.debug("Page of {} students", Math.min(students, pageSize));
+		return new StudentPage(rows, next);
+	}
+
+	@GetMapping(value = "/student", params = { "after", "!limit", "stream!=true" })
+	public CompletableFuture<StudentPage> findPage(@RequestParam String after) {
+		return findPage(after, defaultPageSize);
+	}
+
+	/*
+	 * Constant memory variant of findAll: rows are written to the response as
+	 * they are read from the cursor, either as one JSON array or as NDJSON.
+	 * Streaming always covers the whole table, so paging parameters are
+	 * rejected rather than ignored. Only this endpoint gets the long stream
+	 * timeout of app.web.async.stream-timeout-millis.
+	 */
+	@GetMapping(value = "/student", params = "stream=true")
+	public ResponseEntity<StreamingResponseBody> streamAll(@RequestParam(defaultValue = "json") String format,
+			@RequestParam(required = false) String after, @RequestParam(required = false) String limit,
+			HttpServletRequest request) {
+		LOG.debug("### -- STREAM ALL CALLED -- ####");
+		if (Objects.nonNull(after) || Objects.nonNull(limit)) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+					"stream=true cannot be combined with the paging parameters 'after' and 'limit'.");
+		}
+		request.setAttribute(WebAsyncConfig.STREAMING_REQUEST_ATTRIBUTE, Boolean.TRUE);
+		StudentStreamRepository.Format streamFormat = "ndjson".equalsIgnoreCase(format)
+				? StudentStreamRepository.Format.NDJSON
+				: StudentStreamRepository.Format.JSON;
+		StreamingResponseBody body = out -> {
+			long rows = studentStreamRepository.streamAll(out, streamFormat);
+			LOG.debug("Streamed {} students", rows);
+		};
+		MediaType contentType = streamFormat == StudentStreamRepository.Format.NDJSON ? NDJSON
+				: MediaType.APPLICATION_JSON;
+		return ResponseEntity.ok().contentType(contentType).body(body);
+	}
+
+	@GetMapping("/student/{id}")
+	public CompletableFuture<Student> findById(@PathVariable Long id) {
+		LOG.debug("### -- FIND BY ID CALLED -- ####");
+		return dbTaskExecutor.submit(() -> {
+			Student student = new Student();
+			try {
+				String lookupKey = dataSourceContextManager.getEffectiveLookupKey();
+				Student cached = studentCache.getIfPresent(lookupKey, id);
+				if (Objects.nonNull(cached)) {
+					return cached;
+				}
+				Student[] loaded = new Student[1];
+				boolean replicaRead = ReadOnlyContextHolder.routedToReplica(() -> loaded[0] = readOnlyTransactionTemplate
+						.execute(status -> jdbcTemplate.queryForObject(Queries.FIND_BY_ID, new Object[] { id },
+								StudentRowMapper.INSTANCE)));
+				student = loaded[0];
+				/* A replica read may be stale, so only reads of the active pool are cached under its key */
+				if (!replicaRead && Objects.nonNull(student)) {
+					studentCache.put(lookupKey, id, student);
+				}
+			} catch (Exception e) {
+				LOG.error("Could not read student {}. Error - {}", id, e.getMessage());
+			}
+			return student;
+		});
+	}
+
+	/*
+	 * Served from the incrementally maintained counters; only the first call
+	 * for a datasource runs the count(1) queries.
+	 */
+	@GetMapping("/count")
+	public CompletableFuture<String> count() {
+		LOG.debug("### -- COUNT CALLED -- ####");
+		return dbTaskExecutor.submit(this::readCount);
+	}
+
+	private String readCount() {
+		try {
+			String lookupKey = dataSourceContextManager.getEffectiveLookupKey();
+			RecordCounters.Counts counts = recordCounters.get(lookupKey);
+			return "SUCCESS: Total students = " + counts.getStudents() + ", Total addresses = " + counts.getAddresses()
+					+ ", Stale for = " + counts.getStalenessMillis() + " ms, Full recount = " + counts.isFullRecount();
+		} catch (Exception e) {
+			LOG.error(e.getMessage());
+		}
+		return "FAILED: Total students = -1, Total addresses = -1";
+	}
+
+	@GetMapping("/reset")
+	public CompletableFuture<String> resetEverything() {
+		return dbTaskExecutor.submit(this::recreateTables);
+	}
+
+	private String recreateTables() {
+		try {
+			jdbcTemplate.update(Queries.DROP_ADDRESS);
+			jdbcTemplate.update(Queries.DROP_STUDENT);
+			jdbcTemplate.update(Queries.CREATE_STUDENT);
+			jdbcTemplate.update(Queries.CREATE_ADDRESS);
+			jdbcTemplate.update(Queries.CREATE_ADDRESS_SID_INDEX);
+			studentCache.invalidateNamespace(dataSourceContextManager.getEffectiveLookupKey());
+			recordCounters.reset(dataSourceContextManager.getEffectiveLookupKey());
+			return "SUCCESS";
+		} catch (Exception e) {
+			LOG.error(e.getMessage());
+			return "FAILED";
+		}
+	}
+
+	private long runInsert(String query, Object... args) {
+		KeyHolder keyHolder = new GeneratedKeyHolder();
+		int rowUpdated = jdbcTemplate.update(new InsertStatementCreator() {
+			public String getSql() {
+				return query;
+			}
+
+			public PreparedStatement createPreparedStatement(Connection connection) throws SQLException {
+				PreparedStatement ps = connection.prepareStatement(query, new String[] { "id" });
+				if (args.length == 1) {
+					ps.setString(1, (String) (args[0]));
+				}
+				if (args.length == 2) {
+					ps.setLong(1, (long) args[0]);
+					ps.setString(2, (String) args[1]);
+				}
+				return ps;
+			}
+		}, keyHolder);
+		return rowUpdated >= 1 ? keyHolder.getKey().longValue() : rowUpdated;
+	}
+
+	/* Provides its SQL, so that the insert is timed under its Queries constant */
+	private interface InsertStatementCreator extends PreparedStatementCreator, SqlProvider {
+	}
+	
+	/*@PutMapping("/student")
+	public String updateStudent(@RequestBody Student student) {
+		LOG.debug("### -- UPDATE CALLED -- ####");
+		int r = jdbcTemplate.update(Queries.UPDATE_STUDENT, student.getName());
+		if(r > 0) {
+			LOG.info("{} RECORDS UPDATED SUCCESSFULLY FOR NAME {} - Active DataSource: {} , Pool: {}", r, student.getName(), dataSourceContextManager.getCurrentlyActiveLookpKey(), getActivePoolName());
+			return "SUCCESS";
+		}else {
+			LOG.info("{} RECORDS UPDATED SUCCESSFULLY FOR NAME {} - Active DataSource: {}, Pool: {}",r , student.getName(), dataSourceContextManager.getCurrentlyActiveLookpKey(), getActivePoolName());
+		}
+		return "FAILED";
+	}*/
+}
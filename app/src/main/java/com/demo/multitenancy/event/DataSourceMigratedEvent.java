@@ -0,0 +1,28 @@
+package com.demo.multitenancy.event;
+
+import org.springframework.context.ApplicationEvent;
+
+/*
+ * Published once the globally active lookup key has been switched.
+ */
+public class DataSourceMigratedEvent extends ApplicationEvent {
+
+	private static final long serialVersionUID = 6264920463245196411L;
+
+	private final String previousLookupKey;
+	private final String lookupKey;
+
+	public DataSourceMigratedEvent(Object source, String previousLookupKey, String lookupKey) {
+		super(source);
+		this.previousLookupKey = previousLookupKey;
+		this.lookupKey = lookupKey;
+	}
+
+	public String getPreviousLookupKey() {
+		return previousLookupKey;
+	}
+
+	public String getLookupKey() {
+		return lookupKey;
+	}
+}
@@ -0,0 +1,28 @@
+package com.demo.multitenancy.event;
+
+import org.springframework.context.ApplicationEvent;
+
+/*
+ * Published once rows of one lookup key have been copied into another.
+ */
+public class DataSyncedEvent extends ApplicationEvent {
+
+	private static final long serialVersionUID = -3019825874518734213L;
+
+	private final String sourceLookupKey;
+	private final String targetLookupKey;
+
+	public DataSyncedEvent(Object source, String sourceLookupKey, String targetLookupKey) {
+		super(source);
+		this.sourceLookupKey = sourceLookupKey;
+		this.targetLookupKey = targetLookupKey;
+	}
+
+	public String getSourceLookupKey() {
+		return sourceLookupKey;
+	}
+
+	public String getTargetLookupKey() {
+		return targetLookupKey;
+	}
+}
@@ -0,0 +1,34 @@
+package com.demo.multitenancy.event;
+
+import org.springframework.context.ApplicationEvent;
+
+/*
+ * Published after the connection pool of a tenant has been resized.
+ */
+public class PoolResizedEvent extends ApplicationEvent {
+
+	private static final long serialVersionUID = -2851634209871650342L;
+
+	private final String lookupKey;
+	private final int maximumPoolSize;
+	private final int minimumIdle;
+
+	public PoolResizedEvent(Object source, String lookupKey, int maximumPoolSize, int minimumIdle) {
+		super(source);
+		this.lookupKey = lookupKey;
+		this.maximumPoolSize = maximumPoolSize;
+		this.minimumIdle = minimumIdle;
+	}
+
+	public String getLookupKey() {
+		return lookupKey;
+	}
+
+	public int getMaximumPoolSize() {
+		return maximumPoolSize;
+	}
+
+	public int getMinimumIdle() {
+		return minimumIdle;
+	}
+}
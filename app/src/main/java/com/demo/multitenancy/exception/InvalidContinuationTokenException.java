@@ -0,0 +1,18 @@
+package com.demo.multitenancy.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidContinuationTokenException extends RuntimeException {
+
+	private static final long serialVersionUID = -3546127823101785482L;
+
+	public InvalidContinuationTokenException(String message) {
+		super(message);
+	}
+
+	public InvalidContinuationTokenException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
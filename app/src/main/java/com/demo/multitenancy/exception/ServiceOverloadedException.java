@@ -0,0 +1,28 @@
+package com.demo.multitenancy.exception;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/*
+ * Rejected before any database work started; the client may retry after the
+ * given number of seconds.
+ */
+public class ServiceOverloadedException extends ResponseStatusException {
+
+	private static final long serialVersionUID = 4127390548862215739L;
+
+	private final long retryAfterSeconds;
+
+	public ServiceOverloadedException(String reason, long retryAfterSeconds) {
+		super(HttpStatus.SERVICE_UNAVAILABLE, reason);
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+
+	@Override
+	public HttpHeaders getResponseHeaders() {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+		return headers;
+	}
+}
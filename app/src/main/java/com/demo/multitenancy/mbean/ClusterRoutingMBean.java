@@ -0,0 +1,114 @@
+package com.demo.multitenancy.mbean;
+
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.demo.multitenancy.config.db.ClusterRoutingCoordinator;
+import com.demo.multitenancy.exception.DataSourceRoutingException;
+
+/*
+ * Cluster wide counterpart of DataSourceMigrationMBean. Migrations started
+ * there only switch this node.
+ */
+@Component
+@ManagedResource(objectName = "com.demo.multitenancy:category=MBeans,name=ClusterRoutingMBean", description = "MBean to switch the datasource of every node of the cluster together.")
+public class ClusterRoutingMBean {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ClusterRoutingMBean.class);
+
+	@Autowired
+	private ClusterRoutingCoordinator clusterRoutingCoordinator;
+
+	@ManagedOperation(description = "Publishes a cluster wide switch to the given lookup key and returns its epoch, or why it was not published")
+	public String switchClusterDataSource(String lookupKey) {
+		try {
+			return String.valueOf(clusterRoutingCoordinator.switchCluster(lookupKey));
+		} catch (DataSourceRoutingException e) {
+			LOG.warn("Cluster switch to '{}' not published. {}", lookupKey, e.getMessage());
+			return "Cluster switch could not be published. " + e.getMessage();
+		}
+	}
+
+	@ManagedAttribute(description = "Cluster routing coordination is on")
+	public boolean isEnabled() {
+		return clusterRoutingCoordinator.isEnabled();
+	}
+
+	@ManagedAttribute(description = "Id of this node in the cluster tables")
+	public String getNodeId() {
+		return clusterRoutingCoordinator.getNodeId();
+	}
+
+	@ManagedAttribute(description = "Last routing epoch this node switched to")
+	public long getAppliedEpoch() {
+		return clusterRoutingCoordinator.getAppliedEpoch();
+	}
+
+	@ManagedAttribute(description = "Lookup key of the last routing epoch this node switched to")
+	public String getAppliedLookupKey() {
+		return clusterRoutingCoordinator.getAppliedLookupKey();
+	}
+
+	@ManagedAttribute(description = "Routing epoch observed and not switched to yet, 0 if none")
+	public long getPendingEpoch() {
+		return clusterRoutingCoordinator.getPendingEpoch();
+	}
+
+	@ManagedAttribute(description = "State of this node: SWITCHED, OBSERVED, DRAINED, FAILED or ABORTED")
+	public String getNodeState() {
+		return clusterRoutingCoordinator.getNodeState().name();
+	}
+
+	@ManagedAttribute(description = "Milliseconds between publishing the last epoch and this node observing it")
+	public long getLastObserveLagMillis() {
+		return clusterRoutingCoordinator.getLastObserveLagMillis();
+	}
+
+	@ManagedAttribute(description = "Milliseconds between publishing the last epoch and this node switching to it")
+	public long getLastLocalConvergenceMillis() {
+		return clusterRoutingCoordinator.getLastLocalConvergenceMillis();
+	}
+
+	@ManagedAttribute(description = "Last routing epoch every live node switched to")
+	public long getConvergedEpoch() {
+		return clusterRoutingCoordinator.getConvergedEpoch();
+	}
+
+	@ManagedAttribute(description = "Milliseconds between publishing the converged epoch and the last live node switching to it")
+	public long getLastClusterConvergenceMillis() {
+		return clusterRoutingCoordinator.getLastClusterConvergenceMillis();
+	}
+
+	@ManagedAttribute(description = "Live nodes when the converged epoch was reached")
+	public int getConvergedNodes() {
+		return clusterRoutingCoordinator.getConvergedNodes();
+	}
+
+	@ManagedAttribute(description = "Live nodes with their lookup key, epoch and state")
+	public Map<String, String> getLiveNodes() {
+		return clusterRoutingCoordinator.getLiveNodes();
+	}
+
+	@ManagedAttribute(description = "Last routing epoch seen decided, 0 if none")
+	public long getDecidedEpoch() {
+		return clusterRoutingCoordinator.getDecidedEpoch();
+	}
+
+	@ManagedAttribute(description = "Decision of the last decided routing epoch: COMMIT or ABORT")
+	public String getLastDecision() {
+		ClusterRoutingCoordinator.Decision decision = clusterRoutingCoordinator.getLastDecision();
+		return decision == null ? "none" : decision.name();
+	}
+
+	@ManagedAttribute(description = "Last error of polling or switching")
+	public String getLastError() {
+		return clusterRoutingCoordinator.getLastError();
+	}
+}
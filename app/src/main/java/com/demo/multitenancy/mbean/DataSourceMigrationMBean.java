@@ -0,0 +1,183 @@
+package com.demo.multitenancy.mbean;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.demo.multitenancy.config.db.ConnectionDrainMonitor;
+import com.demo.multitenancy.config.db.DataSourceContextManager;
+import com.demo.multitenancy.config.db.MigrationGate;
+import com.demo.multitenancy.config.db.MigrationJob;
+import com.demo.multitenancy.config.db.MigrationOrchestrator;
+import com.demo.multitenancy.config.db.PoolWarmer;
+import com.demo.multitenancy.config.db.TenantDataSourceRegistry;
+import com.demo.multitenancy.exception.DataSourceRoutingException;
+
+/*
+ * Migrations run as jobs of the MigrationOrchestrator: migrateDataSource
+ * returns the job id right away and the job is followed through the
+ * attributes of the current job, or by id.
+ */
+@Component
+@ManagedResource(objectName = "com.demo.multitenancy:category=MBeans,name=DataSourceMigrationMBean", description = "MBean to switch datasource dynamically.")
+public class DataSourceMigrationMBean {
+
+	private static final Logger LOG = LoggerFactory.getLogger(DataSourceMigrationMBean.class);
+
+	private static final String FAILURE_MSG = "DataSource could not migrate. _MSG_";
+
+	@Autowired
+	private DataSourceContextManager dataSourceContextManager;
+
+	@Autowired
+	private TenantDataSourceRegistry tenantDataSourceRegistry;
+
+	@Autowired
+	private ConnectionDrainMonitor connectionDrainMonitor;
+
+	@Autowired
+	private MigrationGate migrationGate;
+
+	@Autowired
+	private PoolWarmer poolWarmer;
+
+	@Autowired
+	private MigrationOrchestrator migrationOrchestrator;
+
+	@ManagedOperation(description = "Starts a migration to the given lookup key and returns its job id, or why it was not started")
+	public String migrateDataSource(String lookupKey) {
+		try {
+			return String.valueOf(migrationOrchestrator.start(lookupKey).getId());
+		} catch (DataSourceRoutingException e) {
+			LOG.warn("DataSource migration to '{}' not started. {}", lookupKey, e.getMessage());
+			return FAILURE_MSG.replace("_MSG_", e.getMessage());
+		}
+	}
+
+	@ManagedOperation(description = "Cancels the migration job with the given id unless it is already switching")
+	public String cancelMigration(long jobId) {
+		MigrationJob job = migrationOrchestrator.getJob(jobId);
+		if (job == null) {
+			return "Unknown migration job " + jobId + ".";
+		}
+		return migrationOrchestrator.cancel(jobId) ? "Cancellation of migration job " + jobId + " requested."
+				: "Migration job " + jobId + " cannot be cancelled in state " + job.getState() + ".";
+	}
+
+	@ManagedOperation(description = "State, phase durations and outcome of the migration job with the given id")
+	public String describeMigration(long jobId) {
+		MigrationJob job = migrationOrchestrator.getJob(jobId);
+		return job == null ? "Unknown migration job " + jobId + "." : job.toString();
+	}
+
+	@ManagedAttribute(description = "Id of the current or last migration job, 0 if there was none")
+	public long getJobId() {
+		MigrationJob job = migrationOrchestrator.getCurrentJob();
+		return job == null ? 0 : job.getId();
+	}
+
+	@ManagedAttribute(description = "Lookup key the current or last migration job migrates to")
+	public String getJobLookupKey() {
+		MigrationJob job = migrationOrchestrator.getCurrentJob();
+		return job == null ? null : job.getLookupKey();
+	}
+
+	@ManagedAttribute(description = "State of the current or last migration job")
+	public String getJobState() {
+		MigrationJob job = migrationOrchestrator.getCurrentJob();
+		return job == null ? null : job.getState().name();
+	}
+
+	@ManagedAttribute(description = "Elapsed time of the current or last migration job in milliseconds")
+	public long getJobElapsedMillis() {
+		MigrationJob job = migrationOrchestrator.getCurrentJob();
+		return job == null ? 0 : job.getElapsedMillis();
+	}
+
+	@ManagedAttribute(description = "Milliseconds spent in each phase of the current or last migration job")
+	public Map<String, Long> getJobPhaseMillis() {
+		MigrationJob job = migrationOrchestrator.getCurrentJob();
+		return job == null ? null : job.getPhaseMillis();
+	}
+
+	@ManagedAttribute(description = "Outcome of the last migration job, null while it runs")
+	public String getJobOutcome() {
+		MigrationJob job = migrationOrchestrator.getCurrentJob();
+		return job == null ? null : job.getOutcome();
+	}
+
+	@ManagedAttribute(description = "Recent migration jobs by id")
+	public Map<Long, String> getJobs() {
+		return migrationOrchestrator.getJobs().stream()
+				.collect(Collectors.toMap(MigrationJob::getId, MigrationJob::toString, (a, b) -> a,
+						LinkedHashMap::new));
+	}
+
+	@ManagedAttribute(description = "Current lookup key")
+	public String getCurrentLookupKey() {
+		return dataSourceContextManager.getCurrentlyActiveLookpKey();
+	}
+
+	@ManagedAttribute(description = "Duration of the last connection pool drain in milliseconds")
+	public long getLastDrainDurationMillis() {
+		return connectionDrainMonitor.getLastDrainDurationMillis();
+	}
+
+	@ManagedAttribute(description = "Whether the last connection pool drain timed out")
+	public boolean isLastDrainTimedOut() {
+		return connectionDrainMonitor.isLastDrainTimedOut();
+	}
+
+	@ManagedAttribute(description = "Connections currently leased out of each connection pool")
+	public Map<String, Integer> getOpenLeases() {
+		return tenantDataSourceRegistry.getOpenLeases();
+	}
+
+	@ManagedAttribute(description = "Longest time in milliseconds a connection request is parked during a migration")
+	public long getMaxParkMillis() {
+		return migrationGate.getMaxParkMillis();
+	}
+
+	@ManagedAttribute(description = "Connection requests parked during the last migration")
+	public int getLastParkedRequests() {
+		return migrationGate.getLastParkedRequests();
+	}
+
+	@ManagedAttribute(description = "Connection requests rejected during the last migration")
+	public long getLastRejectedRequests() {
+		return migrationGate.getLastRejectedRequests();
+	}
+
+	@ManagedAttribute(description = "p50 park latency of the last migration in milliseconds")
+	public long getLastP50ParkMillis() {
+		return migrationGate.getLastP50ParkMillis();
+	}
+
+	@ManagedAttribute(description = "p99 park latency of the last migration in milliseconds")
+	public long getLastP99ParkMillis() {
+		return migrationGate.getLastP99ParkMillis();
+	}
+
+	@ManagedAttribute(description = "Maximum park latency of the last migration in milliseconds")
+	public long getLastMaxParkMillis() {
+		return migrationGate.getLastMaxParkMillis();
+	}
+
+	@ManagedAttribute(description = "Duration of the warm-up phase of the last migration in milliseconds")
+	public long getLastWarmUpMillis() {
+		return poolWarmer.getLastWarmUpMillis();
+	}
+
+	@ManagedAttribute(description = "Connections warmed up during the last migration")
+	public int getLastWarmedConnections() {
+		return poolWarmer.getLastWarmedConnections();
+	}
+}
@@ -0,0 +1,116 @@
+package com.demo.multitenancy.mbean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.demo.multitenancy.config.db.DataSynchronizer;
+
+@Component
+@ManagedResource(objectName = "com.demo.multitenancy:category=MBeans,name=DataSyncMBean", description = "MBean to copy data between datasources.")
+public class DataSyncMBean {
+
+	private static final Logger LOG = LoggerFactory.getLogger(DataSyncMBean.class);
+
+	@Autowired
+	private DataSynchronizer dataSynchronizer;
+
+	/*
+	 * Copies and reconciles while the source keeps serving traffic, so writes
+	 * landing on it during the reconcile pass may still be missing afterwards.
+	 * Runs with the same sync id resume from each other's checkpoints.
+	 */
+	@ManagedOperation
+	public String syncData(String sourceLookupKey, String targetLookupKey, String syncId) {
+		try {
+			dataSynchronizer.copy(sourceLookupKey, targetLookupKey, syncId);
+			dataSynchronizer.reconcile(sourceLookupKey, targetLookupKey, syncId);
+			return "SUCCESS";
+		} catch (Exception e) {
+			LOG.error("Could not sync data from '{}' to '{}'. Error - {}", sourceLookupKey, targetLookupKey,
+					e.getMessage());
+			return "FAILED: " + e.getMessage();
+		}
+	}
+
+	@ManagedOperation
+	public String clearCheckpoints(String sourceLookupKey, String targetLookupKey) {
+		try {
+			dataSynchronizer.clearCheckpoints(sourceLookupKey, targetLookupKey);
+			return "SUCCESS";
+		} catch (Exception e) {
+			LOG.error("Could not clear data sync checkpoints of '{}' in '{}'. Error - {}", sourceLookupKey,
+					targetLookupKey, e.getMessage());
+			return "FAILED: " + e.getMessage();
+		}
+	}
+
+	@ManagedAttribute(description = "Whether a datasource migration copies the data of the active datasource first")
+	public boolean isSyncOnMigrationEnabled() {
+		return dataSynchronizer.isEnabled();
+	}
+
+	@ManagedAttribute(description = "Enables or disables copying the data of the active datasource as part of a datasource migration")
+	public void setSyncOnMigrationEnabled(boolean enabled) {
+		dataSynchronizer.setEnabled(enabled);
+	}
+
+	@ManagedAttribute(description = "Whether a data sync pass is running")
+	public boolean isRunning() {
+		return dataSynchronizer.isRunning();
+	}
+
+	@ManagedAttribute(description = "Current or last data sync pass")
+	public String getLastPass() {
+		return dataSynchronizer.getLastPass();
+	}
+
+	@ManagedAttribute(description = "Chunks of the current or last pass")
+	public int getTotalChunks() {
+		return dataSynchronizer.getTotalChunks();
+	}
+
+	@ManagedAttribute(description = "Chunks copied by the current or last pass")
+	public int getCompletedChunks() {
+		return dataSynchronizer.getCompletedChunks();
+	}
+
+	@ManagedAttribute(description = "Chunks skipped by the current or last pass because of a checkpoint")
+	public int getSkippedChunks() {
+		return dataSynchronizer.getSkippedChunks();
+	}
+
+	@ManagedAttribute(description = "Progress of the current or last pass in percent")
+	public double getProgressPercent() {
+		return dataSynchronizer.getProgressPercent();
+	}
+
+	@ManagedAttribute(description = "Students copied by the current or last pass")
+	public long getCopiedStudents() {
+		return dataSynchronizer.getCopiedStudents();
+	}
+
+	@ManagedAttribute(description = "Addresses copied by the current or last pass")
+	public long getCopiedAddresses() {
+		return dataSynchronizer.getCopiedAddresses();
+	}
+
+	@ManagedAttribute(description = "Rows copied per second by the current or last pass")
+	public long getRowsPerSecond() {
+		return dataSynchronizer.getRowsPerSecond();
+	}
+
+	@ManagedAttribute(description = "Duration of the current or last pass in milliseconds")
+	public long getElapsedMillis() {
+		return dataSynchronizer.getElapsedMillis();
+	}
+
+	@ManagedAttribute(description = "Error of the last pass, if it failed")
+	public String getLastError() {
+		return dataSynchronizer.getLastError();
+	}
+}
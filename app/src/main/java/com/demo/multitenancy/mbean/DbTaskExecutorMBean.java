@@ -0,0 +1,46 @@
+package com.demo.multitenancy.mbean;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.demo.multitenancy.config.web.DbTaskExecutor;
+
+@Component
+@ManagedResource(objectName = "com.demo.multitenancy:category=MBeans,name=DbTaskExecutorMBean", description = "MBean to monitor the executor running controller database work.")
+public class DbTaskExecutorMBean {
+
+	@Autowired
+	private DbTaskExecutor dbTaskExecutor;
+
+	@ManagedAttribute(description = "Requests waiting for a database worker")
+	public int getQueueDepth() {
+		return dbTaskExecutor.getQueueDepth();
+	}
+
+	@ManagedAttribute(description = "Requests currently running database work")
+	public int getActiveTasks() {
+		return dbTaskExecutor.getActiveTasks();
+	}
+
+	@ManagedAttribute(description = "Requests rejected with 503 because the queue was full")
+	public long getRejectedRequests() {
+		return dbTaskExecutor.getRejectedTasks();
+	}
+
+	@ManagedAttribute(description = "Maximum number of concurrently running database tasks")
+	public int getConcurrency() {
+		return dbTaskExecutor.getConcurrency();
+	}
+
+	@ManagedAttribute(description = "Maximum number of waiting database tasks")
+	public int getQueueCapacity() {
+		return dbTaskExecutor.getQueueCapacity();
+	}
+
+	@ManagedAttribute(description = "Whether database workers are virtual threads")
+	public boolean isUsingVirtualThreads() {
+		return dbTaskExecutor.isUsingVirtualThreads();
+	}
+}
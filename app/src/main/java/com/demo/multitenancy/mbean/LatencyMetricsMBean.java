@@ -0,0 +1,45 @@
+package com.demo.multitenancy.mbean;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.demo.multitenancy.metrics.LatencyMetrics;
+
+@Component
+@ManagedResource(objectName = "com.demo.multitenancy:category=MBeans,name=LatencyMetricsMBean", description = "MBean to monitor hot-path latencies. All values are in microseconds.")
+public class LatencyMetricsMBean {
+
+	@Autowired
+	private LatencyMetrics latencyMetrics;
+
+	@ManagedAttribute(description = "Connection acquire time per pool")
+	public Map<String, Map<String, Long>> getConnectionAcquire() {
+		return latencyMetrics.getConnectionAcquire();
+	}
+
+	@ManagedAttribute(description = "Statement execution time per Queries constant")
+	public Map<String, Map<String, Long>> getQueries() {
+		return latencyMetrics.getQueries();
+	}
+
+	@ManagedAttribute(description = "Time to map one row")
+	public Map<String, Map<String, Long>> getRowMapping() {
+		return latencyMetrics.getRowMapping();
+	}
+
+	@ManagedAttribute(description = "Duration of each datasource migration phase")
+	public Map<String, Map<String, Long>> getMigrationPhases() {
+		return latencyMetrics.getMigrationPhases();
+	}
+
+	@ManagedOperation
+	public String reset() {
+		latencyMetrics.reset();
+		return "SUCCESS";
+	}
+}
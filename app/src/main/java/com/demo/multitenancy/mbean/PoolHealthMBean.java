@@ -0,0 +1,89 @@
+package com.demo.multitenancy.mbean;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.demo.multitenancy.config.db.PoolHealthMonitor;
+
+@Component
+@ManagedResource(objectName = "com.demo.multitenancy:category=MBeans,name=PoolHealthMBean", description = "MBean to monitor pool health and automatic failover.")
+public class PoolHealthMBean {
+
+	@Autowired
+	private PoolHealthMonitor poolHealthMonitor;
+
+	@ManagedAttribute(description = "Whether the active datasource is failed over automatically")
+	public boolean isAutoFailoverEnabled() {
+		return poolHealthMonitor.isEnabled();
+	}
+
+	@ManagedAttribute(description = "Turns automatic failover of the active datasource on or off")
+	public void setAutoFailoverEnabled(boolean enabled) {
+		poolHealthMonitor.setEnabled(enabled);
+	}
+
+	@ManagedAttribute(description = "State of the failover circuit breaker")
+	public String getBreakerState() {
+		return poolHealthMonitor.getBreakerState().name();
+	}
+
+	@ManagedAttribute(description = "Consecutive probes the active datasource has been unhealthy")
+	public int getUnhealthyStreak() {
+		return poolHealthMonitor.getUnhealthyStreak();
+	}
+
+	@ManagedAttribute(description = "Time left before the breaker may trip again in milliseconds")
+	public long getCooldownRemainingMillis() {
+		return poolHealthMonitor.getCooldownRemainingMillis();
+	}
+
+	@ManagedAttribute(description = "Datasources an automatic failover may switch to")
+	public List<String> getFailoverCandidates() {
+		return poolHealthMonitor.getCandidates();
+	}
+
+	@ManagedAttribute(description = "Probed datasources within the error rate and latency thresholds")
+	public List<String> getHealthyPools() {
+		return poolHealthMonitor.getHealthyPools();
+	}
+
+	@ManagedAttribute(description = "Mean probe latency over the window of each probed datasource in milliseconds")
+	public Map<String, Double> getMeanLatencyMillis() {
+		return poolHealthMonitor.getMeanLatencyMillis();
+	}
+
+	@ManagedAttribute(description = "Connection validation time of the last probe in milliseconds")
+	public Map<String, Double> getLastValidationMillis() {
+		return poolHealthMonitor.getLastValidationMillis();
+	}
+
+	@ManagedAttribute(description = "Probe query round trip of the last probe in milliseconds")
+	public Map<String, Double> getLastQueryMillis() {
+		return poolHealthMonitor.getLastQueryMillis();
+	}
+
+	@ManagedAttribute(description = "Share of failed probes over the window of each probed datasource")
+	public Map<String, Double> getErrorRates() {
+		return poolHealthMonitor.getErrorRates();
+	}
+
+	@ManagedAttribute(description = "Last probe error of each probed datasource")
+	public Map<String, String> getLastErrors() {
+		return poolHealthMonitor.getLastErrors();
+	}
+
+	@ManagedAttribute(description = "Automatic failovers done")
+	public long getFailovers() {
+		return poolHealthMonitor.getFailovers();
+	}
+
+	@ManagedAttribute(description = "Last automatic failover attempt")
+	public String getLastFailover() {
+		return poolHealthMonitor.getLastFailover();
+	}
+}
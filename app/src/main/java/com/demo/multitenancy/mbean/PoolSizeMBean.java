@@ -0,0 +1,58 @@
+package com.demo.multitenancy.mbean;
+
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.demo.multitenancy.config.db.PoolAutoTuner;
+import com.demo.multitenancy.config.db.TenantDataSourceRegistry;
+
+@Component
+@ManagedResource(objectName = "com.demo.multitenancy:category=MBeans,name=PoolSizeMBean", description = "MBean to resize connection pools at runtime.")
+public class PoolSizeMBean {
+
+	private static final Logger LOG = LoggerFactory.getLogger(PoolSizeMBean.class);
+
+	@Autowired
+	private TenantDataSourceRegistry tenantDataSourceRegistry;
+
+	@Autowired
+	private PoolAutoTuner poolAutoTuner;
+
+	@ManagedOperation
+	public String resizePool(String lookupKey, int maximumPoolSize, int minimumIdle) {
+		try {
+			tenantDataSourceRegistry.resize(lookupKey, maximumPoolSize, minimumIdle);
+			return "SUCCESS";
+		} catch (Exception e) {
+			LOG.error("Could not resize connection pool of tenant '{}'. Error - {}", lookupKey, e.getMessage());
+			return "FAILED: " + e.getMessage();
+		}
+	}
+
+	@ManagedAttribute(description = "Maximum pool size of each tenant")
+	public Map<String, Integer> getPoolSizes() {
+		return tenantDataSourceRegistry.getPoolSizes();
+	}
+
+	@ManagedAttribute(description = "Whether pools are resized automatically")
+	public boolean isAutoTuneEnabled() {
+		return poolAutoTuner.isEnabled();
+	}
+
+	@ManagedAttribute(description = "Whether pools are resized automatically")
+	public void setAutoTuneEnabled(boolean enabled) {
+		poolAutoTuner.setEnabled(enabled);
+	}
+
+	@ManagedAttribute(description = "Last resize done by the auto-tuner")
+	public String getLastAutoTuneAction() {
+		return poolAutoTuner.getLastAction();
+	}
+}
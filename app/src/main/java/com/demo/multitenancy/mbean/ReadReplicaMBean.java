@@ -0,0 +1,44 @@
+package com.demo.multitenancy.mbean;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.demo.multitenancy.config.db.ReadReplicaRouter;
+
+@Component
+@ManagedResource(objectName = "com.demo.multitenancy:category=MBeans,name=ReadReplicaMBean", description = "MBean to monitor read/write splitting.")
+public class ReadReplicaMBean {
+
+	@Autowired
+	private ReadReplicaRouter readReplicaRouter;
+
+	@ManagedAttribute(description = "Last probed replication lag of each read replica in milliseconds, -1 if the probe failed")
+	public Map<String, Long> getReplicaLagMillis() {
+		return readReplicaRouter.getLagMillis();
+	}
+
+	@ManagedAttribute(description = "Read replicas currently within the lag threshold")
+	public List<String> getHealthyReplicas() {
+		return readReplicaRouter.getHealthyReplicas();
+	}
+
+	@ManagedAttribute(description = "Maximum replication lag of a read replica in milliseconds")
+	public long getMaxLagMillis() {
+		return readReplicaRouter.getMaxLagMillis();
+	}
+
+	@ManagedAttribute(description = "Read-only connections served by a read replica")
+	public long getReplicaReads() {
+		return readReplicaRouter.getReplicaReads();
+	}
+
+	@ManagedAttribute(description = "Read-only connections that fell back to the active datasource")
+	public long getFallbackReads() {
+		return readReplicaRouter.getFallbackReads();
+	}
+}
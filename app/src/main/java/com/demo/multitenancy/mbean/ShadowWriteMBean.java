@@ -0,0 +1,93 @@
+package com.demo.multitenancy.mbean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.demo.multitenancy.config.db.ShadowWriter;
+
+@Component
+@ManagedResource(objectName = "com.demo.multitenancy:category=MBeans,name=ShadowWriteMBean", description = "MBean to shadow writes onto a migration target.")
+public class ShadowWriteMBean {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ShadowWriteMBean.class);
+
+	@Autowired
+	private ShadowWriter shadowWriter;
+
+	@ManagedOperation
+	public String startShadowWrites(String targetLookupKey) {
+		try {
+			shadowWriter.setTargetLookupKey(targetLookupKey);
+			return "SUCCESS";
+		} catch (Exception e) {
+			LOG.error("Could not shadow writes to '{}'. Error - {}", targetLookupKey, e.getMessage());
+			return "FAILED: " + e.getMessage();
+		}
+	}
+
+	@ManagedOperation
+	public String stopShadowWrites() {
+		shadowWriter.setTargetLookupKey(null);
+		return "SUCCESS";
+	}
+
+	@ManagedAttribute(description = "Lookup key the writes are shadowed to, empty if shadow writes are off")
+	public String getTargetLookupKey() {
+		return shadowWriter.getTargetLookupKey();
+	}
+
+	@ManagedAttribute(description = "Whether every queued shadow write has been applied or given up on")
+	public boolean isCaughtUp() {
+		return shadowWriter.isCaughtUp();
+	}
+
+	@ManagedAttribute(description = "Shadow writes waiting in the queue")
+	public int getQueueDepth() {
+		return shadowWriter.getQueueDepth();
+	}
+
+	@ManagedAttribute(description = "Age of the oldest queued shadow write in milliseconds")
+	public long getLagMillis() {
+		return shadowWriter.getLagMillis();
+	}
+
+	@ManagedAttribute(description = "Time from commit to shadow apply of the last batch in milliseconds")
+	public long getLastApplyLagMillis() {
+		return shadowWriter.getLastApplyLagMillis();
+	}
+
+	@ManagedAttribute(description = "Shadow writes queued")
+	public long getQueuedWrites() {
+		return shadowWriter.getQueuedWrites();
+	}
+
+	@ManagedAttribute(description = "Shadow writes applied to the target")
+	public long getAppliedWrites() {
+		return shadowWriter.getAppliedWrites();
+	}
+
+	@ManagedAttribute(description = "Shadow writes given up on after all attempts failed")
+	public long getFailedWrites() {
+		return shadowWriter.getFailedWrites();
+	}
+
+	@ManagedAttribute(description = "Shadow writes dropped because the queue was full")
+	public long getDroppedWrites() {
+		return shadowWriter.getDroppedWrites();
+	}
+
+	@ManagedAttribute(description = "Batches applied to the target")
+	public long getBatches() {
+		return shadowWriter.getBatches();
+	}
+
+	@ManagedAttribute(description = "Error of the last failed shadow write attempt")
+	public String getLastError() {
+		return shadowWriter.getLastError();
+	}
+}
@@ -0,0 +1,53 @@
+package com.demo.multitenancy.mbean;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.demo.multitenancy.metrics.StartupTimings;
+
+@Component
+@ManagedResource(objectName = "com.demo.multitenancy:category=MBeans,name=StartupMBean", description = "MBean to monitor startup. Times are in milliseconds since the context started refreshing, -1 until reached.")
+public class StartupMBean {
+
+	@Autowired
+	private StartupTimings startupTimings;
+
+	@ManagedAttribute(description = "First connection of the active pool validated")
+	public long getActivePoolValidatedMillis() {
+		return startupTimings.getActivePoolValidatedMillis();
+	}
+
+	@ManagedAttribute(description = "Duration of the validation of the first connection of the active pool")
+	public long getActivePoolValidationMillis() {
+		return startupTimings.getActivePoolValidationMillis();
+	}
+
+	@ManagedAttribute(description = "Application context refreshed")
+	public long getContextRefreshedMillis() {
+		return startupTimings.getContextRefreshedMillis();
+	}
+
+	@ManagedAttribute(description = "Application ready to serve requests")
+	public long getReadyMillis() {
+		return startupTimings.getReadyMillis();
+	}
+
+	@ManagedAttribute(description = "First request completed")
+	public long getFirstRequestMillis() {
+		return startupTimings.getFirstRequestMillis();
+	}
+
+	@ManagedAttribute(description = "JVM uptime when the first request completed")
+	public long getFirstRequestJvmUptimeMillis() {
+		return startupTimings.getFirstRequestJvmUptimeMillis();
+	}
+
+	@ManagedAttribute(description = "Standby pools opened in the background")
+	public Map<String, Long> getStandbyOpenedMillis() {
+		return startupTimings.getStandbyOpenedMillis();
+	}
+}
@@ -0,0 +1,48 @@
+package com.demo.multitenancy.mbean;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.demo.multitenancy.cache.StudentCache;
+
+@Component
+@ManagedResource(objectName = "com.demo.multitenancy:category=MBeans,name=StudentCacheMBean", description = "MBean to monitor the findById student cache.")
+public class StudentCacheMBean {
+
+	@Autowired
+	private StudentCache studentCache;
+
+	@ManagedAttribute(description = "Cache hits")
+	public long getHitCount() {
+		return studentCache.getStats().hitCount();
+	}
+
+	@ManagedAttribute(description = "Cache misses")
+	public long getMissCount() {
+		return studentCache.getStats().missCount();
+	}
+
+	@ManagedAttribute(description = "Entries evicted for size or TTL")
+	public long getEvictionCount() {
+		return studentCache.getStats().evictionCount();
+	}
+
+	@ManagedAttribute(description = "Cache hit rate")
+	public double getHitRate() {
+		return studentCache.getStats().hitRate();
+	}
+
+	@ManagedAttribute(description = "Approximate number of cached students")
+	public long getSize() {
+		return studentCache.getSize();
+	}
+
+	@ManagedOperation
+	public String flush() {
+		studentCache.invalidateAll();
+		return "SUCCESS";
+	}
+}
@@ -0,0 +1,73 @@
+package com.demo.multitenancy.mbean;
+
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.demo.multitenancy.config.db.DbConfigProperties;
+import com.demo.multitenancy.config.db.TenantDataSourceRegistry;
+
+@Component
+@ManagedResource(objectName = "com.demo.multitenancy:category=MBeans,name=TenantRegistryMBean", description = "MBean to register and remove tenant datasources at runtime.")
+public class TenantRegistryMBean {
+
+	private static final Logger LOG = LoggerFactory.getLogger(TenantRegistryMBean.class);
+
+	@Autowired
+	private TenantDataSourceRegistry tenantDataSourceRegistry;
+
+	@ManagedOperation
+	public String registerTenant(String lookupKey, String url, String username, String password, String driver) {
+		DbConfigProperties properties = new DbConfigProperties();
+		properties.setUrl(url);
+		properties.setUsername(username);
+		properties.setPassword(password);
+		properties.setDriver(driver);
+		try {
+			tenantDataSourceRegistry.register(lookupKey, properties);
+			LOG.info("Tenant '{}' registered.", lookupKey);
+			return "SUCCESS";
+		} catch (Exception e) {
+			LOG.error("Could not register tenant '{}'. Error - {}", lookupKey, e.getMessage());
+			return "FAILED: " + e.getMessage();
+		}
+	}
+
+	@ManagedOperation
+	public String removeTenant(String lookupKey) {
+		try {
+			tenantDataSourceRegistry.remove(lookupKey);
+			LOG.info("Tenant '{}' removed.", lookupKey);
+			return "SUCCESS";
+		} catch (Exception e) {
+			LOG.error("Could not remove tenant '{}'. Error - {}", lookupKey, e.getMessage());
+			return "FAILED: " + e.getMessage();
+		}
+	}
+
+	@ManagedAttribute(description = "Registered tenant lookup keys")
+	public Set<String> getTenantLookupKeys() {
+		return tenantDataSourceRegistry.getLookupKeys();
+	}
+
+	@ManagedAttribute(description = "Tenant connection pools currently open")
+	public int getOpenPools() {
+		return tenantDataSourceRegistry.getOpenPools();
+	}
+
+	@ManagedAttribute(description = "Connections reserved by open pools against the global budget")
+	public int getAllocatedConnections() {
+		return tenantDataSourceRegistry.getAllocatedConnections();
+	}
+
+	@ManagedAttribute(description = "Global connection budget shared by all tenant pools")
+	public int getMaxTotalConnections() {
+		return tenantDataSourceRegistry.getMaxTotalConnections();
+	}
+}
@@ -0,0 +1,113 @@
+package com.demo.multitenancy.mbean;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.demo.multitenancy.config.db.WriteJournal;
+
+@Component
+@ManagedResource(objectName = "com.demo.multitenancy:category=MBeans,name=WriteJournalMBean", description = "MBean to monitor the journal absorbing student writes during a migration.")
+public class WriteJournalMBean {
+
+	@Autowired
+	private WriteJournal writeJournal;
+
+	@ManagedOperation(description = "Replays the pending journaled writes now instead of on the next interval")
+	public String replayNow() {
+		writeJournal.replayNow();
+		return "Pending writes = " + writeJournal.getPendingWrites();
+	}
+
+	@ManagedAttribute(description = "Whether student writes are journaled while the migration gate is closed")
+	public boolean isEnabled() {
+		return writeJournal.isEnabled();
+	}
+
+	@ManagedAttribute(description = "Whether new student writes go to the journal right now")
+	public boolean isBuffering() {
+		return writeJournal.isBuffering();
+	}
+
+	@ManagedAttribute(description = "Path of the journal file")
+	public String getPath() {
+		return writeJournal.getPath();
+	}
+
+	@ManagedAttribute(description = "Size of the mapped journal file in bytes")
+	public int getCapacityBytes() {
+		return writeJournal.getCapacityBytes();
+	}
+
+	@ManagedAttribute(description = "Bytes of the journal file in use")
+	public int getUsedBytes() {
+		return writeJournal.getUsedBytes();
+	}
+
+	@ManagedAttribute(description = "Journaled writes not replayed yet")
+	public long getPendingWrites() {
+		return writeJournal.getPendingWrites();
+	}
+
+	@ManagedAttribute(description = "Writes found in the journal on startup that were not replayed yet")
+	public long getRecoveredWrites() {
+		return writeJournal.getRecoveredWrites();
+	}
+
+	@ManagedAttribute(description = "Writes appended to the journal")
+	public long getAppendedWrites() {
+		return writeJournal.getAppendedWrites();
+	}
+
+	@ManagedAttribute(description = "Writes that went to the database because the journal was full")
+	public long getRejectedWrites() {
+		return writeJournal.getRejectedWrites();
+	}
+
+	@ManagedAttribute(description = "Journaled writes replayed into the active datasource")
+	public long getReplayedWrites() {
+		return writeJournal.getReplayedWrites();
+	}
+
+	@ManagedAttribute(description = "Journaled writes skipped on replay because they had been applied already")
+	public long getDuplicateWrites() {
+		return writeJournal.getDuplicateWrites();
+	}
+
+	@ManagedAttribute(description = "Journaled writes that failed on their own on replay and were moved to the dead-letter file")
+	public long getDeadLetterWrites() {
+		return writeJournal.getDeadLetterWrites();
+	}
+
+	@ManagedAttribute(description = "Path of the dead-letter file")
+	public String getDeadLetterPath() {
+		return writeJournal.getDeadLetterPath();
+	}
+
+	@ManagedAttribute(description = "Batches replayed")
+	public long getReplayBatches() {
+		return writeJournal.getReplayBatches();
+	}
+
+	@ManagedAttribute(description = "Writes replayed by the last replay")
+	public long getLastReplayWrites() {
+		return writeJournal.getLastReplayWrites();
+	}
+
+	@ManagedAttribute(description = "Duration of the last replay in milliseconds")
+	public long getLastReplayMillis() {
+		return writeJournal.getLastReplayMillis();
+	}
+
+	@ManagedAttribute(description = "Throughput of the last replay in writes per second")
+	public long getLastReplayWritesPerSecond() {
+		return writeJournal.getLastReplayWritesPerSecond();
+	}
+
+	@ManagedAttribute(description = "Last replay error")
+	public String getLastError() {
+		return writeJournal.getLastError();
+	}
+}
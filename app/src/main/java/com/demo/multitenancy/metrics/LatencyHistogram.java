@@ -0,0 +1,116 @@
+package com.demo.multitenancy.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Lock-free log-linear histogram of durations in nanoseconds. Every power of
+ * two is split into four buckets, so percentiles are exact to within 25%
+ * while recording is a single atomic increment and a fixed amount of memory.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKETS = 4;
+	private static final int BUCKETS = 62 * SUB_BUCKETS;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		buckets.incrementAndGet(index(value));
+		count.increment();
+		totalNanos.add(value);
+		long max = maxNanos.get();
+		while (value > max && !maxNanos.compareAndSet(max, value)) {
+			max = maxNanos.get();
+		}
+	}
+
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			buckets.set(i, 0);
+		}
+		count.reset();
+		totalNanos.reset();
+		maxNanos.set(0);
+	}
+
+	/*
+	 * Values in microseconds. Percentiles are the upper bound of the bucket the
+	 * rank falls into, capped at the maximum.
+	 */
+	public Map<String, Long> snapshot() {
+		long[] counts = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+		long max = maxNanos.get();
+		Map<String, Long> snapshot = new LinkedHashMap<>();
+		snapshot.put("count", total);
+		snapshot.put("meanMicros", total == 0 ? 0 : toMicros(totalNanos.sum() / Math.max(1, count.sum())));
+		snapshot.put("p50Micros", toMicros(percentile(counts, total, 0.50, max)));
+		snapshot.put("p90Micros", toMicros(percentile(counts, total, 0.90, max)));
+		snapshot.put("p99Micros", toMicros(percentile(counts, total, 0.99, max)));
+		snapshot.put("p999Micros", toMicros(percentile(counts, total, 0.999, max)));
+		snapshot.put("maxMicros", toMicros(max));
+		return snapshot;
+	}
+
+	private static long percentile(long[] counts, long total, double quantile, long max) {
+		if (total == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(quantile * total);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(max, upperBound(i));
+			}
+		}
+		return max;
+	}
+
+	private static long toMicros(long nanos) {
+		return TimeUnit.NANOSECONDS.toMicros(nanos);
+	}
+
+	static int index(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) ((value >>> (exponent - 2)) & (SUB_BUCKETS - 1));
+		return Math.min(BUCKETS - 1, (exponent - 1) * SUB_BUCKETS + subBucket);
+	}
+
+	static long upperBound(int index) {
+		if (index + 1 < SUB_BUCKETS) {
+			return index;
+		}
+		if (index == BUCKETS - 1) {
+			return Long.MAX_VALUE;
+		}
+		int next = index + 1;
+		int exponent = next / SUB_BUCKETS + 1;
+		long lowerBoundOfNext = (long) (SUB_BUCKETS + next % SUB_BUCKETS) << (exponent - 2);
+		return lowerBoundOfNext - 1;
+	}
+}
@@ -0,0 +1,103 @@
+package com.demo.multitenancy.metrics;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+import com.demo.multitenancy.rowmapper.StudentRowMapper;
+import com.demo.multitenancy.util.Queries;
+
+/*
+ * Registry of the hot-path histograms: connection acquire time per pool,
+ * query latency per Queries constant, row mapping time and the duration of
+ * each migration phase.
+ */
+@Component
+public class LatencyMetrics {
+
+	public static final String OTHER_QUERY = "OTHER";
+
+	private static final Map<String, String> QUERY_NAMES = queryNames();
+
+	private final Map<String, LatencyHistogram> connectionAcquire = new ConcurrentHashMap<>();
+	private final Map<String, LatencyHistogram> queries = new ConcurrentHashMap<>();
+	private final Map<String, LatencyHistogram> migrationPhases = new ConcurrentHashMap<>();
+
+	public LatencyHistogram connectionAcquire(String poolName) {
+		return connectionAcquire.computeIfAbsent(poolName, name -> new LatencyHistogram());
+	}
+
+	/*
+	 * Statements that are not one of the Queries constants are recorded as
+	 * OTHER, so the number of histograms stays bounded.
+	 */
+	public LatencyHistogram query(String sql) {
+		String name = Objects.isNull(sql) ? OTHER_QUERY : QUERY_NAMES.getOrDefault(sql, OTHER_QUERY);
+		return queries.computeIfAbsent(name, key -> new LatencyHistogram());
+	}
+
+	public LatencyHistogram migrationPhase(String phase) {
+		return migrationPhases.computeIfAbsent(phase, key -> new LatencyHistogram());
+	}
+
+	public Map<String, Map<String, Long>> getConnectionAcquire() {
+		return snapshot(connectionAcquire);
+	}
+
+	public Map<String, Map<String, Long>> getQueries() {
+		return snapshot(queries);
+	}
+
+	public Map<String, Map<String, Long>> getRowMapping() {
+		return Collections.singletonMap(StudentRowMapper.class.getSimpleName(),
+				StudentRowMapper.MAPPING_TIME.snapshot());
+	}
+
+	public Map<String, Map<String, Long>> getMigrationPhases() {
+		return snapshot(migrationPhases);
+	}
+
+	public Map<String, Map<String, Map<String, Long>>> getAll() {
+		Map<String, Map<String, Map<String, Long>>> all = new LinkedHashMap<>();
+		all.put("connectionAcquire", getConnectionAcquire());
+		all.put("queries", getQueries());
+		all.put("rowMapping", getRowMapping());
+		all.put("migrationPhases", getMigrationPhases());
+		return all;
+	}
+
+	public void reset() {
+		connectionAcquire.values().forEach(LatencyHistogram::reset);
+		queries.values().forEach(LatencyHistogram::reset);
+		migrationPhases.values().forEach(LatencyHistogram::reset);
+		StudentRowMapper.MAPPING_TIME.reset();
+	}
+
+	private static Map<String, Map<String, Long>> snapshot(Map<String, LatencyHistogram> histograms) {
+		Map<String, Map<String, Long>> snapshot = new TreeMap<>();
+		histograms.forEach((name, histogram) -> snapshot.put(name, histogram.snapshot()));
+		return snapshot;
+	}
+
+	private static Map<String, String> queryNames() {
+		Map<String, String> names = new HashMap<>();
+		for (Field field : Queries.class.getDeclaredFields()) {
+			if (Modifier.isStatic(field.getModifiers()) && field.getType() == String.class) {
+				try {
+					names.put((String) field.get(null), field.getName());
+				} catch (IllegalAccessException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		}
+		return names;
+	}
+}
@@ -0,0 +1,107 @@
+package com.demo.multitenancy.metrics;
+
+/*
+ * Database time spent on behalf of one request: connection acquisition and
+ * statement execution, plus the lookup key the connections were routed to.
+ * Bound to the request thread and carried along to the executor threads by
+ * wrap, like the tenant. The work of a request runs on one thread at a time,
+ * handed over through the executors, so the fields are plain.
+ */
+public final class RequestDbTimings {
+
+	private static final ThreadLocal<RequestDbTimings> CURRENT = new ThreadLocal<>();
+
+	private final long startNanos = System.nanoTime();
+	private String lookupKey;
+	private boolean readReplica;
+	private int connections;
+	private long acquireNanos;
+	private int statements;
+	private long statementNanos;
+
+	public static RequestDbTimings begin() {
+		RequestDbTimings timings = new RequestDbTimings();
+		CURRENT.set(timings);
+		return timings;
+	}
+
+	public static void bind(RequestDbTimings timings) {
+		CURRENT.set(timings);
+	}
+
+	public static void clear() {
+		CURRENT.remove();
+	}
+
+	public static void routedTo(String lookupKey, boolean readReplica) {
+		RequestDbTimings timings = CURRENT.get();
+		if (timings != null) {
+			timings.lookupKey = lookupKey;
+			timings.readReplica = readReplica;
+		}
+	}
+
+	public static void connectionAcquired(long nanos) {
+		RequestDbTimings timings = CURRENT.get();
+		if (timings != null) {
+			timings.connections++;
+			timings.acquireNanos += nanos;
+		}
+	}
+
+	public static void statementExecuted(long nanos) {
+		RequestDbTimings timings = CURRENT.get();
+		if (timings != null) {
+			timings.statements++;
+			timings.statementNanos += nanos;
+		}
+	}
+
+	/*
+	 * Captures the timings of the calling thread so that the task adds to them,
+	 * and restores the running thread's own binding afterwards.
+	 */
+	public static Runnable wrap(Runnable task) {
+		RequestDbTimings timings = CURRENT.get();
+		if (timings == null) {
+			return task;
+		}
+		return () -> {
+			RequestDbTimings previous = CURRENT.get();
+			CURRENT.set(timings);
+			try {
+				task.run();
+			} finally {
+				CURRENT.set(previous);
+			}
+		};
+	}
+
+	public long getStartNanos() {
+		return startNanos;
+	}
+
+	public String getLookupKey() {
+		return lookupKey;
+	}
+
+	public boolean isReadReplica() {
+		return readReplica;
+	}
+
+	public int getConnections() {
+		return connections;
+	}
+
+	public long getAcquireNanos() {
+		return acquireNanos;
+	}
+
+	public int getStatements() {
+		return statements;
+	}
+
+	public long getStatementNanos() {
+		return statementNanos;
+	}
+}
@@ -0,0 +1,100 @@
+package com.demo.multitenancy.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/*
+ * Startup milestones in milliseconds since the application context started
+ * refreshing, -1 until reached: validation of the first connection of the
+ * active pool, end of the refresh, application ready, the first completed
+ * request, and every standby pool opened in the background.
+ */
+@Component
+public class StartupTimings {
+
+	@Autowired
+	private ApplicationContext applicationContext;
+
+	private final AtomicBoolean firstRequestSeen = new AtomicBoolean();
+	private final Map<String, Long> standbyOpenedMillis = new ConcurrentHashMap<>();
+	private volatile long activePoolValidatedMillis = -1;
+	private volatile long activePoolValidationMillis = -1;
+	private volatile long contextRefreshedMillis = -1;
+	private volatile long readyMillis = -1;
+	private volatile long firstRequestMillis = -1;
+	private volatile long firstRequestJvmUptimeMillis = -1;
+
+	public void activePoolValidated(long validationMillis) {
+		activePoolValidationMillis = validationMillis;
+		activePoolValidatedMillis = sinceStartup();
+	}
+
+	public void standbyOpened(String lookupKey) {
+		standbyOpenedMillis.put(lookupKey, sinceStartup());
+	}
+
+	/*
+	 * Cheap enough to call at the end of every request: only the first caller
+	 * records anything.
+	 */
+	public void requestCompleted() {
+		if (!firstRequestSeen.get() && firstRequestSeen.compareAndSet(false, true)) {
+			firstRequestMillis = sinceStartup();
+			firstRequestJvmUptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+		}
+	}
+
+	@EventListener
+	public void onContextRefreshed(ContextRefreshedEvent event) {
+		if (event.getApplicationContext() == applicationContext) {
+			contextRefreshedMillis = sinceStartup();
+		}
+	}
+
+	@EventListener
+	public void onApplicationReady(ApplicationReadyEvent event) {
+		readyMillis = sinceStartup();
+	}
+
+	private long sinceStartup() {
+		return System.currentTimeMillis() - applicationContext.getStartupDate();
+	}
+
+	public long getActivePoolValidatedMillis() {
+		return activePoolValidatedMillis;
+	}
+
+	public long getActivePoolValidationMillis() {
+		return activePoolValidationMillis;
+	}
+
+	public long getContextRefreshedMillis() {
+		return contextRefreshedMillis;
+	}
+
+	public long getReadyMillis() {
+		return readyMillis;
+	}
+
+	public long getFirstRequestMillis() {
+		return firstRequestMillis;
+	}
+
+	public long getFirstRequestJvmUptimeMillis() {
+		return firstRequestJvmUptimeMillis;
+	}
+
+	public Map<String, Long> getStandbyOpenedMillis() {
+		return new LinkedHashMap<>(standbyOpenedMillis);
+	}
+}
@@ -0,0 +1,182 @@
+package com.demo.multitenancy.metrics;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.SqlProvider;
+import org.springframework.jdbc.support.KeyHolder;
+
+/*
+ * Times the statements it runs into the query histogram of their SQL and the
+ * RequestDbTimings of the current request, without wrapping connections or
+ * statements. The clock starts once the statement has been created, after the
+ * connection was acquired, and stops once it has executed; for queries that
+ * is before the first row is read, so row mapping is not counted twice.
+ * Statements whose creator does not provide its SQL are recorded as OTHER.
+ * Statements run on a raw connection or in a ConnectionCallback are not
+ * timed.
+ */
+public class TimedJdbcTemplate extends JdbcTemplate {
+
+	private static final ThreadLocal<Timing> TIMING = ThreadLocal.withInitial(Timing::new);
+
+	private final LatencyMetrics latencyMetrics;
+
+	public TimedJdbcTemplate(DataSource dataSource, LatencyMetrics latencyMetrics) {
+		super(dataSource);
+		this.latencyMetrics = latencyMetrics;
+	}
+
+	@Override
+	public <T> T query(PreparedStatementCreator psc, PreparedStatementSetter pss, ResultSetExtractor<T> rse)
+			throws DataAccessException {
+		Timing timing = begin(sqlOf(psc));
+		try {
+			return super.query(psc, pss, rs -> {
+				stop(timing);
+				return rse.extractData(rs);
+			});
+		} finally {
+			end(timing);
+		}
+	}
+
+	@Override
+	public <T> T query(String sql, ResultSetExtractor<T> rse) throws DataAccessException {
+		Timing timing = begin(sql);
+		try {
+			return super.query(sql, rs -> {
+				stop(timing);
+				return rse.extractData(rs);
+			});
+		} finally {
+			end(timing);
+		}
+	}
+
+	@Override
+	protected int update(PreparedStatementCreator psc, PreparedStatementSetter pss) throws DataAccessException {
+		Timing timing = begin(sqlOf(psc));
+		try {
+			return super.update(psc, pss);
+		} finally {
+			end(timing);
+		}
+	}
+
+	@Override
+	public int update(PreparedStatementCreator psc, KeyHolder generatedKeyHolder) throws DataAccessException {
+		Timing timing = begin(sqlOf(psc));
+		try {
+			return super.update(psc, generatedKeyHolder);
+		} finally {
+			end(timing);
+		}
+	}
+
+	@Override
+	public int update(String sql) throws DataAccessException {
+		Timing timing = begin(sql);
+		try {
+			return super.update(sql);
+		} finally {
+			end(timing);
+		}
+	}
+
+	@Override
+	public <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action)
+			throws DataAccessException {
+		Timing timing = begin(sqlOf(psc));
+		try {
+			return super.execute(psc, action);
+		} finally {
+			end(timing);
+		}
+	}
+
+	@Override
+	public <T> T execute(String sql, PreparedStatementCallback<T> action) throws DataAccessException {
+		Timing timing = begin(sql);
+		try {
+			return super.execute(sql, action);
+		} finally {
+			end(timing);
+		}
+	}
+
+	@Override
+	public void execute(String sql) throws DataAccessException {
+		Timing timing = begin(sql);
+		try {
+			super.execute(sql);
+		} finally {
+			end(timing);
+		}
+	}
+
+	/*
+	 * Called for every statement right after it is created.
+	 */
+	@Override
+	protected void applyStatementSettings(Statement stmt) throws SQLException {
+		super.applyStatementSettings(stmt);
+		Timing timing = TIMING.get();
+		timing.startNanos = System.nanoTime();
+		timing.running = true;
+	}
+
+	/*
+	 * Called right after the statement callback, unless it failed.
+	 */
+	@Override
+	protected void handleWarnings(Statement stmt) throws SQLException {
+		stop(TIMING.get());
+		super.handleWarnings(stmt);
+	}
+
+	private static Timing begin(String sql) {
+		Timing timing = TIMING.get();
+		timing.sql = sql;
+		timing.running = false;
+		return timing;
+	}
+
+	/*
+	 * A statement that failed is recorded here, along with the failure.
+	 */
+	private void end(Timing timing) {
+		stop(timing);
+		timing.sql = null;
+	}
+
+	private void stop(Timing timing) {
+		if (timing.running) {
+			timing.running = false;
+			long nanos = System.nanoTime() - timing.startNanos;
+			latencyMetrics.query(timing.sql).record(nanos);
+			RequestDbTimings.statementExecuted(nanos);
+		}
+	}
+
+	private static String sqlOf(PreparedStatementCreator psc) {
+		return psc instanceof SqlProvider ? ((SqlProvider) psc).getSql() : null;
+	}
+
+	/*
+	 * Per thread and reused, so timing a statement allocates nothing.
+	 */
+	private static final class Timing {
+		private String sql;
+		private long startNanos;
+		private boolean running;
+	}
+}
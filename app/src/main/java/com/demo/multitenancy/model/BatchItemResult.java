@@ -0,0 +1,62 @@
+package com.demo.multitenancy.model;
+
+public class BatchItemResult {
+
+	public enum Status {
+		SAVED, FAILED;
+	}
+
+	private int index;
+	private Status status;
+	private Student student;
+	private String error;
+
+	public static BatchItemResult saved(int index, Student student) {
+		BatchItemResult result = new BatchItemResult();
+		result.setIndex(index);
+		result.setStatus(Status.SAVED);
+		result.setStudent(student);
+		return result;
+	}
+
+	public static BatchItemResult failed(int index, Student student, String error) {
+		BatchItemResult result = new BatchItemResult();
+		result.setIndex(index);
+		result.setStatus(Status.FAILED);
+		result.setStudent(student);
+		result.setError(error);
+		return result;
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public void setIndex(int index) {
+		this.index = index;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public void setStatus(Status status) {
+		this.status = status;
+	}
+
+	public Student getStudent() {
+		return student;
+	}
+
+	public void setStudent(Student student) {
+		this.student = student;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+}
@@ -0,0 +1,54 @@
+package com.demo.multitenancy.model;
+
+public class PendingWrite {
+
+	public enum Status {
+		PENDING;
+	}
+
+	private Status status;
+	private long journalId;
+	private long sequence;
+	private Student student;
+
+	public static PendingWrite pending(long journalId, long sequence, Student student) {
+		PendingWrite write = new PendingWrite();
+		write.setStatus(Status.PENDING);
+		write.setJournalId(journalId);
+		write.setSequence(sequence);
+		write.setStudent(student);
+		return write;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public void setStatus(Status status) {
+		this.status = status;
+	}
+
+	public long getJournalId() {
+		return journalId;
+	}
+
+	public void setJournalId(long journalId) {
+		this.journalId = journalId;
+	}
+
+	public long getSequence() {
+		return sequence;
+	}
+
+	public void setSequence(long sequence) {
+		this.sequence = sequence;
+	}
+
+	public Student getStudent() {
+		return student;
+	}
+
+	public void setStudent(Student student) {
+		this.student = student;
+	}
+}
@@ -0,0 +1,32 @@
+package com.demo.multitenancy.model;
+
+import java.util.List;
+
+public class StudentPage {
+	private List<Student> content;
+	private String next;
+
+	public StudentPage() {
+	}
+
+	public StudentPage(List<Student> content, String next) {
+		this.content = content;
+		this.next = next;
+	}
+
+	public List<Student> getContent() {
+		return content;
+	}
+
+	public void setContent(List<Student> content) {
+		this.content = content;
+	}
+
+	public String getNext() {
+		return next;
+	}
+
+	public void setNext(String next) {
+		this.next = next;
+	}
+}
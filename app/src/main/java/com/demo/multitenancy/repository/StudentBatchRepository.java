@@ -0,0 +1,146 @@
+package com.demo.multitenancy.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.demo.multitenancy.exception.DataSourceRoutingException;
+import com.demo.multitenancy.model.BatchItemResult;
+import com.demo.multitenancy.model.Student;
+import com.demo.multitenancy.util.Queries;
+
+/*
+ * Writes students and their addresses with JDBC batches: one batch round trip
+ * for the students of a chunk and one for their addresses, each returning the
+ * generated ids. Every chunk runs in its own transaction, so a failing chunk
+ * only fails its own items.
+ */
+@Repository
+public class StudentBatchRepository {
+
+	private static final Logger LOG = LoggerFactory.getLogger(StudentBatchRepository.class);
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Value("${app.student.batch.chunk-size:500}")
+	private int chunkSize;
+
+	public List<BatchItemResult> saveAll(List<Student> students) {
+		List<BatchItemResult> results = new ArrayList<>(students.size());
+		List<Student> chunk = new ArrayList<>(chunkSize);
+		List<Integer> chunkIndexes = new ArrayList<>(chunkSize);
+		for (int i = 0; i < students.size(); i++) {
+			Student student = students.get(i);
+			String error = validate(student);
+			if (Objects.nonNull(error)) {
+				results.add(BatchItemResult.failed(i, student, error));
+				continue;
+			}
+			chunk.add(student);
+			chunkIndexes.add(i);
+			if (chunk.size() == chunkSize) {
+				saveChunk(chunk, chunkIndexes, results);
+				chunk.clear();
+				chunkIndexes.clear();
+			}
+		}
+		if (!chunk.isEmpty()) {
+			saveChunk(chunk, chunkIndexes, results);
+		}
+		results.sort((a, b) -> Integer.compare(a.getIndex(), b.getIndex()));
+		return results;
+	}
+
+	private static String validate(Student student) {
+		if (Objects.isNull(student) || Objects.isNull(student.getName())) {
+			return "Student name is missing.";
+		}
+		if (Objects.isNull(student.getAddress())) {
+			return "Student address is missing.";
+		}
+		return null;
+	}
+
+	private void saveChunk(List<Student> chunk, List<Integer> indexes, List<BatchItemResult> results) {
+		try {
+			transactionTemplate.executeWithoutResult(status -> jdbcTemplate.execute(insertChunk(chunk)));
+			for (int i = 0; i < chunk.size(); i++) {
+				results.add(BatchItemResult.saved(indexes.get(i), chunk.get(i)));
+			}
+		} catch (Exception e) {
+			LOG.error("Could not save chunk of {} students. Error - {}", chunk.size(), e.getMessage());
+			for (int i = 0; i < chunk.size(); i++) {
+				Student student = chunk.get(i);
+				student.setId(null);
+				student.getAddress().setId(null);
+				student.getAddress().setStudentId(null);
+				results.add(BatchItemResult.failed(indexes.get(i), student, e.getMessage()));
+			}
+		}
+	}
+
+	private static ConnectionCallback<Void> insertChunk(List<Student> chunk) {
+		return connection -> {
+			long[] studentIds = executeBatch(connection, Queries.INSERT_STUDENT, chunk, (ps, student) -> {
+				ps.setString(1, student.getName());
+			});
+			for (int i = 0; i < chunk.size(); i++) {
+				chunk.get(i).setId(studentIds[i]);
+				chunk.get(i).getAddress().setStudentId(studentIds[i]);
+			}
+			long[] addressIds = executeBatch(connection, Queries.INSERT_ADDRESS, chunk, (ps, student) -> {
+				ps.setLong(1, student.getId());
+				ps.setString(2, student.getAddress().getAddress());
+			});
+			for (int i = 0; i < chunk.size(); i++) {
+				chunk.get(i).getAddress().setId(addressIds[i]);
+			}
+			return null;
+		};
+	}
+
+	private static long[] executeBatch(Connection connection, String query, List<Student> chunk,
+			StatementBinder binder) throws SQLException {
+		try (PreparedStatement ps = connection.prepareStatement(query, new String[] { "id" })) {
+			for (Student student : chunk) {
+				binder.bind(ps, student);
+				ps.addBatch();
+			}
+			ps.executeBatch();
+			long[] ids = new long[chunk.size()];
+			int count = 0;
+			try (ResultSet keys = ps.getGeneratedKeys()) {
+				while (keys.next() && count < ids.length) {
+					ids[count++] = keys.getLong(1);
+				}
+			}
+			if (count != ids.length) {
+				throw new DataSourceRoutingException(
+						"Expected " + ids.length + " generated keys but the driver returned " + count + ".");
+			}
+			return ids;
+		}
+	}
+
+	@FunctionalInterface
+	private interface StatementBinder {
+		void bind(PreparedStatement ps, Student student) throws SQLException;
+	}
+}
@@ -0,0 +1,81 @@
+package com.demo.multitenancy.repository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.demo.multitenancy.rowmapper.StudentRowMapper;
+import com.demo.multitenancy.util.Queries;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/*
+ * Streams FIND_ALL row by row to an output stream. The query runs inside a
+ * read-only transaction (autocommit off) with a bounded fetch size, so that
+ * PostgreSQL serves it from a cursor and never more than one fetch is held in
+ * memory. Writing blocks while the client is slow, which in turn stops the
+ * cursor from advancing.
+ */
+@Repository
+public class StudentStreamRepository {
+
+	public enum Format {
+		JSON, NDJSON;
+	}
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Value("${app.student.stream.fetch-size:500}")
+	private int fetchSize;
+
+	public long streamAll(OutputStream out, Format format) throws IOException {
+		long[] rows = new long[1];
+		try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+			generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			/* NDJSON lines are separated by '\n' only, not the default root separator ' ' */
+			generator.setRootValueSeparator(null);
+			if (format == Format.JSON) {
+				generator.writeStartArray();
+			}
+			TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager(),
+					transactionTemplate);
+			readOnly.setReadOnly(true);
+			readOnly.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+				PreparedStatement ps = connection.prepareStatement(Queries.FIND_ALL, ResultSet.TYPE_FORWARD_ONLY,
+						ResultSet.CONCUR_READ_ONLY);
+				ps.setFetchSize(fetchSize);
+				return ps;
+			}, rs -> {
+				try {
+					generator.writeObject(StudentRowMapper.INSTANCE.mapRow(rs, (int) rows[0]++));
+					if (format == Format.NDJSON) {
+						generator.writeRaw('\n');
+					}
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}));
+			if (format == Format.JSON) {
+				generator.writeEndArray();
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		return rows[0];
+	}
+}
@@ -0,0 +1,156 @@
+package com.demo.multitenancy.rowmapper;
+
+import java.lang.ref.WeakReference;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import org.springframework.jdbc.core.RowMapper;
+
+/*
+ * Row mapper whose columns are declared once, by label, and read by index.
+ * Labels are resolved to indices the first time a ResultSet is seen and the
+ * resolution is cached per query shape (the ordered column labels), so rows
+ * are read with getLong(int)/getString(int) instead of a lookup by name per
+ * value. Instances hold no per-query state and are meant to be shared.
+ */
+public final class IndexedRowMapper<T> implements RowMapper<T> {
+
+	private final Supplier<T> factory;
+	private final List<Binding<T>> bindings;
+	private final String[] labels;
+	private final Map<String, int[]> resolutionsByShape = new ConcurrentHashMap<>();
+	private final ThreadLocal<Resolution> lastResolution = new ThreadLocal<>();
+
+	private IndexedRowMapper(Supplier<T> factory, List<Binding<T>> bindings, List<String> labels) {
+		this.factory = factory;
+		this.bindings = bindings;
+		this.labels = labels.toArray(new String[0]);
+	}
+
+	public static <T> Builder<T> builder(Supplier<T> factory) {
+		return new Builder<>(factory);
+	}
+
+	@Override
+	public T mapRow(ResultSet rs, int rowNum) throws SQLException {
+		return map(rs, resolve(rs), 0);
+	}
+
+	private T map(ResultSet rs, int[] indices, int offset) throws SQLException {
+		T target = factory.get();
+		for (Binding<T> binding : bindings) {
+			binding.bind(target, rs, indices, offset);
+		}
+		return target;
+	}
+
+	/*
+	 * The indices of the last ResultSet are kept per thread, so that only the
+	 * first row of a result pays for the metadata lookup.
+	 */
+	private int[] resolve(ResultSet rs) throws SQLException {
+		Resolution last = lastResolution.get();
+		if (Objects.nonNull(last) && last.resultSet.get() == rs) {
+			return last.indices;
+		}
+		ResultSetMetaData metaData = rs.getMetaData();
+		StringJoiner shape = new StringJoiner(",");
+		for (int i = 1; i <= metaData.getColumnCount(); i++) {
+			shape.add(metaData.getColumnLabel(i));
+		}
+		int[] indices = resolutionsByShape.get(shape.toString());
+		if (Objects.isNull(indices)) {
+			indices = resolveIndices(metaData);
+			resolutionsByShape.putIfAbsent(shape.toString(), indices);
+		}
+		lastResolution.set(new Resolution(rs, indices));
+		return indices;
+	}
+
+	private int[] resolveIndices(ResultSetMetaData metaData) throws SQLException {
+		int[] indices = new int[labels.length];
+		for (int slot = 0; slot < labels.length; slot++) {
+			for (int i = 1; i <= metaData.getColumnCount(); i++) {
+				if (labels[slot].equalsIgnoreCase(metaData.getColumnLabel(i))) {
+					indices[slot] = i;
+					break;
+				}
+			}
+			if (indices[slot] == 0) {
+				throw new SQLException("Column '" + labels[slot] + "' not found in result set.");
+			}
+		}
+		return indices;
+	}
+
+	@FunctionalInterface
+	private interface Binding<T> {
+		void bind(T target, ResultSet rs, int[] indices, int offset) throws SQLException;
+	}
+
+	private static final class Resolution {
+		private final WeakReference<ResultSet> resultSet;
+		private final int[] indices;
+
+		Resolution(ResultSet resultSet, int[] indices) {
+			this.resultSet = new WeakReference<>(resultSet);
+			this.indices = indices;
+		}
+	}
+
+	public static final class Builder<T> {
+		private final Supplier<T> factory;
+		private final List<Binding<T>> bindings = new ArrayList<>();
+		private final List<String> labels = new ArrayList<>();
+
+		private Builder(Supplier<T> factory) {
+			this.factory = factory;
+		}
+
+		/*
+		 * SQL NULL maps to 0, as with ResultSet.getLong(String).
+		 */
+		public Builder<T> longColumn(String label, BiConsumer<T, Long> setter) {
+			int slot = addLabel(label);
+			bindings.add((target, rs, indices, offset) -> setter.accept(target, rs.getLong(indices[offset + slot])));
+			return this;
+		}
+
+		public Builder<T> stringColumn(String label, BiConsumer<T, String> setter) {
+			int slot = addLabel(label);
+			bindings.add((target, rs, indices, offset) -> setter.accept(target, rs.getString(indices[offset + slot])));
+			return this;
+		}
+
+		/*
+		 * Maps part of the same row into a nested model; its columns are resolved
+		 * together with the ones of this mapper.
+		 */
+		public <N> Builder<T> nested(IndexedRowMapper<N> mapper, BiConsumer<T, N> setter) {
+			int slot = labels.size();
+			for (String label : mapper.labels) {
+				labels.add(label);
+			}
+			bindings.add((target, rs, indices, offset) -> setter.accept(target, mapper.map(rs, indices, offset + slot)));
+			return this;
+		}
+
+		public IndexedRowMapper<T> build() {
+			return new IndexedRowMapper<>(factory, new ArrayList<>(bindings), labels);
+		}
+
+		private int addLabel(String label) {
+			labels.add(label);
+			return labels.size() - 1;
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package com.demo.multitenancy.rowmapper;
+
+import com.demo.multitenancy.model.Address;
+import com.demo.multitenancy.model.Student;
+
+/*
+ * Shared mappers for the student queries in Queries.
+ */
+public final class ModelMappers {
+
+	private ModelMappers() {}
+
+	public static final IndexedRowMapper<Address> ADDRESS = IndexedRowMapper.builder(Address::new)
+			.longColumn("ADDRESS_ID", Address::setId)
+			.longColumn("SID", Address::setStudentId)
+			.stringColumn("ADDRESS", Address::setAddress)
+			.build();
+
+	public static final IndexedRowMapper<Student> STUDENT = IndexedRowMapper.builder(Student::new)
+			.longColumn("ID", Student::setId)
+			.stringColumn("NAME", Student::setName)
+			.nested(ADDRESS, Student::setAddress)
+			.build();
+}
@@ -0,0 +1,30 @@
+package com.demo.multitenancy.rowmapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import com.demo.multitenancy.metrics.LatencyHistogram;
+import com.demo.multitenancy.model.Student;
+
+public class StudentRowMapper implements RowMapper<Student> {
+
+	/*
+	 * Shared by all instances.
+	 */
+	public static final LatencyHistogram MAPPING_TIME = new LatencyHistogram();
+
+	/*
+	 * Stateless, so one instance serves every query.
+	 */
+	public static final StudentRowMapper INSTANCE = new StudentRowMapper();
+
+	@Override
+	public Student mapRow(ResultSet rs, int rowNum) throws SQLException {
+		long start = System.nanoTime();
+		Student student = ModelMappers.STUDENT.mapRow(rs, rowNum);
+		MAPPING_TIME.recordSince(start);
+		return student;
+	}
+}
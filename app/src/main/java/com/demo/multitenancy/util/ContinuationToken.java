@@ -0,0 +1,32 @@
+package com.demo.multitenancy.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.demo.multitenancy.exception.InvalidContinuationTokenException;
+
+/*
+ * Opaque page token carrying the last student id of the previous page.
+ */
+public class ContinuationToken {
+	private ContinuationToken() {}
+
+	private static final String PREFIX = "s:";
+
+	public static String encode(long lastId) {
+		return Base64.getUrlEncoder().withoutPadding()
+				.encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+	}
+
+	public static long decode(String token) {
+		try {
+			String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+			if (!value.startsWith(PREFIX)) {
+				throw new InvalidContinuationTokenException("Invalid continuation token.");
+			}
+			return Long.parseLong(value.substring(PREFIX.length()));
+		} catch (IllegalArgumentException e) {
+			throw new InvalidContinuationTokenException("Invalid continuation token.", e);
+		}
+	}
+}
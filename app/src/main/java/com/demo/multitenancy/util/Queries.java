@@ -0,0 +1,62 @@
+package com.demo.multitenancy.util;
+
+public class Queries {
+	private Queries() {}
+	
+	public static final String FIND_BY_ID = "select s.id, s.name, a.id as address_id, a.sid, a.address from student s join address a on s.id = a.sid where s.id = ?";
+	public static final String FIND_ALL = "select s.id, s.name, a.id as address_id, a.sid, a.address from student s join address a on s.id = a.sid";
+	public static final String FIND_FIRST_PAGE = "select s.id, s.name, a.id as address_id, a.sid, a.address from student s join address a on s.id = a.sid where s.id in (select distinct sid from address order by sid limit ?) order by s.id, a.id";
+	public static final String FIND_PAGE_AFTER = "select s.id, s.name, a.id as address_id, a.sid, a.address from student s join address a on s.id = a.sid where s.id in (select distinct sid from address where sid > ? order by sid limit ?) order by s.id, a.id";
+	public static final String INSERT_STUDENT = "insert into student(name) values(?)";
+	public static final String INSERT_ADDRESS = "insert into address(sid, address) values(?, ?)";
+	public static final String COUNT_STUDENT_RECORDS = "select count(1) as total from student";
+	public static final String COUNT_ADDRESS_RECORDS = "select count(1) as total from address";
+	//public static final String UPDATE_STUDENT = "update student set name = ?";
+	public static final String DROP_STUDENT = "drop table IF EXISTS student";
+	public static final String DROP_ADDRESS = "drop table IF EXISTS address";
+	public static final String CREATE_STUDENT = "CREATE TABLE student (id INT primary KEY GENERATED ALWAYS AS IDENTITY, name VARCHAR NOT NULL)";
+	public static final String CREATE_ADDRESS = "CREATE TABLE address (id INT GENERATED ALWAYS AS IDENTITY, sid INT NOT NULL, address VARCHAR, FOREIGN KEY (sid) REFERENCES student (id))";
+	public static final String CREATE_ADDRESS_SID_INDEX = "CREATE INDEX address_sid_idx ON address (sid)";
+	public static final String SYNC_STUDENT_ID_RANGE = "select coalesce(min(id), 0) as min_id, coalesce(max(id), 0) as max_id from student";
+	public static final String SYNC_MAX_ADDRESS_ID = "select coalesce(max(id), 0) as max_id from address";
+	public static final String SYNC_SELECT_STUDENTS = "select id, name from student where id between ? and ? order by id";
+	public static final String SYNC_SELECT_ADDRESSES = "select id, sid, address from address where sid between ? and ? order by id";
+	public static final String SYNC_DELETE_ADDRESSES = "delete from address where sid between ? and ?";
+	public static final String SYNC_DELETE_STUDENTS = "delete from student where id between ? and ?";
+	public static final String SYNC_INSERT_STUDENT = "insert into student(id, name) overriding system value values(?, ?)";
+	public static final String SYNC_INSERT_ADDRESS = "insert into address(id, sid, address) overriding system value values(?, ?, ?)";
+	public static final String SYNC_COUNT_STUDENT_CHUNKS = "select chunk, count(1) as total, sum(id) as id_sum from (select (id - 1) / ? as chunk, id from student) c group by chunk";
+	public static final String SYNC_COUNT_ADDRESS_CHUNKS = "select chunk, count(1) as total, sum(id) as id_sum from (select (sid - 1) / ? as chunk, id from address) c group by chunk";
+	public static final String SYNC_CHECKSUM_STUDENTS = "select id, name from student order by id";
+	public static final String SYNC_CHECKSUM_ADDRESSES = "select id, sid, address from address order by sid, id";
+	public static final String SYNC_RESTART_STUDENT_ID = "alter table student alter column id restart with _VALUE_";
+	public static final String SYNC_RESTART_ADDRESS_ID = "alter table address alter column id restart with _VALUE_";
+	public static final String SHADOW_DELETE_ADDRESS = "delete from address where sid = ?";
+	public static final String SHADOW_DELETE_STUDENT = "delete from student where id = ?";
+	public static final String SYNC_CREATE_CHECKPOINT = "CREATE TABLE IF NOT EXISTS data_sync_checkpoint (source VARCHAR(100) NOT NULL, sync_id VARCHAR(100) NOT NULL, chunk_start BIGINT NOT NULL, chunk_end BIGINT NOT NULL, students BIGINT NOT NULL, addresses BIGINT NOT NULL, primary KEY (source, sync_id, chunk_start))";
+	public static final String SYNC_SELECT_CHECKPOINTS = "select chunk_start from data_sync_checkpoint where source = ? and sync_id = ? and chunk_end - chunk_start + 1 = ?";
+	public static final String SYNC_DELETE_CHECKPOINT = "delete from data_sync_checkpoint where source = ? and sync_id = ? and chunk_start = ?";
+	public static final String SYNC_INSERT_CHECKPOINT = "insert into data_sync_checkpoint(source, sync_id, chunk_start, chunk_end, students, addresses) values(?, ?, ?, ?, ?, ?)";
+	public static final String SYNC_CLEAR_CHECKPOINTS = "delete from data_sync_checkpoint where source = ?";
+	public static final String SYNC_CLEAR_SYNC_CHECKPOINTS = "delete from data_sync_checkpoint where source = ? and sync_id = ?";
+	public static final String CLUSTER_CREATE_EPOCH = "CREATE TABLE IF NOT EXISTS cluster_routing_epoch (epoch BIGINT primary KEY, lookup_key VARCHAR(100) NOT NULL, initiated_by VARCHAR(200) NOT NULL, created_at BIGINT NOT NULL, switch_at BIGINT NOT NULL)";
+	public static final String CLUSTER_CREATE_LEASE = "CREATE TABLE IF NOT EXISTS cluster_lease (name VARCHAR(100) primary KEY, holder VARCHAR(200) NOT NULL, expires_at BIGINT NOT NULL)";
+	public static final String CLUSTER_CREATE_DECISION = "CREATE TABLE IF NOT EXISTS cluster_routing_decision (epoch BIGINT primary KEY, decision VARCHAR(10) NOT NULL, decided_by VARCHAR(200) NOT NULL, decided_at BIGINT NOT NULL)";
+	public static final String CLUSTER_CREATE_NODE = "CREATE TABLE IF NOT EXISTS cluster_node (node_id VARCHAR(200) primary KEY, heartbeat_at BIGINT NOT NULL, lookup_key VARCHAR(100), epoch BIGINT NOT NULL, state VARCHAR(20) NOT NULL, observed_at BIGINT NOT NULL, switched_at BIGINT NOT NULL)";
+	public static final String CLUSTER_ACQUIRE_LEASE = "update cluster_lease set holder = ?, expires_at = ? where name = ? and expires_at < ?";
+	public static final String CLUSTER_INSERT_LEASE = "insert into cluster_lease(name, holder, expires_at) values(?, ?, ?)";
+	public static final String CLUSTER_RELEASE_LEASE = "update cluster_lease set expires_at = 0 where name = ? and holder = ?";
+	public static final String CLUSTER_MAX_EPOCH = "select coalesce(max(epoch), 0) as epoch from cluster_routing_epoch";
+	public static final String CLUSTER_INSERT_EPOCH = "insert into cluster_routing_epoch(epoch, lookup_key, initiated_by, created_at, switch_at) values(?, ?, ?, ?, ?)";
+	public static final String CLUSTER_LATEST_EPOCH = "select e.epoch, e.lookup_key, e.initiated_by, e.created_at, e.switch_at, d.decision from cluster_routing_epoch e left join cluster_routing_decision d on d.epoch = e.epoch order by e.epoch desc limit 1";
+	public static final String CLUSTER_INSERT_DECISION = "insert into cluster_routing_decision(epoch, decision, decided_by, decided_at) values(?, ?, ?, ?)";
+	public static final String CLUSTER_SELECT_DECISION = "select decision from cluster_routing_decision where epoch = ?";
+	public static final String CLUSTER_UPDATE_NODE = "update cluster_node set heartbeat_at = ?, lookup_key = ?, epoch = ?, state = ?, observed_at = ?, switched_at = ? where node_id = ?";
+	public static final String CLUSTER_INSERT_NODE = "insert into cluster_node(heartbeat_at, lookup_key, epoch, state, observed_at, switched_at, node_id) values(?, ?, ?, ?, ?, ?, ?)";
+	public static final String CLUSTER_LIVE_NODES = "select node_id, lookup_key, epoch, state, observed_at, switched_at from cluster_node where heartbeat_at >= ? order by node_id";
+	public static final String CLUSTER_DELETE_NODE = "delete from cluster_node where node_id = ?";
+	public static final String JOURNAL_CREATE_APPLIED = "CREATE TABLE IF NOT EXISTS write_journal_applied (journal BIGINT NOT NULL, sequence BIGINT NOT NULL, student_id BIGINT NOT NULL, primary KEY (journal, sequence))";
+	public static final String JOURNAL_SELECT_APPLIED = "select sequence, student_id from write_journal_applied where journal = ? and sequence between ? and ?";
+	public static final String JOURNAL_INSERT_APPLIED = "insert into write_journal_applied(journal, sequence, student_id) values(?, ?, ?)";
+	public static final String JOURNAL_DELETE_APPLIED = "delete from write_journal_applied where journal = ?";
+}
@@ -0,0 +1,208 @@
+package com.demo.multitenancy.config.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import javax.management.MBeanServerFactory;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jmx.export.MBeanExporter;
+import org.springframework.util.FileSystemUtils;
+
+import com.demo.multitenancy.MultitenancyMBeansDemoApplication;
+import com.demo.multitenancy.exception.DataSourceRoutingException;
+import com.zaxxer.hikari.HikariDataSource;
+
+/*
+ * Cluster wide switches over three application contexts in this JVM, sharing
+ * the tenants and the cluster tables through in-memory H2 databases. Each
+ * context exports its MBeans to a server of its own, since they are
+ * registered under fixed names.
+ */
+class ClusterRoutingCoordinatorTest {
+
+	private static final int NODES = 3;
+	private static final long TIMEOUT_MILLIS = 60000;
+	private static final String[] TENANTS = { "primary", "secondary" };
+
+	private static final String CREATE_STUDENT = "CREATE TABLE student (id INT GENERATED ALWAYS AS IDENTITY PRIMARY KEY, name VARCHAR NOT NULL)";
+	private static final String CREATE_ADDRESS = "CREATE TABLE address (id INT GENERATED ALWAYS AS IDENTITY, sid INT NOT NULL, address VARCHAR, FOREIGN KEY (sid) REFERENCES student (id))";
+	private static final String CREATE_ADDRESS_SID_INDEX = "CREATE INDEX address_sid_idx ON address (sid)";
+
+	private static Path directory;
+	private static final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+	private static ClusterRoutingCoordinator coordinator;
+	private static DataSourceContextManager dataSourceContextManager;
+	private static TenantDataSourceRegistry tenantDataSourceRegistry;
+
+	@BeforeAll
+	static void startNodes() throws IOException {
+		directory = Files.createTempDirectory("cluster-routing");
+		for (String tenant : TENANTS) {
+			createSchema("cluster-test-" + tenant);
+		}
+		for (int i = 0; i < NODES; i++) {
+			contexts.add(startNode(i));
+		}
+		coordinator = contexts.get(0).getBean(ClusterRoutingCoordinator.class);
+		dataSourceContextManager = contexts.get(0).getBean(DataSourceContextManager.class);
+		tenantDataSourceRegistry = contexts.get(0).getBean(TenantDataSourceRegistry.class);
+		await(() -> coordinator.getLiveNodes().size() == NODES, NODES + " live nodes");
+	}
+
+	@AfterAll
+	static void stopNodes() throws IOException {
+		for (ConfigurableApplicationContext context : contexts) {
+			context.close();
+		}
+		FileSystemUtils.deleteRecursively(directory);
+	}
+
+	@Test
+	void switchIsCommittedOnEveryNode() {
+		String target = otherTenant();
+		long epoch = publish(target);
+		await(() -> coordinator.getConvergedEpoch() >= epoch, "epoch " + epoch + " to converge");
+		assertEquals(ClusterRoutingCoordinator.Decision.COMMIT, coordinator.getLastDecision());
+		assertAllOn(target);
+	}
+
+	/*
+	 * A connection of node-0's active pool is held, so that it cannot drain.
+	 */
+	@Test
+	void switchIsAbortedOnEveryNodeWhenOneCannotDrain() throws SQLException {
+		String active = dataSourceContextManager.getCurrentlyActiveLookpKey();
+		try (Connection held = tenantDataSourceRegistry.getDataSource(active).getConnection()) {
+			long epoch = publish(otherTenant());
+			await(() -> coordinator.getDecidedEpoch() >= epoch, "epoch " + epoch + " to be decided");
+			assertEquals(ClusterRoutingCoordinator.Decision.ABORT, coordinator.getLastDecision());
+			await(() -> coordinator.getLiveNodes().values().stream()
+					.allMatch(state -> state.endsWith(ClusterRoutingCoordinator.NodeState.ABORTED.name())),
+					"every node to abort epoch " + epoch);
+		}
+		assertAllOn(active);
+	}
+
+	private static ConfigurableApplicationContext startNode(int node) {
+		List<String> args = new ArrayList<>();
+		for (String tenant : TENANTS) {
+			String prefix = "--app.datasource.config." + tenant + ".";
+			args.add(prefix + "url=" + url("cluster-test-" + tenant));
+			args.add(prefix + "driver=org.h2.Driver");
+			args.add(prefix + "username=sa");
+			args.add(prefix + "password=");
+		}
+		args.add("--server.port=0");
+		args.add("--datasource.app.default-lookup-key=primary");
+		args.add("--app.datasource.write-journal.path=" + directory.resolve("node-" + node).resolve("student-writes.journal"));
+		args.add("--app.cluster.enabled=true");
+		args.add("--app.cluster.node-id=node-" + node);
+		args.add("--app.cluster.datasource.url=jdbc:h2:mem:cluster-test;DB_CLOSE_DELAY=-1");
+		args.add("--app.cluster.datasource.driver=org.h2.Driver");
+		args.add("--app.cluster.datasource.username=sa");
+		args.add("--app.cluster.datasource.password=");
+		args.add("--app.cluster.poll-interval-millis=100");
+		args.add("--app.cluster.switch-delay-millis=500");
+		args.add("--app.cluster.node-timeout-millis=2000");
+		args.add("--app.cluster.barrier-timeout-millis=1500");
+		if (node == 0) {
+			args.add("--app.datasource.active-connections.timeout=1");
+		}
+		return new SpringApplicationBuilder(MultitenancyMBeansDemoApplication.class)
+				.initializers(context -> context.getBeanFactory().addBeanPostProcessor(new BeanPostProcessor() {
+					@Override
+					public Object postProcessBeforeInitialization(Object bean, String beanName) {
+						if (bean instanceof MBeanExporter) {
+							((MBeanExporter) bean).setServer(MBeanServerFactory.newMBeanServer());
+						}
+						return bean;
+					}
+				})).run(args.toArray(new String[0]));
+	}
+
+	private static void createSchema(String database) {
+		try (HikariDataSource dataSource = new HikariDataSource()) {
+			dataSource.setJdbcUrl(url(database));
+			dataSource.setUsername("sa");
+			dataSource.setPassword("");
+			JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+			jdbcTemplate.update("drop table IF EXISTS address");
+			jdbcTemplate.update("drop table IF EXISTS student");
+			jdbcTemplate.update(CREATE_STUDENT);
+			jdbcTemplate.update(CREATE_ADDRESS);
+			jdbcTemplate.update(CREATE_ADDRESS_SID_INDEX);
+		}
+	}
+
+	private static String url(String database) {
+		return "jdbc:h2:mem:" + database + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+	}
+
+	/*
+	 * The routing lease of the previous switch may not be released yet.
+	 */
+	private static long publish(String lookupKey) {
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while (true) {
+			try {
+				return coordinator.switchCluster(lookupKey);
+			} catch (DataSourceRoutingException e) {
+				if (System.currentTimeMillis() > deadline) {
+					throw e;
+				}
+				sleep();
+			}
+		}
+	}
+
+	private static String otherTenant() {
+		return "primary".equals(dataSourceContextManager.getCurrentlyActiveLookpKey()) ? "secondary" : "primary";
+	}
+
+	private static void assertAllOn(String lookupKey) {
+		Map<String, String> live = coordinator.getLiveNodes();
+		assertEquals(NODES, live.size(), "Live nodes: " + live);
+		assertEquals(List.of(lookupKey), live.values().stream().map(state -> state.split(" ")[0]).distinct()
+				.collect(Collectors.toList()), "Live nodes: " + live);
+		for (ConfigurableApplicationContext context : contexts) {
+			assertEquals(lookupKey, context.getBean(DataSourceContextManager.class).getCurrentlyActiveLookpKey());
+		}
+	}
+
+	private static void await(BooleanSupplier condition, String what) {
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while (!condition.getAsBoolean()) {
+			if (System.currentTimeMillis() > deadline) {
+				throw new AssertionError("Timed out waiting for " + what + ".");
+			}
+			sleep();
+		}
+	}
+
+	private static void sleep() {
+		try {
+			TimeUnit.MILLISECONDS.sleep(20);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+}
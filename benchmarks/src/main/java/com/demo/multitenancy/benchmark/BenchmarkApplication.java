@@ -0,0 +1,45 @@
+package com.demo.multitenancy.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.demo.multitenancy.MultitenancyMBeansDemoApplication;
+import com.zaxxer.hikari.HikariDataSource;
+
+/*
+ * Boots the whole application on a random port with the primary and
+ * secondary tenants backed by two in-memory H2 databases.
+ */
+public final class BenchmarkApplication {
+
+	public static final String[] TENANTS = { "primary", "secondary" };
+
+	private BenchmarkApplication() {}
+
+	public static ConfigurableApplicationContext start(int students, String... extraArgs) {
+		List<String> args = new ArrayList<>();
+		for (String tenant : TENANTS) {
+			String database = "app-" + tenant;
+			try (HikariDataSource dataSource = BenchmarkDatabase.create(database, 1)) {
+				BenchmarkDatabase.populate(dataSource, students);
+			}
+			String prefix = "--app.datasource.config." + tenant + ".";
+			args.add(prefix + "url=" + BenchmarkDatabase.url(database));
+			args.add(prefix + "driver=org.h2.Driver");
+			args.add(prefix + "username=sa");
+			args.add(prefix + "password=");
+		}
+		args.add("--server.port=0");
+		args.add("--datasource.app.default-lookup-key=primary");
+		args.addAll(Arrays.asList(extraArgs));
+		return SpringApplication.run(MultitenancyMBeansDemoApplication.class, args.toArray(new String[0]));
+	}
+
+	public static String baseUrl(ConfigurableApplicationContext context) {
+		return "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+	}
+}
@@ -0,0 +1,61 @@
+package com.demo.multitenancy.benchmark;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+/*
+ * In-memory H2 database in PostgreSQL mode standing in for one of the
+ * application's PostgreSQL tenants.
+ */
+public final class BenchmarkDatabase {
+
+	private static final String CREATE_STUDENT = "CREATE TABLE student (id INT GENERATED ALWAYS AS IDENTITY PRIMARY KEY, name VARCHAR NOT NULL)";
+	private static final String CREATE_ADDRESS = "CREATE TABLE address (id INT GENERATED ALWAYS AS IDENTITY, sid INT NOT NULL, address VARCHAR, FOREIGN KEY (sid) REFERENCES student (id))";
+	private static final String CREATE_ADDRESS_SID_INDEX = "CREATE INDEX address_sid_idx ON address (sid)";
+
+	private BenchmarkDatabase() {}
+
+	public static String url(String name) {
+		return "jdbc:h2:mem:" + name + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+	}
+
+	/*
+	 * The same database, for another JVM, through an H2 TCP server started in
+	 * this one.
+	 */
+	public static String remoteUrl(String name, int tcpPort) {
+		return "jdbc:h2:tcp://localhost:" + tcpPort + "/mem:" + name + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+	}
+
+	public static HikariDataSource create(String name, int poolSize) {
+		HikariConfig config = new HikariConfig();
+		config.setPoolName("Pool-" + name);
+		config.setJdbcUrl(url(name));
+		config.setUsername("sa");
+		config.setPassword("");
+		config.setMaximumPoolSize(poolSize);
+		config.setAllowPoolSuspension(true);
+		HikariDataSource dataSource = new HikariDataSource(config);
+		recreateSchema(dataSource);
+		return dataSource;
+	}
+
+	public static void recreateSchema(DataSource dataSource) {
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.update("drop table IF EXISTS address");
+		jdbcTemplate.update("drop table IF EXISTS student");
+		jdbcTemplate.update(CREATE_STUDENT);
+		jdbcTemplate.update(CREATE_ADDRESS);
+		jdbcTemplate.update(CREATE_ADDRESS_SID_INDEX);
+	}
+
+	public static void populate(DataSource dataSource, int students) {
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.update("insert into student(name) select 'student-' || x from system_range(1, " + students + ")");
+		jdbcTemplate.update("insert into address(sid, address) select id, 'street ' || id from student");
+	}
+}
@@ -0,0 +1,45 @@
+package com.demo.multitenancy.benchmark;
+
+import java.io.IOException;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.boot.SpringApplication;
+
+import com.demo.multitenancy.MultitenancyMBeansDemoApplication;
+
+/*
+ * Another application node in a JVM of its own, on the tenants of the
+ * benchmark JVM, reached through an H2 TCP server there. A context per JVM is
+ * needed since the MBeans are registered on the platform MBean server.
+ */
+public final class ClusterNode {
+
+	private ClusterNode() {}
+
+	public static void main(String[] args) {
+		SpringApplication.run(MultitenancyMBeansDemoApplication.class, args);
+	}
+
+	public static Process launch(int tcpPort, String... extraArgs) throws IOException {
+		List<String> command = new ArrayList<>();
+		command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(ClusterNode.class.getName());
+		for (String tenant : BenchmarkApplication.TENANTS) {
+			String prefix = "--app.datasource.config." + tenant + ".";
+			command.add(prefix + "url=" + BenchmarkDatabase.remoteUrl("app-" + tenant, tcpPort));
+			command.add(prefix + "driver=org.h2.Driver");
+			command.add(prefix + "username=sa");
+			command.add(prefix + "password=");
+		}
+		command.add("--server.port=0");
+		command.add("--datasource.app.default-lookup-key=primary");
+		command.addAll(Arrays.asList(extraArgs));
+		return new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(Redirect.DISCARD).start();
+	}
+}
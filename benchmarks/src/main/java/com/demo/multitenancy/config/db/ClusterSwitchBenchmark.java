@@ -0,0 +1,139 @@
+package com.demo.multitenancy.config.db;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import org.h2.tools.Server;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.demo.multitenancy.benchmark.BenchmarkApplication;
+import com.demo.multitenancy.benchmark.ClusterNode;
+import com.demo.multitenancy.exception.DataSourceRoutingException;
+
+/*
+ * Cluster convergence time over the given number of nodes: this JVM and the
+ * others in JVMs of their own, sharing the tenants and the cluster tables
+ * through an H2 TCP server. converge publishes a switch to the tenant that is
+ * not active and returns the time until the last live node switched. That
+ * every node commits or aborts a switch together is checked by
+ * ClusterRoutingCoordinatorTest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ClusterSwitchBenchmark {
+
+	private static final long TIMEOUT_MILLIS = 60000;
+
+	@Param({ "3" })
+	private int nodes;
+
+	private Server server;
+	private ConfigurableApplicationContext context;
+	private ClusterRoutingCoordinator coordinator;
+	private DataSourceContextManager dataSourceContextManager;
+	private final List<Process> otherNodes = new ArrayList<>();
+
+	@Setup
+	public void setup() throws SQLException, IOException {
+		server = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+		String[] clusterArgs = { "--app.cluster.enabled=true",
+				"--app.cluster.datasource.url=jdbc:h2:tcp://localhost:" + server.getPort() + "/mem:cluster;DB_CLOSE_DELAY=-1",
+				"--app.cluster.datasource.driver=org.h2.Driver", "--app.cluster.datasource.username=sa",
+				"--app.cluster.datasource.password=", "--app.cluster.poll-interval-millis=100",
+				"--app.cluster.switch-delay-millis=500", "--app.cluster.node-timeout-millis=2000",
+				"--app.cluster.barrier-timeout-millis=1500" };
+		context = BenchmarkApplication.start(0, concat(clusterArgs, "--app.cluster.node-id=node-0"));
+		coordinator = context.getBean(ClusterRoutingCoordinator.class);
+		dataSourceContextManager = context.getBean(DataSourceContextManager.class);
+		for (int i = 1; i < nodes; i++) {
+			otherNodes.add(ClusterNode.launch(server.getPort(), concat(clusterArgs, "--app.cluster.node-id=node-" + i)));
+		}
+		await(() -> coordinator.getLiveNodes().size() == nodes, nodes + " live nodes");
+	}
+
+	@TearDown
+	public void tearDown() throws InterruptedException {
+		for (Process node : otherNodes) {
+			node.destroy();
+		}
+		for (Process node : otherNodes) {
+			if (!node.waitFor(30, TimeUnit.SECONDS)) {
+				node.destroyForcibly();
+			}
+		}
+		context.close();
+		server.stop();
+	}
+
+	@Benchmark
+	public long converge() {
+		long epoch = publish(otherTenant());
+		await(() -> coordinator.getConvergedEpoch() >= epoch, "epoch " + epoch + " to converge");
+		return coordinator.getLastClusterConvergenceMillis();
+	}
+
+	/*
+	 * The routing lease of the previous switch may not be released yet.
+	 */
+	private long publish(String lookupKey) {
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while (true) {
+			try {
+				return coordinator.switchCluster(lookupKey);
+			} catch (DataSourceRoutingException e) {
+				if (System.currentTimeMillis() > deadline) {
+					throw e;
+				}
+				sleep();
+			}
+		}
+	}
+
+	private String otherTenant() {
+		return "primary".equals(dataSourceContextManager.getCurrentlyActiveLookpKey()) ? "secondary" : "primary";
+	}
+
+	private static void await(BooleanSupplier condition, String what) {
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while (!condition.getAsBoolean()) {
+			if (System.currentTimeMillis() > deadline) {
+				throw new IllegalStateException("Timed out waiting for " + what + ".");
+			}
+			sleep();
+		}
+	}
+
+	private static void sleep() {
+		try {
+			Thread.sleep(20);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String[] concat(String[] args, String... more) {
+		return Stream.concat(Stream.of(args), Stream.of(more)).toArray(String[]::new);
+	}
+}
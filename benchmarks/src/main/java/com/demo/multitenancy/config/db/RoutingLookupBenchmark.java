@@ -0,0 +1,127 @@
+package com.demo.multitenancy.config.db;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.sql.DataSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/*
+ * Compares the former lock + toLowerCase() routing key resolution with the
+ * snapshot based one, at 1, 8 and 64 threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutingLookupBenchmark {
+
+	private final LegacyContextManager legacyContextManager = new LegacyContextManager();
+	private CustomRoutingDatasource routingDatasource;
+
+	@Setup
+	public void setup() {
+		DataSourceContextManager contextManager = new DataSourceContextManager();
+		ReflectionTestUtils.setField(contextManager, "routingSnapshot",
+				new RoutingSnapshot("primary", new SimpleDriverDataSource()));
+
+		routingDatasource = new CustomRoutingDatasource();
+		ReflectionTestUtils.setField(routingDatasource, "dBContextHolder", contextManager);
+		routingDatasource.setTargetDataSources(Collections.emptyMap());
+		routingDatasource.afterPropertiesSet();
+
+		legacyContextManager.setActiveDataSource(LegacyDataSourceType.PRIMARY);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public Object legacyLookup1() {
+		return legacyContextManager.getCurrentlyActiveLookpKey();
+	}
+
+	@Benchmark
+	@Threads(8)
+	public Object legacyLookup8() {
+		return legacyContextManager.getCurrentlyActiveLookpKey();
+	}
+
+	@Benchmark
+	@Threads(64)
+	public Object legacyLookup64() {
+		return legacyContextManager.getCurrentlyActiveLookpKey();
+	}
+
+	@Benchmark
+	@Threads(1)
+	public Object snapshotLookup1() {
+		return routingDatasource.determineCurrentLookupKey();
+	}
+
+	@Benchmark
+	@Threads(8)
+	public Object snapshotLookup8() {
+		return routingDatasource.determineCurrentLookupKey();
+	}
+
+	@Benchmark
+	@Threads(64)
+	public Object snapshotLookup64() {
+		return routingDatasource.determineCurrentLookupKey();
+	}
+
+	@Benchmark
+	@Threads(8)
+	public DataSource snapshotTarget8() {
+		return routingDatasource.determineTargetDataSource();
+	}
+
+	enum LegacyDataSourceType {
+		PRIMARY, SECONDARY;
+	}
+
+	/*
+	 * Copy of the lookup path as it was before the routing snapshot.
+	 */
+	static class LegacyContextManager {
+		private static final ReentrantReadWriteLock R_W_LOCK = new ReentrantReadWriteLock();
+		private LegacyDataSourceType currentlyActiveDatabaseType;
+
+		void setActiveDataSource(LegacyDataSourceType dsType) {
+			try {
+				R_W_LOCK.writeLock().lock();
+				this.currentlyActiveDatabaseType = dsType;
+			} finally {
+				R_W_LOCK.writeLock().unlock();
+			}
+		}
+
+		LegacyDataSourceType getActiveDataSource() {
+			try {
+				R_W_LOCK.readLock().lock();
+				return this.currentlyActiveDatabaseType;
+			} finally {
+				R_W_LOCK.readLock().unlock();
+			}
+		}
+
+		String getCurrentlyActiveLookpKey() {
+			return getActiveDataSource().name().toLowerCase();
+		}
+	}
+}
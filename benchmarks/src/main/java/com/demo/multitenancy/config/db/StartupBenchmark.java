@@ -0,0 +1,67 @@
+package com.demo.multitenancy.config.db;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.demo.multitenancy.benchmark.BenchmarkApplication;
+
+/*
+ * Time to first request: from booting the application to the first answered
+ * GET /count. The active pool is either opened eagerly, waiting for its first
+ * connection on the main thread (initialization-fail-timeout = 1), or in the
+ * background. Seeding the two H2 databases is part of every invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class StartupBenchmark {
+
+	private static final int STUDENTS = 100;
+
+	@Param({ "1", "-1" })
+	private String initializationFailTimeout;
+
+	private final HttpClient httpClient = HttpClient.newHttpClient();
+	private ConfigurableApplicationContext context;
+
+	@Benchmark
+	public int timeToFirstRequest() throws Exception {
+		context = BenchmarkApplication.start(STUDENTS,
+				"--app.datasource.initialization-fail-timeout=" + initializationFailTimeout);
+		HttpRequest count = HttpRequest.newBuilder(URI.create(BenchmarkApplication.baseUrl(context) + "/count"))
+				.build();
+		HttpResponse<String> response = httpClient.send(count, HttpResponse.BodyHandlers.ofString());
+		if (response.statusCode() != 200) {
+			throw new IllegalStateException("GET /count returned " + response.statusCode());
+		}
+		return response.body().length();
+	}
+
+	@TearDown(Level.Invocation)
+	public void tearDown() {
+		if (context != null) {
+			context.close();
+			context = null;
+		}
+	}
+}
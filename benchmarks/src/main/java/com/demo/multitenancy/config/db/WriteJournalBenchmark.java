@@ -0,0 +1,91 @@
+package com.demo.multitenancy.config.db;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.demo.multitenancy.benchmark.BenchmarkApplication;
+import com.demo.multitenancy.model.Address;
+import com.demo.multitenancy.model.Student;
+
+/*
+ * Time to absorb 10000 student writes with the write journal: appended while
+ * the migration gate is closed, then replayed into the active datasource once
+ * it opens. The replay throughput of the last iteration is logged at the end.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class WriteJournalBenchmark {
+
+	private static final Logger LOG = LoggerFactory.getLogger(WriteJournalBenchmark.class);
+	private static final int WRITES = 10000;
+
+	@Param({ "false", "true" })
+	private boolean forceOnAppend;
+
+	private Path directory;
+	private ConfigurableApplicationContext context;
+	private WriteJournal writeJournal;
+	private MigrationGate migrationGate;
+	private Student student;
+
+	@Setup
+	public void setup() throws IOException {
+		directory = Files.createTempDirectory("write-journal");
+		context = BenchmarkApplication.start(0, "--app.datasource.write-journal.enabled=true",
+				"--app.datasource.write-journal.path=" + directory.resolve("student-writes.journal"),
+				"--app.datasource.write-journal.force-on-append=" + forceOnAppend);
+		writeJournal = context.getBean(WriteJournal.class);
+		migrationGate = context.getBean(MigrationGate.class);
+		student = new Student();
+		student.setName("journaled-student");
+		Address address = new Address();
+		address.setAddress("journaled address");
+		student.setAddress(address);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		LOG.info("Replayed = {}, last replay = {} writes/s", writeJournal.getReplayedWrites(),
+				writeJournal.getLastReplayWritesPerSecond());
+		context.close();
+		Files.deleteIfExists(directory.resolve("student-writes.journal"));
+		Files.deleteIfExists(directory.resolve("student-writes.journal.dead-letter"));
+		Files.deleteIfExists(directory);
+	}
+
+	@Benchmark
+	public long journalAndReplay() throws InterruptedException {
+		migrationGate.close();
+		for (int i = 0; i < WRITES; i++) {
+			writeJournal.append(student);
+		}
+		migrationGate.open();
+		writeJournal.replayNow();
+		while (writeJournal.getPendingWrites() > 0) {
+			Thread.sleep(1);
+		}
+		return writeJournal.getReplayedWrites();
+	}
+}
@@ -0,0 +1,83 @@
+package com.demo.multitenancy.controller;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.apache.logging.log4j.util.Unbox;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+
+/*
+ * Logging cost of one GET /student/{id}: the former two INFO lines through
+ * SLF4J against the access record plus a disabled DEBUG line, each with the
+ * former synchronous %C configuration and with the async one. The ring buffer
+ * blocks instead of discarding here, so the async numbers are what the
+ * logger thread sustains rather than what it drops.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j2.asyncQueueFullPolicy=Default")
+@Threads(4)
+public class RequestLoggingBenchmark {
+
+	@Param({ "sync", "async" })
+	private String configuration;
+
+	private Path directory;
+	private LoggerContext loggerContext;
+	private org.slf4j.Logger formerLogger;
+	private org.apache.logging.log4j.Logger accessLogger;
+	private String lookupKey = "primary";
+
+	@Setup
+	public void setup() throws Exception {
+		directory = Files.createTempDirectory("request-logging");
+		System.setProperty("request-logging.dir", directory.toString());
+		String location = getClass().getClassLoader().getResource("request-logging-" + configuration + ".xml").toURI()
+				.toString();
+		loggerContext = Configurator.initialize("request-logging", location);
+		formerLogger = org.slf4j.LoggerFactory.getLogger(StudentController.class);
+		accessLogger = LogManager.getLogger("com.demo.multitenancy.access");
+	}
+
+	@Benchmark
+	public void formerRequestLogging() {
+		formerLogger.info("### -- FIND BY ID CALLED -- ####");
+		formerLogger.info("Record found - Active DataSource: {}", lookupKey);
+	}
+
+	@Benchmark
+	public void accessRecord() {
+		formerLogger.debug("### -- FIND BY ID CALLED -- ####");
+		accessLogger.info(
+				"method={} path={} status={} lookupKey={} readReplica={} durationMicros={} dbConnections={} dbAcquireMicros={} dbStatements={} dbExecMicros={}",
+				"GET", "/student/42", Unbox.box(200), lookupKey, Unbox.box(false), Unbox.box(1500L),
+				Unbox.box(1), Unbox.box(70L), Unbox.box(1), Unbox.box(1300L));
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Configurator.shutdown(loggerContext);
+		FileSystemUtils.deleteRecursively(directory);
+	}
+}
@@ -0,0 +1,119 @@
+package com.demo.multitenancy.controller;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.demo.multitenancy.benchmark.BenchmarkApplication;
+import com.demo.multitenancy.benchmark.BenchmarkDatabase;
+import com.demo.multitenancy.util.Queries;
+import com.zaxxer.hikari.HikariDataSource;
+
+/*
+ * runInsert on its own, against a bare pool, and GET /student end to end
+ * through Tomcat, the DB executor, the routing datasource and Jackson.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StudentControllerBenchmark {
+
+	/*
+	 * runInsert is private. A constant method handle is inlined by the JIT,
+	 * unlike Method.invoke, so the measurement stays on the insert itself.
+	 */
+	private static final MethodHandle RUN_INSERT = runInsertHandle();
+
+	@State(Scope.Benchmark)
+	public static class InsertState {
+		private HikariDataSource dataSource;
+		private StudentController studentController;
+
+		@Setup
+		public void setup() {
+			dataSource = BenchmarkDatabase.create("run-insert", 4);
+			studentController = new StudentController();
+			ReflectionTestUtils.setField(studentController, "jdbcTemplate", new JdbcTemplate(dataSource));
+		}
+
+		@Setup(Level.Iteration)
+		public void truncate() {
+			BenchmarkDatabase.recreateSchema(dataSource);
+		}
+
+		@TearDown
+		public void tearDown() {
+			dataSource.close();
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class ApplicationState {
+		@Param({ "100", "1000" })
+		private int students;
+
+		private ConfigurableApplicationContext context;
+		private HttpClient httpClient;
+		private HttpRequest findAll;
+
+		@Setup
+		public void setup() {
+			context = BenchmarkApplication.start(students);
+			httpClient = HttpClient.newHttpClient();
+			findAll = HttpRequest.newBuilder(URI.create(BenchmarkApplication.baseUrl(context) + "/student")).build();
+		}
+
+		@TearDown
+		public void tearDown() {
+			context.close();
+		}
+	}
+
+	@Benchmark
+	public long runInsert(InsertState state) throws Throwable {
+		return (long) RUN_INSERT.invokeExact(state.studentController, Queries.INSERT_STUDENT,
+				new Object[] { "student" });
+	}
+
+	@Benchmark
+	public int findAllEndToEnd(ApplicationState state) throws Exception {
+		HttpResponse<byte[]> response = state.httpClient.send(state.findAll, HttpResponse.BodyHandlers.ofByteArray());
+		if (response.statusCode() != 200) {
+			throw new IllegalStateException("GET /student returned " + response.statusCode());
+		}
+		return response.body().length;
+	}
+
+	private static MethodHandle runInsertHandle() {
+		try {
+			return MethodHandles.privateLookupIn(StudentController.class, MethodHandles.lookup()).findVirtual(
+					StudentController.class, "runInsert", MethodType.methodType(long.class, String.class, Object[].class));
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+}
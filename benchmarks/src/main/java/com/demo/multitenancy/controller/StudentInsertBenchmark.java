@@ -0,0 +1,122 @@
+package com.demo.multitenancy.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.demo.multitenancy.benchmark.BenchmarkDatabase;
+import com.demo.multitenancy.config.db.DataSourceContextManager;
+import com.demo.multitenancy.config.db.RoutingSnapshot;
+import com.demo.multitenancy.config.db.ShadowWriter;
+import com.demo.multitenancy.cache.RecordCounters;
+import com.demo.multitenancy.cache.StudentCache;
+import com.demo.multitenancy.model.Address;
+import com.demo.multitenancy.model.Student;
+import com.demo.multitenancy.repository.StudentBatchRepository;
+import com.zaxxer.hikari.HikariDataSource;
+
+/*
+ * Rows per second of POST /student (two single inserts per student) against
+ * POST /students/batch. H2 runs in-process, so the gain here only reflects
+ * statement overhead; against PostgreSQL the saved network round trips
+ * dominate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StudentInsertBenchmark {
+
+	private static final int ROWS = 1000;
+
+	private HikariDataSource dataSource;
+	private StudentController studentController;
+	private TransactionTemplate transactionTemplate;
+	private StudentBatchRepository studentBatchRepository;
+
+	@Setup
+	public void setup() {
+		dataSource = BenchmarkDatabase.create("insert", 4);
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+		DataSourceContextManager contextManager = new DataSourceContextManager();
+		ReflectionTestUtils.setField(contextManager, "routingSnapshot", new RoutingSnapshot("primary", dataSource));
+
+		StudentCache studentCache = new StudentCache();
+		ReflectionTestUtils.setField(studentCache, "maximumSize", 10_000L);
+		ReflectionTestUtils.setField(studentCache, "ttlSeconds", 300L);
+		studentCache.init();
+
+		transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		studentController = new StudentController();
+		ReflectionTestUtils.setField(studentController, "jdbcTemplate", jdbcTemplate);
+		ReflectionTestUtils.setField(studentController, "dataSourceContextManager", contextManager);
+		ReflectionTestUtils.setField(studentController, "studentCache", studentCache);
+		ReflectionTestUtils.setField(studentController, "recordCounters", new RecordCounters());
+		ReflectionTestUtils.setField(studentController, "shadowWriter", new ShadowWriter());
+
+		studentBatchRepository = new StudentBatchRepository();
+		ReflectionTestUtils.setField(studentBatchRepository, "jdbcTemplate", jdbcTemplate);
+		ReflectionTestUtils.setField(studentBatchRepository, "transactionTemplate", transactionTemplate);
+		ReflectionTestUtils.setField(studentBatchRepository, "chunkSize", 500);
+	}
+
+	@Setup(Level.Iteration)
+	public void truncate() {
+		BenchmarkDatabase.recreateSchema(dataSource);
+	}
+
+	@TearDown
+	public void tearDown() {
+		dataSource.close();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public long singleInserts() {
+		long last = 0;
+		for (Student student : students()) {
+			last = transactionTemplate.execute(status -> studentController.insert(student)).getId();
+		}
+		return last;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public int batchInsert() {
+		return studentBatchRepository.saveAll(students()).size();
+	}
+
+	private static List<Student> students() {
+		List<Student> students = new ArrayList<>(ROWS);
+		for (int i = 0; i < ROWS; i++) {
+			Address address = new Address();
+			address.setAddress("street " + i);
+			Student student = new Student();
+			student.setName("student-" + i);
+			student.setAddress(address);
+			students.add(student);
+		}
+		return students;
+	}
+}
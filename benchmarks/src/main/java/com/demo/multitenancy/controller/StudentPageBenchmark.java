@@ -0,0 +1,82 @@
+package com.demo.multitenancy.controller;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.demo.multitenancy.benchmark.BenchmarkDatabase;
+import com.demo.multitenancy.config.db.DataSourceContextManager;
+import com.demo.multitenancy.config.db.RoutingSnapshot;
+import com.demo.multitenancy.model.Student;
+import com.demo.multitenancy.rowmapper.StudentRowMapper;
+import com.demo.multitenancy.util.ContinuationToken;
+import com.zaxxer.hikari.HikariDataSource;
+
+/*
+ * Latency of one page of 50 students at increasing depth, keyset pagination
+ * (GET /student?after=..&limit=50) against the equivalent OFFSET query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StudentPageBenchmark {
+
+	private static final int STUDENTS = 200_000;
+	private static final int PAGE_SIZE = 50;
+	private static final String FIND_PAGE_OFFSET = "select s.id, s.name, a.id as address_id, a.sid, a.address from student s join address a on s.id = a.sid order by s.id limit ? offset ?";
+
+	@Param({ "0", "10000", "100000", "199000" })
+	private int depth;
+
+	private HikariDataSource dataSource;
+	private JdbcTemplate jdbcTemplate;
+	private StudentController studentController;
+	private String token;
+
+	@Setup
+	public void setup() {
+		dataSource = BenchmarkDatabase.create("page", 4);
+		BenchmarkDatabase.populate(dataSource, STUDENTS);
+		jdbcTemplate = new JdbcTemplate(dataSource);
+
+		DataSourceContextManager contextManager = new DataSourceContextManager();
+		ReflectionTestUtils.setField(contextManager, "routingSnapshot", new RoutingSnapshot("primary", dataSource));
+		studentController = new StudentController();
+		ReflectionTestUtils.setField(studentController, "jdbcTemplate", jdbcTemplate);
+		ReflectionTestUtils.setField(studentController, "dataSourceContextManager", contextManager);
+		ReflectionTestUtils.setField(studentController, "maxPageSize", 1000);
+		token = depth == 0 ? null : ContinuationToken.encode(depth);
+	}
+
+	@TearDown
+	public void tearDown() {
+		dataSource.close();
+	}
+
+	@Benchmark
+	public List<Student> keyset() {
+		return studentController.readPage(token, PAGE_SIZE).getContent();
+	}
+
+	@Benchmark
+	public List<Student> offset() {
+		return jdbcTemplate.query(FIND_PAGE_OFFSET, StudentRowMapper.INSTANCE, PAGE_SIZE, depth);
+	}
+}
@@ -0,0 +1,106 @@
+package com.demo.multitenancy.mbean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.demo.multitenancy.benchmark.BenchmarkApplication;
+import com.demo.multitenancy.config.db.MigrationJob;
+import com.demo.multitenancy.config.db.MigrationOrchestrator;
+import com.demo.multitenancy.rowmapper.StudentRowMapper;
+import com.demo.multitenancy.util.Queries;
+
+/*
+ * Wall clock time of one full migration job (resume, warm-up, suspend, drain,
+ * switch) while the given number of threads keep reading through the routing
+ * datasource. Each invocation migrates to the tenant that
+ * is not active, so consecutive invocations alternate. A read failing during
+ * a migration fails the run: the gate must hold requests, not drop them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 30)
+@Fork(1)
+public class MigrationBenchmark {
+
+	private static final int STUDENTS = 1000;
+
+	@Param({ "0", "16" })
+	private int loadThreads;
+
+	private ConfigurableApplicationContext context;
+	private DataSourceMigrationMBean migrationMBean;
+	private MigrationOrchestrator migrationOrchestrator;
+	private final AtomicBoolean running = new AtomicBoolean();
+	private final List<Thread> load = new ArrayList<>();
+	private final LongAdder loadQueries = new LongAdder();
+	private final LongAdder loadFailures = new LongAdder();
+
+	@Setup
+	public void setup() {
+		context = BenchmarkApplication.start(STUDENTS);
+		migrationMBean = context.getBean(DataSourceMigrationMBean.class);
+		migrationOrchestrator = context.getBean(MigrationOrchestrator.class);
+		JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+		running.set(true);
+		for (int i = 0; i < loadThreads; i++) {
+			Thread thread = new Thread(() -> {
+				while (running.get()) {
+					try {
+						jdbcTemplate.queryForObject(Queries.FIND_BY_ID, StudentRowMapper.INSTANCE,
+								ThreadLocalRandom.current().nextInt(1, STUDENTS + 1));
+						loadQueries.increment();
+					} catch (RuntimeException e) {
+						loadFailures.increment();
+					}
+				}
+			}, "migration-load-" + i);
+			thread.setDaemon(true);
+			thread.start();
+			load.add(thread);
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws InterruptedException {
+		running.set(false);
+		for (Thread thread : load) {
+			thread.join();
+		}
+		context.close();
+	}
+
+	@Benchmark
+	public MigrationJob migrate() throws Exception {
+		String target = "primary".equals(migrationMBean.getCurrentLookupKey()) ? "secondary" : "primary";
+		MigrationJob job = migrationOrchestrator.start(target).getCompletion().get();
+		if (job.getState() != MigrationJob.State.SUCCEEDED) {
+			throw new IllegalStateException(job.toString());
+		}
+		if (loadFailures.sum() > 0) {
+			throw new IllegalStateException(
+					loadFailures.sum() + " of " + (loadQueries.sum() + loadFailures.sum()) + " load queries failed.");
+		}
+		return job;
+	}
+}
@@ -0,0 +1,124 @@
+package com.demo.multitenancy.rowmapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import com.demo.multitenancy.benchmark.BenchmarkDatabase;
+import com.demo.multitenancy.model.Address;
+import com.demo.multitenancy.model.Student;
+import com.demo.multitenancy.util.Queries;
+import com.zaxxer.hikari.HikariDataSource;
+
+/*
+ * StudentRowMapper.mapRow over large result sets, against the former mapper
+ * that looked every column up by name: once over an in-memory result set,
+ * which isolates the mapping, and once over FIND_ALL on H2, which adds the
+ * driver.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StudentRowMapperBenchmark {
+
+	@Param({ "10000", "100000" })
+	private int rows;
+
+	private SimpleResultSet resultSet;
+	private HikariDataSource dataSource;
+	private JdbcTemplate jdbcTemplate;
+
+	@Setup
+	public void setup() {
+		resultSet = new SimpleResultSet();
+		resultSet.setAutoClose(false);
+		resultSet.addColumn("ID", Types.BIGINT, 19, 0);
+		resultSet.addColumn("NAME", Types.VARCHAR, 255, 0);
+		resultSet.addColumn("ADDRESS_ID", Types.BIGINT, 19, 0);
+		resultSet.addColumn("SID", Types.BIGINT, 19, 0);
+		resultSet.addColumn("ADDRESS", Types.VARCHAR, 255, 0);
+		for (long id = 1; id <= rows; id++) {
+			resultSet.addRow(id, "student-" + id, id, id, "street " + id);
+		}
+		dataSource = BenchmarkDatabase.create("mapper", 2);
+		BenchmarkDatabase.populate(dataSource, rows);
+		jdbcTemplate = new JdbcTemplate(dataSource);
+	}
+
+	@TearDown
+	public void tearDown() {
+		dataSource.close();
+	}
+
+	@Benchmark
+	public void mapInMemory(Blackhole blackhole) throws SQLException {
+		mapAll(StudentRowMapper.INSTANCE, blackhole);
+	}
+
+	@Benchmark
+	public void legacyMapInMemory(Blackhole blackhole) throws SQLException {
+		mapAll(new LegacyStudentRowMapper(), blackhole);
+	}
+
+	@Benchmark
+	public List<Student> mapFindAll() {
+		return jdbcTemplate.query(Queries.FIND_ALL, StudentRowMapper.INSTANCE);
+	}
+
+	@Benchmark
+	public List<Student> legacyMapFindAll() {
+		return jdbcTemplate.query(Queries.FIND_ALL, new LegacyStudentRowMapper());
+	}
+
+	private void mapAll(RowMapper<Student> rowMapper, Blackhole blackhole) throws SQLException {
+		resultSet.beforeFirst();
+		int rowNum = 0;
+		while (resultSet.next()) {
+			blackhole.consume(rowMapper.mapRow(resultSet, rowNum++));
+		}
+	}
+
+	/*
+	 * Copy of StudentRowMapper as it was before the index-resolved mappers.
+	 */
+	static class LegacyStudentRowMapper implements RowMapper<Student> {
+
+		@Override
+		public Student mapRow(ResultSet rs, int rowNum) throws SQLException {
+			Student student = new Student();
+			student.setId(rs.getLong("ID"));
+			student.setName(rs.getString("NAME"));
+
+			Address address = new Address();
+			address.setId(rs.getLong("ADDRESS_ID"));
+			address.setStudentId(rs.getLong("SID"));
+			address.setAddress(rs.getString("ADDRESS"));
+
+			student.setAddress(address);
+
+			return student;
+		}
+	}
+}
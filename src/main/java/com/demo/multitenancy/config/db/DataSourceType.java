@@ -1,5 +0,0 @@
-package com.demo.multitenancy.config.db;
-
-public enum DataSourceType {
-	PRIMARY, SECONDARY;	
-}